@@ -0,0 +1,30 @@
+package io.socket.engineio.server.benchmarks;
+
+import io.socket.engineio.server.utils.ParseQS;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for decoding query strings of polling requests with {@link ParseQS}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseQSBenchmark {
+
+    @Param({
+            "EIO=4&transport=polling&t=OaQx1Zk&sid=Xk3f9Qm0bT2vLr8sWp1yZa",
+            "EIO=3&transport=polling&t=OaQx1Zk&b64=1&j=0&custom=Engine.IO%20%E2%98%83"
+    })
+    public String queryString;
+
+    @Benchmark
+    public Map<String, String> decode() {
+        return ParseQS.decode(queryString);
+    }
+}
@@ -0,0 +1,119 @@
+package io.socket.engineio.server.benchmarks;
+
+import io.socket.engineio.server.parser.Packet;
+import io.socket.engineio.server.parser.Parser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the encode and decode paths of {@link Parser} implementations.
+ *
+ * Payloads are encoded with binary support enabled, which is how the transports call the parsers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({"3", "4"})
+    public int protocol;
+
+    @Param({"TEXT", "BINARY", "MIXED"})
+    public PayloadKind kind;
+
+    @Param({"16", "1024", "65536"})
+    public int messageSize;
+
+    @Param({"8"})
+    public int packetCount;
+
+    private Parser mParser;
+    private List<Packet<?>> mPackets;
+    private Packet<?> mPacket;
+    private Packet<?> mPreEncodedPacket;
+    private Object mEncodedPayload;
+    private Object mEncodedPacket;
+    private ByteArrayOutputStream mOutputStream;
+    private byte[] mEncodedTextPayload;
+
+    @Setup
+    public void setup() {
+        mParser = (protocol == 3)? Parser.PROTOCOL_V3 : Parser.PROTOCOL_V4;
+        mPackets = Payloads.createPackets(kind, packetCount, messageSize);
+        mPacket = mPackets.get(mPackets.size() - 1);
+        mPreEncodedPacket = Parser.preEncode(mPacket);
+
+        final Object[] encoded = new Object[2];
+        mParser.encodePayload(mPackets, true, data -> encoded[0] = data);
+        mParser.encodePacket(mPacket, true, data -> encoded[1] = data);
+        mEncodedPayload = encoded[0];
+        mEncodedPacket = encoded[1];
+        mOutputStream = new ByteArrayOutputStream();
+
+        // Polling POST bodies are always text payloads
+        try {
+            mParser.encodePayload(mPackets, false, mOutputStream);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        mEncodedTextPayload = mOutputStream.toByteArray();
+    }
+
+    @Benchmark
+    public void encodePayload(Blackhole blackhole) {
+        mParser.encodePayload(mPackets, true, blackhole::consume);
+    }
+
+    @Benchmark
+    public boolean encodePayloadToStream() throws IOException {
+        mOutputStream.reset();
+        return mParser.encodePayload(mPackets, true, mOutputStream);
+    }
+
+    @Benchmark
+    public void decodePayload(Blackhole blackhole) {
+        mParser.decodePayload(mEncodedPayload, (packet, index, total) -> {
+            blackhole.consume(packet);
+            return true;
+        });
+    }
+
+    @Benchmark
+    public void decodePayloadFromStream(Blackhole blackhole) throws IOException {
+        mParser.decodePayload(new ByteArrayInputStream(mEncodedTextPayload), (packet, index, total) -> {
+            blackhole.consume(packet);
+            return true;
+        });
+    }
+
+    @Benchmark
+    public void encodePacket(Blackhole blackhole) {
+        mParser.encodePacket(mPacket, true, blackhole::consume);
+    }
+
+    @Benchmark
+    public boolean encodePacketToStream() throws IOException {
+        mOutputStream.reset();
+        return mParser.encodePacket(mPacket, true, mOutputStream);
+    }
+
+    @Benchmark
+    public boolean encodePreEncodedPacketToStream() throws IOException {
+        mOutputStream.reset();
+        return mParser.encodePacket(mPreEncodedPacket, true, mOutputStream);
+    }
+
+    @Benchmark
+    public Packet<?> decodePacket() {
+        return mParser.decodePacket(mEncodedPacket);
+    }
+}
@@ -0,0 +1,19 @@
+package io.socket.engineio.server.benchmarks;
+
+/**
+ * Kind of message data in a benchmark payload.
+ */
+public enum PayloadKind {
+    /**
+     * All messages are strings.
+     */
+    TEXT,
+    /**
+     * All messages are byte arrays.
+     */
+    BINARY,
+    /**
+     * Messages alternate between strings and byte arrays.
+     */
+    MIXED
+}
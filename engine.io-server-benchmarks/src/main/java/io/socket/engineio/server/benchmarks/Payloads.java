@@ -0,0 +1,59 @@
+package io.socket.engineio.server.benchmarks;
+
+import io.socket.engineio.server.parser.Packet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Payload fixtures shared by the benchmarks.
+ *
+ * The seed values mirror the ones used by the parser tests against the
+ * reference JS implementation.
+ */
+final class Payloads {
+
+    private static final String TEXT_SEED = "{\"event\":\"Engine.IO\",\"data\":\"Hello World éè☃\"}";
+    private static final byte[] BINARY_SEED = new byte[] { 1, 2, 3, 4, 5 };
+
+    private Payloads() {
+    }
+
+    /**
+     * Create a list of message packets.
+     *
+     * @param kind Kind of message data in the packets.
+     * @param packetCount Number of packets to create.
+     * @param messageSize Approximate size of each message in chars or bytes.
+     * @return List of message packets.
+     */
+    static List<Packet<?>> createPackets(PayloadKind kind, int packetCount, int messageSize) {
+        final List<Packet<?>> packets = new ArrayList<>(packetCount);
+        for (int i = 0; i < packetCount; i++) {
+            final boolean binary = (kind == PayloadKind.BINARY) || ((kind == PayloadKind.MIXED) && (i % 2 == 1));
+            if (binary) {
+                packets.add(new Packet<>(Packet.MESSAGE, createBinary(messageSize)));
+            } else {
+                packets.add(new Packet<>(Packet.MESSAGE, createText(messageSize)));
+            }
+        }
+        return packets;
+    }
+
+    static String createText(int size) {
+        final StringBuilder sb = new StringBuilder(size + TEXT_SEED.length());
+        while (sb.length() < size) {
+            sb.append(TEXT_SEED);
+        }
+        sb.setLength(size);
+        return sb.toString();
+    }
+
+    static byte[] createBinary(int size) {
+        final byte[] result = new byte[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = (byte) (BINARY_SEED[i % BINARY_SEED.length] + (i / BINARY_SEED.length));
+        }
+        return result;
+    }
+}
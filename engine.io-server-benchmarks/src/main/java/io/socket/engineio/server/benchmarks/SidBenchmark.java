@@ -0,0 +1,36 @@
+package io.socket.engineio.server.benchmarks;
+
+import io.socket.engineio.server.utils.ServerYeast;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for session id generation by {@link ServerYeast}.
+ *
+ * Runs on several threads since ids are generated by concurrent handshakes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class SidBenchmark {
+
+    @Benchmark
+    public String yeast() {
+        return ServerYeast.yeast();
+    }
+
+    @Benchmark
+    public String sid() {
+        return ServerYeast.sid();
+    }
+
+    @Benchmark
+    public String sidWithPrefix() {
+        return ServerYeast.sid("node1-");
+    }
+}
@@ -0,0 +1,275 @@
+package io.socket.engineio.server.benchmarks;
+
+import io.socket.engineio.server.EngineIoServer;
+import io.socket.engineio.server.EngineIoServerOptions;
+import io.socket.engineio.server.EngineIoWebSocket;
+import io.socket.engineio.server.transport.Polling;
+import io.socket.engineio.server.transport.WebSocket;
+import io.socket.engineio.server.utils.ParseQS;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the retained heap of idle sockets, which bounds the number of connections per server.
+ *
+ * Each invocation opens {@link #count} sockets through the regular handshake and reports the
+ * growth of the live heap per socket in the {@code bytesPerSocket} secondary result, so it
+ * includes the transport, listeners, timeouts, registry entries and initial query and header
+ * maps. The primary score is only the time taken to open the sockets and collect garbage.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SocketFootprintBenchmark {
+
+    @Param({WebSocket.NAME, Polling.NAME})
+    public String transport;
+
+    @Param({"5000"})
+    public int count;
+
+    private String mPollingQueryString;
+
+    /**
+     * Event counters are summed over the measurement iterations of all forks, so each iteration records its share.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+
+        public long bytesPerSocket;
+
+        private int mIterations;
+
+        @Setup
+        public void setup(BenchmarkParams params) {
+            mIterations = params.getMeasurement().getCount() * Math.max(1, params.getForks());
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytesPerSocket = 0;
+        }
+
+        void record(long bytes) {
+            bytesPerSocket = bytes / mIterations;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        final Map<String, String> query = new HashMap<>();
+        query.put("EIO", "4");
+        query.put("transport", Polling.NAME);
+        mPollingQueryString = ParseQS.encode(query);
+    }
+
+    @Benchmark
+    public int idleSockets(Footprint footprint) throws IOException {
+        final boolean polling = transport.equals(Polling.NAME);
+        final EngineIoServer server = new EngineIoServer(EngineIoServerOptions.newFromDefault()
+                .setAllowSyncPolling(true));
+        try {
+            final long before = usedHeap();
+            for (int i = 0; i < count; i++) {
+                if (polling) {
+                    // Request and response stubs are released by the transport once the handshake is answered
+                    server.handleRequest(newConnectRequest(mPollingQueryString), newResponse());
+                } else {
+                    server.handleWebSocket(new WebSocketConnectionStub());
+                }
+            }
+            footprint.record((usedHeap() - before) / count);
+            return server.getClients().size();
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    private static Map<String, List<String>> newHeaders() {
+        final Map<String, List<String>> headers = new HashMap<>();
+        headers.put("User-Agent", Collections.singletonList("benchmark"));
+        return headers;
+    }
+
+    private static HttpServletRequest newConnectRequest(String queryString) {
+        final Map<String, Object> attributes = new HashMap<>();
+        final Map<String, List<String>> headers = newHeaders();
+        return stub(HttpServletRequest.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getQueryString":
+                    return queryString;
+                case "getMethod":
+                    return "GET";
+                case "getRemoteAddr":
+                    return "127.0.0.1";
+                case "getContentLengthLong":
+                    return -1L;
+                case "getAttribute":
+                    return attributes.get((String) args[0]);
+                case "setAttribute":
+                    attributes.put((String) args[0], args[1]);
+                    return null;
+                case "getHeaderNames":
+                    return Collections.enumeration(headers.keySet());
+                case "getHeaders":
+                    return Collections.enumeration(headers.getOrDefault((String) args[0], Collections.emptyList()));
+                case "getHeader": {
+                    final List<String> values = headers.get((String) args[0]);
+                    return (values != null)? values.get(0) : null;
+                }
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private static HttpServletResponse newResponse() {
+        return stub(HttpServletResponse.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getOutputStream":
+                    return new DiscardingOutputStream();
+                case "getWriter":
+                    return new PrintWriter(new DiscardingWriter());
+                default:
+                    return null;
+            }
+        });
+    }
+
+    /**
+     * Creates a proxy answering the object methods by identity and unhandled primitive methods with zero.
+     */
+    private static <T> T stub(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    if (args == null) {
+                        return System.identityHashCode(proxy);
+                    }
+                    break;
+                case "equals":
+                    if (args != null && args.length == 1 && method.getParameterTypes()[0] == Object.class) {
+                        return proxy == args[0];
+                    }
+                    break;
+                case "toString":
+                    if (args == null) {
+                        return type.getSimpleName();
+                    }
+                    break;
+            }
+
+            final Object result = handler.invoke(proxy, method, args);
+            if (result != null || !method.getReturnType().isPrimitive()) {
+                return result;
+            }
+            if (method.getReturnType() == boolean.class) {
+                return false;
+            } else if (method.getReturnType() == long.class) {
+                return 0L;
+            } else if (method.getReturnType() == int.class) {
+                return 0;
+            }
+            return null;
+        }));
+    }
+
+    private static final class WebSocketConnectionStub extends EngineIoWebSocket {
+
+        private final Map<String, String> mQuery;
+        private final Map<String, List<String>> mHeaders;
+
+        WebSocketConnectionStub() {
+            mQuery = new HashMap<>();
+            mQuery.put("EIO", "4");
+            mQuery.put("transport", WebSocket.NAME);
+            mHeaders = newHeaders();
+        }
+
+        @Override
+        public Map<String, String> getQuery() {
+            return mQuery;
+        }
+
+        @Override
+        public Map<String, List<String>> getConnectionHeaders() {
+            return mHeaders;
+        }
+
+        @Override
+        public void write(String message) {
+        }
+
+        @Override
+        public void write(byte[] message) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class DiscardingOutputStream extends ServletOutputStream {
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+
+    private static final class DiscardingWriter extends Writer {
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
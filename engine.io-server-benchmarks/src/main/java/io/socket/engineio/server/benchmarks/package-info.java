@@ -0,0 +1,4 @@
+/**
+ * JMH benchmarks for engine.io.
+ */
+package io.socket.engineio.server.benchmarks;
@@ -1,14 +1,21 @@
 package io.socket.engineio.server;
 
 import io.socket.engineio.server.utils.ParseQS;
+import org.eclipse.jetty.websocket.api.BatchMode;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WebSocketListener;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 @WebSocket
 final class JettyEngineIoWebSocketHandler extends EngineIoWebSocket implements WebSocketListener {
@@ -17,6 +24,7 @@ final class JettyEngineIoWebSocketHandler extends EngineIoWebSocket implements W
     private Session mSession;
     private Map<String, String> mQuery;
     private Map<String, List<String>> mHeaders;
+    private String mRemoteAddress;
 
     public JettyEngineIoWebSocketHandler(EngineIoServer engineIoServer) {
         mEngineIoServer = engineIoServer;
@@ -28,6 +36,19 @@ final class JettyEngineIoWebSocketHandler extends EngineIoWebSocket implements W
         mQuery = ParseQS.decode(session.getUpgradeRequest().getQueryString());
         mHeaders = session.getUpgradeRequest().getHeaders();
 
+        // Kept past close so that the admission of the address can be released
+        final SocketAddress remoteAddress = session.getRemoteAddress();
+        if (remoteAddress instanceof InetSocketAddress && ((InetSocketAddress) remoteAddress).getAddress() != null) {
+            mRemoteAddress = ((InetSocketAddress) remoteAddress).getAddress().getHostAddress();
+        }
+
+        // Jetty rejects oversized frames before buffering them
+        final long maxPayload = mEngineIoServer.getOptions().getMaxHttpBufferSize();
+        if (maxPayload > 0) {
+            session.setMaxTextMessageSize(maxPayload);
+            session.setMaxBinaryMessageSize(maxPayload);
+        }
+
         mEngineIoServer.handleWebSocket(this);
     }
 
@@ -70,6 +91,11 @@ final class JettyEngineIoWebSocketHandler extends EngineIoWebSocket implements W
         return mHeaders;
     }
 
+    @Override
+    public String getRemoteAddress() {
+        return mRemoteAddress;
+    }
+
     @Override
     public void write(String message) throws IOException {
         assert mSession != null;
@@ -84,10 +110,74 @@ final class JettyEngineIoWebSocketHandler extends EngineIoWebSocket implements W
         mSession.getRemote().sendBytes(ByteBuffer.wrap(message));
     }
 
+    @Override
+    public CompletionStage<Void> writeAsync(String message) {
+        assert mSession != null;
+
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        mSession.getRemote().sendString(message, new FutureWriteCallback(future));
+        return future;
+    }
+
+    @Override
+    public CompletionStage<Void> writeAsync(byte[] message) {
+        assert mSession != null;
+
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        mSession.getRemote().sendBytes(ByteBuffer.wrap(message), new FutureWriteCallback(future));
+        return future;
+    }
+
+    @Override
+    public CompletionStage<Void> writeBatch(List<Object> messages) {
+        assert mSession != null;
+
+        final RemoteEndpoint remote = mSession.getRemote();
+        final BatchMode batchMode = remote.getBatchMode();
+        final CompletableFuture<?>[] futures = new CompletableFuture<?>[messages.size()];
+        try {
+            // Frames are queued until the last one which flushes the whole batch
+            for (int i = 0; i < futures.length; i++) {
+                remote.setBatchMode((i < futures.length - 1)? BatchMode.ON : BatchMode.OFF);
+
+                final CompletableFuture<Void> future = new CompletableFuture<>();
+                final Object message = messages.get(i);
+                if (message instanceof String) {
+                    remote.sendString((String) message, new FutureWriteCallback(future));
+                } else {
+                    remote.sendBytes(ByteBuffer.wrap((byte[]) message), new FutureWriteCallback(future));
+                }
+                futures[i] = future;
+            }
+        } finally {
+            remote.setBatchMode(batchMode);
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
     @Override
     public void close() {
         if (mSession != null) {
             mSession.close();
         }
     }
+
+    private static final class FutureWriteCallback implements WriteCallback {
+
+        private final CompletableFuture<Void> mFuture;
+
+        FutureWriteCallback(CompletableFuture<Void> future) {
+            mFuture = future;
+        }
+
+        @Override
+        public void writeFailed(Throwable cause) {
+            mFuture.completeExceptionally(cause);
+        }
+
+        @Override
+        public void writeSuccess() {
+            mFuture.complete(null);
+        }
+    }
 }
@@ -36,9 +36,13 @@ final class ServerWrapper {
     }
 
     ServerWrapper() {
+        this(EngineIoServerOptions.newFromDefault());
+    }
+
+    ServerWrapper(EngineIoServerOptions options) {
         mPort = PORT_START.getAndIncrement();
         mServer = new Server(mPort);
-        mEngineIoServer = new EngineIoServer();
+        mEngineIoServer = new EngineIoServer(options);
 
         ServletContextHandler servletContextHandler = new ServletContextHandler(ServletContextHandler.SESSIONS);
         servletContextHandler.setContextPath("/");
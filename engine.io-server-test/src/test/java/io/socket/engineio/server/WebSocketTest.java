@@ -3,6 +3,8 @@ package io.socket.engineio.server;
 import io.socket.engineio.server.parser.Packet;
 import org.junit.Test;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -22,6 +24,25 @@ public final class WebSocketTest {
         }
     }
 
+    @Test
+    public void connectTest_remoteAddress() throws Exception {
+        final ServerWrapper serverWrapper = new ServerWrapper(EngineIoServerOptions.newFromDefault()
+                .setMaxConnectionsPerAddress(1));
+        try {
+            serverWrapper.startServer();
+            final AtomicReference<String> remoteAddress = new AtomicReference<>();
+            serverWrapper.getEngineIoServer().on("connection", args -> {
+                final EngineIoSocket socket = (EngineIoSocket) args[0];
+                remoteAddress.set(socket.getRemoteAddress());
+            });
+
+            assertEquals(0, TestUtils.executeScriptForResult("src/test/resources/testWebSocket_connect.js", serverWrapper.getPort()));
+            assertEquals("127.0.0.1", remoteAddress.get());
+        } finally {
+            serverWrapper.stopServer();
+        }
+    }
+
     @Test
     public void echoTest_string() throws Exception {
         final ServerWrapper serverWrapper = new ServerWrapper();
@@ -0,0 +1,127 @@
+package io.socket.engineio.server;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control of handshakes.
+ *
+ * Each check takes a few atomic operations, so excess handshakes are rejected before any
+ * socket or transport is allocated for them. The handshake rate is limited by a token
+ * bucket kept as a single timestamp: the time at which the bucket would be full again.
+ * Every admitted handshake pushes that time one token interval further, and a handshake
+ * is rejected when this would put it more than the bucket size ahead of now.
+ *
+ * Admitted handshakes hold a connection slot until {@link #release(String)}.
+ */
+final class AdmissionController {
+
+    private final int mMaxConnections;
+    private final int mMaxConnectionsPerAddress;
+    private final long mTokenInterval;
+    private final long mBurstTolerance;
+    private final AtomicInteger mConnections = new AtomicInteger(0);
+    private final ConcurrentHashMap<String, Integer> mAddressConnections = new ConcurrentHashMap<>();
+    private final AtomicLong mBucketFullTime = new AtomicLong(System.nanoTime());
+
+    AdmissionController(int maxConnections, int maxConnectionsPerAddress, int handshakeRateLimit, int handshakeRateBurst) {
+        mMaxConnections = maxConnections;
+        mMaxConnectionsPerAddress = maxConnectionsPerAddress;
+
+        if (handshakeRateLimit > 0) {
+            final int burst = (handshakeRateBurst > 0)? handshakeRateBurst : handshakeRateLimit;
+            mTokenInterval = Math.max(1, TimeUnit.SECONDS.toNanos(1) / handshakeRateLimit);
+            mBurstTolerance = mTokenInterval * (burst - 1);
+        } else {
+            mTokenInterval = 0;
+            mBurstTolerance = 0;
+        }
+    }
+
+    /**
+     * Create the admission controller configured by the options.
+     *
+     * @param options Server options.
+     * @return Admission controller or null if no limit is set.
+     */
+    static AdmissionController fromOptions(EngineIoServerOptions options) {
+        if (options.getMaxConnections() == 0 &&
+                options.getMaxConnectionsPerAddress() == 0 &&
+                options.getHandshakeRateLimit() == 0) {
+            return null;
+        }
+
+        return new AdmissionController(
+                options.getMaxConnections(),
+                options.getMaxConnectionsPerAddress(),
+                options.getHandshakeRateLimit(),
+                options.getHandshakeRateBurst());
+    }
+
+    /**
+     * Gets the number of admitted connections.
+     */
+    int getConnections() {
+        return mConnections.get();
+    }
+
+    /**
+     * Admit a handshake.
+     *
+     * @param address Remote address of the client or null if unknown.
+     * @return Null if admitted, otherwise the reason for rejecting the handshake.
+     */
+    ServerErrors admit(String address) {
+        if (!acquireToken()) {
+            return ServerErrors.TOO_MANY_HANDSHAKES;
+        }
+
+        final int connections = mConnections.incrementAndGet();
+        if (mMaxConnections > 0 && connections > mMaxConnections) {
+            mConnections.decrementAndGet();
+            return ServerErrors.TOO_MANY_CONNECTIONS;
+        }
+
+        if (mMaxConnectionsPerAddress > 0 && address != null) {
+            final int addressConnections = mAddressConnections.merge(address, 1, Integer::sum);
+            if (addressConnections > mMaxConnectionsPerAddress) {
+                release(address);
+                return ServerErrors.TOO_MANY_CONNECTIONS_FROM_ADDRESS;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Release the connection slot of an admitted handshake.
+     *
+     * @param address Remote address the handshake was admitted with.
+     */
+    void release(String address) {
+        mConnections.decrementAndGet();
+        if (mMaxConnectionsPerAddress > 0 && address != null) {
+            mAddressConnections.computeIfPresent(address, (key, count) -> (count > 1)? count - 1 : null);
+        }
+    }
+
+    private boolean acquireToken() {
+        if (mTokenInterval == 0) {
+            return true;
+        }
+
+        final long now = System.nanoTime();
+        while (true) {
+            final long bucketFullTime = mBucketFullTime.get();
+            final long start = (bucketFullTime - now > 0)? bucketFullTime : now;
+            if (start - now > mBurstTolerance) {
+                return false;
+            }
+            if (mBucketFullTime.compareAndSet(bucketFullTime, start + mTokenInterval)) {
+                return true;
+            }
+        }
+    }
+}
@@ -2,10 +2,8 @@ package io.socket.engineio.server;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 
 /**
@@ -38,7 +36,9 @@ public class Emitter {
         }
     }
 
-    private final ConcurrentMap<String, ConcurrentLinkedQueue<Listener>> mCallbacks = new ConcurrentHashMap<>();
+    static final Object[] NO_ARGS = new Object[0];
+
+    private final ConcurrentMap<String, ListenerArray<Listener>> mCallbacks = new ConcurrentHashMap<>();
 
     /**
      * Listens on the event.
@@ -47,9 +47,14 @@ public class Emitter {
      * @return a reference to this object.
      */
     public Emitter on(String event, Listener fn) {
-        this.mCallbacks.computeIfAbsent(event, s -> new ConcurrentLinkedQueue<>());
-        final ConcurrentLinkedQueue<Listener> callbacks = this.mCallbacks.get(event);
-        callbacks.add(fn);
+        // Added inside compute so that a concurrent off cannot remove the array in between
+        this.mCallbacks.compute(event, (s, callbacks) -> {
+            if (callbacks == null) {
+                callbacks = new ListenerArray<>();
+            }
+            callbacks.add(fn);
+            return callbacks;
+        });
         return this;
     }
 
@@ -71,7 +76,9 @@ public class Emitter {
      * @return a reference to this object.
      */
     public Emitter off() {
-        this.mCallbacks.clear();
+        for (String event : this.mCallbacks.keySet()) {
+            off(event);
+        }
         return this;
     }
 
@@ -82,7 +89,12 @@ public class Emitter {
      * @return a reference to this object.
      */
     public Emitter off(String event) {
-        this.mCallbacks.remove(event);
+        final ListenerArray<Listener> callbacks = retainsListeners(event)?
+                this.mCallbacks.get(event) :
+                this.mCallbacks.remove(event);
+        if (callbacks != null) {
+            callbacks.clear();
+        }
         return this;
     }
 
@@ -94,16 +106,9 @@ public class Emitter {
      * @return a reference to this object.
      */
     public Emitter off(String event, Listener fn) {
-        final ConcurrentLinkedQueue<Listener> callbacks = this.mCallbacks.get(event);
+        final ListenerArray<Listener> callbacks = this.mCallbacks.get(event);
         if (callbacks != null) {
-            Iterator<Listener> it = callbacks.iterator();
-            while (it.hasNext()) {
-                Listener internal = it.next();
-                if (Emitter.sameAs(fn, internal)) {
-                    it.remove();
-                    break;
-                }
-            }
+            callbacks.remove(internal -> Emitter.sameAs(fn, (Listener) internal));
         }
         return this;
     }
@@ -116,14 +121,9 @@ public class Emitter {
      * @return a reference to this object.
      */
     public Emitter emit(String event, Object... args) {
-        final ConcurrentLinkedQueue<Listener> callbacks = this.mCallbacks.get(event);
+        final ListenerArray<Listener> callbacks = this.mCallbacks.get(event);
         if (callbacks != null) {
-            for (Listener fn : callbacks) {
-                try {
-                    fn.call(args);
-                } catch (Exception ignore) {
-                }
-            }
+            emit(callbacks, args);
         }
         return this;
     }
@@ -136,8 +136,16 @@ public class Emitter {
      * @return a reference to this object.
      */
     public List<Listener> listeners(String event) {
-        final ConcurrentLinkedQueue<Listener> callbacks = this.mCallbacks.get(event);
-        return callbacks != null ? Collections.unmodifiableList(new ArrayList<>(callbacks)) : Collections.emptyList();
+        final ListenerArray<Listener> callbacks = this.mCallbacks.get(event);
+        if (callbacks == null) {
+            return Collections.emptyList();
+        }
+
+        final List<Listener> list = new ArrayList<>();
+        for (Object fn : callbacks.get()) {
+            list.add((Listener) fn);
+        }
+        return Collections.unmodifiableList(list);
     }
 
     /**
@@ -147,10 +155,48 @@ public class Emitter {
      * @return a reference to this object.
      */
     public boolean hasListeners(String event) {
-        final ConcurrentLinkedQueue<Listener> callbacks = this.mCallbacks.get(event);
+        final ListenerArray<Listener> callbacks = this.mCallbacks.get(event);
         return callbacks != null && !callbacks.isEmpty();
     }
 
+    /**
+     * Gets the listener array of an event, creating it if necessary.
+     * Subclasses may keep the array of a frequently emitted event to skip the name lookup,
+     * as long as {@link #retainsListeners(String)} returns true for that event.
+     *
+     * @param event an event name.
+     * @return Listener array of the event.
+     */
+    final ListenerArray<Listener> listenersOf(String event) {
+        return this.mCallbacks.computeIfAbsent(event, s -> new ListenerArray<>());
+    }
+
+    /**
+     * Checks whether a subclass keeps the listener array of the event.
+     * Such arrays are cleared when their listeners are removed, all others are dropped.
+     *
+     * @param event an event name.
+     * @return True if the array of the event must stay registered.
+     */
+    boolean retainsListeners(String event) {
+        return false;
+    }
+
+    /**
+     * Executes each listener of the array with the given args.
+     *
+     * @param callbacks Listener array of an event.
+     * @param args Data to emit.
+     */
+    static void emit(ListenerArray<Listener> callbacks, Object[] args) {
+        for (Object fn : callbacks.get()) {
+            try {
+                ((Listener) fn).call(args);
+            } catch (Exception ignore) {
+            }
+        }
+    }
+
     private static boolean sameAs(Listener fn, Listener internal) {
         if (fn.equals(internal)) {
             return true;
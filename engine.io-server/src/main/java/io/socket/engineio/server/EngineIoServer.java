@@ -1,22 +1,28 @@
 package io.socket.engineio.server;
 
+import io.socket.engineio.server.parser.Packet;
 import io.socket.engineio.server.parser.Parser;
 import io.socket.engineio.server.transport.Polling;
 import io.socket.engineio.server.transport.WebSocket;
+import io.socket.engineio.server.utils.HashedWheelTimer;
+import io.socket.engineio.server.utils.HttpHeaders;
 import io.socket.engineio.server.utils.JsonUtils;
 import io.socket.engineio.server.utils.ParseQS;
 import io.socket.engineio.server.utils.ServerYeast;
+import io.socket.engineio.server.utils.VirtualThreads;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * The engine.io server.
@@ -33,19 +39,30 @@ public final class EngineIoServer extends Emitter {
          * If blocked, a bad request error is returned to the client.
          *
          * @param query Query parameters of the connection.
-         * @param headers Headers in the connection request.
+         * @param headers Headers in the connection request. For polling this is a read-only
+         *                view which is only valid during the call.
          * @return Return true to allow the connection or false to block.
          */
         boolean intercept(Map<String, String> query, Map<String, List<String>> headers);
     }
 
-    private static final String ERROR_JSON = "{\"code\": %d, \"message\": \"%s\"}";
+    private static final int PING_TIMER_WHEEL_SIZE = 512;
+    private static final String HANDSHAKE_JSON_PREFIX = "{\"sid\": \"";
+    private static final String HANDSHAKE_JSON_EMPTY_UPGRADES = "\", \"upgrades\": " + JsonUtils.toJson(new String[]{});
+    private static final String HANDSHAKE_JSON_WEBSOCKET_UPGRADES = "\", \"upgrades\": " + JsonUtils.toJson(new String[] { WebSocket.NAME });
 
-    private final Map<String, EngineIoSocket> mClients = new ConcurrentHashMap<>();
+    private final EngineIoSocketRegistry mClients = new EngineIoSocketRegistry();
+    private final GroupIndex mGroups = new GroupIndex();
     private final EngineIoServerOptions mOptions;
     private final HashSet<String> mAllowedCorsOrigins;
     private final ScheduledExecutorService mScheduledExecutor;
+    private final HashedWheelTimer mPingTimer;
+    private final ExecutorService mEventExecutor;
     private final HandshakeInterceptor mHandshakeInterceptor;
+    private final AdmissionController mAdmission;
+    private final String mHandshakeSuffixV3;
+    private final String mHandshakeSuffixV4;
+    private final Packet<?> mInitialPacket;
 
     /**
      * Create instance of server with default options.
@@ -93,7 +110,33 @@ public final class EngineIoServer extends Emitter {
             });
         }
 
+        if (mOptions.isVirtualThreadEventDispatchEnabled()) {
+            mEventExecutor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        } else {
+            mEventExecutor = null;
+        }
+
+        if (mOptions.isHashedWheelPingTimerEnabled()) {
+            mPingTimer = new HashedWheelTimer(
+                    mScheduledExecutor,
+                    mOptions.getPingTimerTickDuration(),
+                    TimeUnit.MILLISECONDS,
+                    PING_TIMER_WHEEL_SIZE);
+        } else {
+            mPingTimer = null;
+        }
+
         mHandshakeInterceptor = mOptions.getHandshakeInterceptor();
+        mAdmission = AdmissionController.fromOptions(mOptions);
+
+        mHandshakeSuffixV3 = ", \"pingInterval\": " + mOptions.getPingInterval() +
+                ", \"pingTimeout\": " + mOptions.getPingTimeout() +
+                "}";
+        mHandshakeSuffixV4 = ", \"pingInterval\": " + mOptions.getPingInterval() +
+                ", \"pingTimeout\": " + mOptions.getPingTimeout() +
+                ", \"maxPayload\": " + mOptions.getMaxHttpBufferSize() +
+                "}";
+        mInitialPacket = (mOptions.getInitialPacket() != null)? Parser.preEncode(mOptions.getInitialPacket()) : null;
     }
 
     /**
@@ -103,6 +146,13 @@ public final class EngineIoServer extends Emitter {
         return mOptions;
     }
 
+    /**
+     * Gets the registry of connected clients.
+     */
+    public EngineIoSocketRegistry getClients() {
+        return mClients;
+    }
+
     /**
      * Gets the underlying executor used for ping timeout handling.
      */
@@ -110,10 +160,53 @@ public final class EngineIoServer extends Emitter {
         return mScheduledExecutor;
     }
 
+    /**
+     * Gets the executor used to dispatch socket events or null if events are emitted inline.
+     */
+    ExecutorService getEventExecutor() {
+        return mEventExecutor;
+    }
+
+    /**
+     * Gets the hashed wheel timer used for ping timers or null if disabled.
+     */
+    HashedWheelTimer getPingTimer() {
+        return mPingTimer;
+    }
+
+    /**
+     * Gets the handshake data sent in the open packet of a socket.
+     * Only the sid is formatted per socket, the rest of the document is built once per server.
+     *
+     * @param sid Id of the socket.
+     * @param protocolVersion Protocol version of the socket.
+     * @param upgradable True if the socket can upgrade to websocket.
+     * @return Handshake JSON document.
+     */
+    String getHandshakeJson(String sid, int protocolVersion, boolean upgradable) {
+        return HANDSHAKE_JSON_PREFIX +
+                JsonUtils.escape(sid) +
+                (upgradable? HANDSHAKE_JSON_WEBSOCKET_UPGRADES : HANDSHAKE_JSON_EMPTY_UPGRADES) +
+                ((protocolVersion >= 4)? mHandshakeSuffixV4 : mHandshakeSuffixV3);
+    }
+
+    /**
+     * Gets the pre-encoded copy of the configured initial packet or null if not set.
+     */
+    Packet<?> getInitialPacket() {
+        return mInitialPacket;
+    }
+
     /**
      * Releases resources such as threads and clients.
      */
     public void shutdown() {
+        if (mPingTimer != null) {
+            mPingTimer.stop();
+        }
+        if (mEventExecutor != null) {
+            mEventExecutor.shutdown();
+        }
         if (mOptions.getScheduledExecutorService() == null) {
             // Only call shutdown if we created this executor service
             mScheduledExecutor.shutdownNow();
@@ -121,6 +214,122 @@ public final class EngineIoServer extends Emitter {
         mClients.clear();
     }
 
+    /**
+     * Send a packet to all connected clients.
+     * The packet is encoded at most once per protocol version and transport kind and the
+     * encoded form is shared by all clients.
+     *
+     * @param packet The packet to send.
+     */
+    public void broadcast(Packet<?> packet) {
+        broadcast(packet, mClients);
+    }
+
+    /**
+     * Send a packet to the specified clients.
+     * The packet is encoded at most once per protocol version and transport kind and the
+     * encoded form is shared by all clients.
+     *
+     * @param packet The packet to send.
+     * @param sockets The clients to send the packet to.
+     */
+    public void broadcast(Packet<?> packet, Iterable<EngineIoSocket> sockets) {
+        final Packet<?> encodedPacket = Parser.preEncode(packet);
+        for (EngineIoSocket socket : sockets) {
+            socket.send(encodedPacket);
+        }
+    }
+
+    /**
+     * Add a connected client to a group.
+     * Clients leave all their groups automatically when they are closed.
+     *
+     * @param group Name of the group.
+     * @param sid Id of the client.
+     * @return True if the client was found.
+     */
+    public boolean joinGroup(String group, String sid) {
+        final EngineIoSocket socket = mClients.get(sid);
+        if (socket == null) {
+            return false;
+        }
+
+        mGroups.join(socket, group);
+        return true;
+    }
+
+    /**
+     * Remove a client from a group.
+     *
+     * @param group Name of the group.
+     * @param sid Id of the client.
+     * @return True if the client was found.
+     */
+    public boolean leaveGroup(String group, String sid) {
+        final EngineIoSocket socket = mClients.get(sid);
+        if (socket == null) {
+            return false;
+        }
+
+        mGroups.leave(socket, group);
+        return true;
+    }
+
+    /**
+     * Remove a client from all of its groups.
+     *
+     * @param sid Id of the client.
+     * @return True if the client was found.
+     */
+    public boolean leaveAllGroups(String sid) {
+        final EngineIoSocket socket = mClients.get(sid);
+        if (socket == null) {
+            return false;
+        }
+
+        mGroups.leaveAll(socket);
+        return true;
+    }
+
+    /**
+     * Gets a weakly consistent, read-only view of the clients in a group.
+     *
+     * @param group Name of the group.
+     * @return Clients in the group.
+     */
+    public Set<EngineIoSocket> getGroupMembers(String group) {
+        return mGroups.getMembers(group);
+    }
+
+    /**
+     * Gets a weakly consistent, read-only view of the groups of a client.
+     *
+     * @param sid Id of the client.
+     * @return Groups of the client or an empty set if the client was not found.
+     */
+    public Set<String> getGroups(String sid) {
+        final EngineIoSocket socket = mClients.get(sid);
+        return (socket != null)? mGroups.getGroups(socket) : Collections.emptySet();
+    }
+
+    /**
+     * Gets a weakly consistent, read-only view of the names of all groups with at least one client.
+     */
+    public Set<String> getGroupNames() {
+        return mGroups.getGroupNames();
+    }
+
+    /**
+     * Send a packet to all clients in a group.
+     * The packet is encoded at most once per protocol version and transport kind.
+     *
+     * @param group Name of the group.
+     * @param packet The packet to send.
+     */
+    public void sendToGroup(String group, Packet<?> packet) {
+        broadcast(packet, mGroups.getMembers(group));
+    }
+
     /**
      * Handle an HTTP request.
      *
@@ -177,20 +386,16 @@ public final class EngineIoServer extends Emitter {
             if(!request.getMethod().equalsIgnoreCase("GET")) {
                 sendErrorMessage(response, ServerErrors.BAD_HANDSHAKE_METHOD);
             } else {
-                if (mHandshakeInterceptor != null) {
-                    final HashMap<String, List<String>> headers = new HashMap<>();
-                    final Enumeration<String> headerNamesEnum = request.getHeaderNames();
-                    while (headerNamesEnum.hasMoreElements()) {
-                        final String headerName = headerNamesEnum.nextElement();
-                        headers.put(headerName, Collections.list(request.getHeaders(headerName)));
-                    }
-                    if (mHandshakeInterceptor.intercept(query, headers)) {
-                        handshakePolling(request, response);
-                    } else {
-                        sendErrorMessage(response, ServerErrors.BAD_REQUEST);
-                    }
+                final String address = (mAdmission != null)? request.getRemoteAddr() : null;
+                final ServerErrors rejection = admitHandshake(Polling.NAME, address);
+                if (rejection != null) {
+                    response.setHeader("Retry-After", "1");
+                    sendErrorMessage(response, rejection);
+                } else if (mHandshakeInterceptor != null && !mHandshakeInterceptor.intercept(query, HttpHeaders.view(request))) {
+                    releaseAdmission(address);
+                    sendErrorMessage(response, ServerErrors.BAD_REQUEST);
                 } else {
-                    handshakePolling(request, response);
+                    handshakePolling(request, response, address);
                 }
             }
         }
@@ -204,6 +409,8 @@ public final class EngineIoServer extends Emitter {
      * @param webSocket The WebSocket connection object.
      */
     public void handleWebSocket(EngineIoWebSocket webSocket) {
+        webSocket.setCompressionHints(mOptions.isPerMessageDeflateEnabled(), mOptions.getPerMessageDeflateThreshold());
+
         final Map<String, String> query = webSocket.getQuery();
         final String sid = query.get("sid");
 
@@ -214,14 +421,18 @@ public final class EngineIoServer extends Emitter {
             } else if(!socket.canUpgrade(WebSocket.NAME)) {
                 webSocket.close();
             } else {
-                final Transport transport = new WebSocket(webSocket, parserFromQuery(webSocket.getQuery()));
+                final Transport transport = new WebSocket(webSocket, parserFromQuery(webSocket.getQuery()), mOptions);
                 socket.upgrade(transport);
             }
         } else {
-            if (mHandshakeInterceptor == null ||
+            final String address = (mAdmission != null)? webSocket.getRemoteAddress() : null;
+            if (admitHandshake(WebSocket.NAME, address) != null) {
+                webSocket.close();
+            } else if (mHandshakeInterceptor == null ||
                     mHandshakeInterceptor.intercept(webSocket.getQuery(), webSocket.getConnectionHeaders())) {
-                handshakeWebSocket(webSocket);
+                handshakeWebSocket(webSocket, address);
             } else {
+                releaseAdmission(address);
                 webSocket.close();
             }
         }
@@ -233,55 +444,109 @@ public final class EngineIoServer extends Emitter {
         response.setCharacterEncoding(StandardCharsets.UTF_8.name());
 
         if(code != null) {
-            response.setStatus(400);
-            response.getWriter().write(String.format(
-                    ERROR_JSON,
-                    code.getCode(),
-                    JsonUtils.escape(code.getMessage())));
+            response.setStatus(code.getStatus());
+            response.getWriter().write(code.getJson());
         } else {
             response.setStatus(403);
-            response.getWriter().write(String.format(
-                    ERROR_JSON,
-                    ServerErrors.FORBIDDEN.getCode(),
-                    JsonUtils.escape(ServerErrors.FORBIDDEN.getMessage())));
+            response.getWriter().write(ServerErrors.FORBIDDEN.getJson());
+        }
+    }
+
+    /**
+     * Apply admission control to a handshake.
+     *
+     * @param transport Name of the transport of the handshake.
+     * @param address Remote address of the client or null if unknown.
+     * @return Null if admitted, otherwise the reason for rejecting the handshake.
+     */
+    private ServerErrors admitHandshake(String transport, String address) {
+        if (mAdmission == null) {
+            return null;
+        }
+
+        final ServerErrors rejection = mAdmission.admit(address);
+        if (rejection != null) {
+            mOptions.getMetrics().onHandshakeRejected(transport, rejection.getMessage());
+        }
+        return rejection;
+    }
+
+    private void releaseAdmission(String address) {
+        if (mAdmission != null) {
+            mAdmission.release(address);
+        }
+    }
+
+    /**
+     * Register a socket after its handshake.
+     * A socket which closed during the handshake is unregistered right away.
+     */
+    private void addClient(EngineIoSocket socket) {
+        mClients.add(socket);
+        if (socket.getReadyState() == ReadyState.CLOSED) {
+            onSocketClose(socket);
         }
     }
 
     @SuppressWarnings("unchecked")
-    private void handshakePolling(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        final String sid = ServerYeast.yeast();
+    private void handshakePolling(HttpServletRequest request, HttpServletResponse response, String address) throws IOException {
+        final String sid = ServerYeast.sid(mOptions.getSidPrefix());
 
-        final Object lockObject = new Object();
+        final ReentrantLock lock = new ReentrantLock();
         final Parser parser = parserFromQuery((Map<String, String>) request.getAttribute("query"));
-        final EngineIoSocket socket = new EngineIoSocket(lockObject, sid, parser.getProtocolVersion(), this, mScheduledExecutor);
-        final Transport transport = new Polling(lockObject, parser);
-        socket.init(transport);
-        transport.onRequest(request, response);
+        final EngineIoSocket socket = new EngineIoSocket(lock, sid, parser.getProtocolVersion(), this, mScheduledExecutor);
+        socket.setRemoteAddress(address);
+        final Transport transport = new Polling(lock, parser, mOptions);
+        mOptions.getMetrics().onHandshake(Polling.NAME, parser.getProtocolVersion());
+        try {
+            socket.init(transport);
+            transport.onRequest(request, response);
+        } catch (IOException | RuntimeException ex) {
+            releaseAdmission(address);
+            throw ex;
+        }
         socket.updateInitialHeadersFromActiveTransport();
 
-        mClients.put(sid, socket);
-        socket.once("close", args -> mClients.remove(sid));
+        addClient(socket);
 
         emit("connection", socket);
     }
 
-    private void handshakeWebSocket(EngineIoWebSocket webSocket) {
-        final String sid = ServerYeast.yeast();
+    private void handshakeWebSocket(EngineIoWebSocket webSocket, String address) {
+        final String sid = ServerYeast.sid(mOptions.getSidPrefix());
 
         final Parser parser = parserFromQuery(webSocket.getQuery());
-        final Transport transport = new WebSocket(webSocket, parser);
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), sid, parser.getProtocolVersion(), this, mScheduledExecutor);
-        socket.init(transport);
+        final Transport transport = new WebSocket(webSocket, parser, mOptions);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), sid, parser.getProtocolVersion(), this, mScheduledExecutor);
+        socket.setRemoteAddress(address);
+        mOptions.getMetrics().onHandshake(WebSocket.NAME, parser.getProtocolVersion());
+        try {
+            socket.init(transport);
+        } catch (RuntimeException ex) {
+            releaseAdmission(address);
+            throw ex;
+        }
 
-        mClients.put(sid, socket);
-        socket.once("close", args -> mClients.remove(sid));
+        addClient(socket);
 
         emit("connection", socket);
     }
 
+    /**
+     * Called by a socket when it closes, before its close event is emitted.
+     *
+     * @param socket The closed socket.
+     */
+    void onSocketClose(EngineIoSocket socket) {
+        if (mClients.remove(socket)) {
+            releaseAdmission(socket.getRemoteAddress());
+        }
+        mGroups.leaveAll(socket);
+    }
+
     private static Parser parserFromQuery(Map<String, String> query) {
         return (query != null &&
                 query.containsKey("EIO") &&
                 query.get("EIO").equals("4"))? Parser.PROTOCOL_V4 : Parser.PROTOCOL_V3;
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,9 @@
 package io.socket.engineio.server;
 
+import io.socket.engineio.server.metrics.EngineIoMetrics;
 import io.socket.engineio.server.parser.Packet;
+import io.socket.engineio.server.utils.ServerYeast;
+import io.socket.engineio.server.utils.VirtualThreads;
 
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -30,23 +33,70 @@ public final class EngineIoServerOptions {
      */
     public static final String[] ALLOWED_CORS_ORIGIN_NONE = new String[0];
 
+    /**
+     * Specify that all headers of the initial request are retained
+     */
+    public static final String[] RETAINED_HEADERS_ALL = null;
+
+    /**
+     * Specify that no headers of the initial request are retained
+     */
+    public static final String[] RETAINED_HEADERS_NONE = new String[0];
+
     static {
         DEFAULT.setCorsHandlingDisabled(false);
         DEFAULT.setPingTimeout(20000);
         DEFAULT.setPingInterval(25000);
         DEFAULT.setAllowedCorsOrigins(ALLOWED_CORS_ORIGIN_ALL);
         DEFAULT.setMaxTimeoutThreadPoolSize(20);
+        DEFAULT.setHashedWheelPingTimerEnabled(false);
+        DEFAULT.setPingTimerTickDuration(100);
+        DEFAULT.setMaxWriteBufferPackets(0);
+        DEFAULT.setMaxWriteBufferSize(0);
+        DEFAULT.setWriteBufferOverflowPolicy(WriteBufferOverflowPolicy.CLOSE);
+        DEFAULT.setMetrics(EngineIoMetrics.NOOP);
+        DEFAULT.setVirtualThreadEventDispatchEnabled(false);
+        DEFAULT.setHttpCompressionEnabled(false);
+        DEFAULT.setHttpCompressionThreshold(1024);
+        DEFAULT.setPerMessageDeflateEnabled(false);
+        DEFAULT.setPerMessageDeflateThreshold(1024);
+        DEFAULT.setMaxHttpBufferSize(1000000);
+        DEFAULT.setSidPrefix(null);
+        DEFAULT.setRetainedHeaders(RETAINED_HEADERS_ALL);
+        DEFAULT.setMaxConnections(0);
+        DEFAULT.setMaxConnectionsPerAddress(0);
+        DEFAULT.setHandshakeRateLimit(0);
+        DEFAULT.setHandshakeRateBurst(0);
         DEFAULT.lock();
     }
 
     private boolean mIsLocked;
     private boolean mCorsHandlingDisabled;
     private boolean mAllowSyncPolling;
+    private boolean mNonBlockingPollingIoEnabled;
     private long mPingInterval;
     private long mPingTimeout;
     private String[] mAllowedCorsOrigins;
     private Packet<Object> mInitialPacket;
     private int mMaxTimeoutThreadPoolSize;
+    private boolean mHashedWheelPingTimerEnabled;
+    private long mPingTimerTickDuration;
+    private int mMaxWriteBufferPackets;
+    private long mMaxWriteBufferSize;
+    private WriteBufferOverflowPolicy mWriteBufferOverflowPolicy;
+    private EngineIoMetrics mMetrics;
+    private boolean mVirtualThreadEventDispatchEnabled;
+    private boolean mHttpCompressionEnabled;
+    private int mHttpCompressionThreshold;
+    private boolean mPerMessageDeflateEnabled;
+    private int mPerMessageDeflateThreshold;
+    private long mMaxHttpBufferSize;
+    private String mSidPrefix;
+    private String[] mRetainedHeaders;
+    private int mMaxConnections;
+    private int mMaxConnectionsPerAddress;
+    private int mHandshakeRateLimit;
+    private int mHandshakeRateBurst;
     private ScheduledExecutorService mScheduledExecutorService;
     private EngineIoServer.HandshakeInterceptor mHandshakeInterceptor;
 
@@ -64,10 +114,29 @@ public final class EngineIoServerOptions {
         return (new EngineIoServerOptions())
                 .setCorsHandlingDisabled(DEFAULT.isCorsHandlingDisabled())
                 .setAllowSyncPolling(false)
+                .setNonBlockingPollingIoEnabled(false)
                 .setPingInterval(DEFAULT.getPingInterval())
                 .setPingTimeout(DEFAULT.getPingTimeout())
                 .setAllowedCorsOrigins(DEFAULT.getAllowedCorsOrigins())
                 .setMaxTimeoutThreadPoolSize(DEFAULT.getMaxTimeoutThreadPoolSize())
+                .setHashedWheelPingTimerEnabled(DEFAULT.isHashedWheelPingTimerEnabled())
+                .setPingTimerTickDuration(DEFAULT.getPingTimerTickDuration())
+                .setMaxWriteBufferPackets(DEFAULT.getMaxWriteBufferPackets())
+                .setMaxWriteBufferSize(DEFAULT.getMaxWriteBufferSize())
+                .setWriteBufferOverflowPolicy(DEFAULT.getWriteBufferOverflowPolicy())
+                .setMetrics(DEFAULT.getMetrics())
+                .setVirtualThreadEventDispatchEnabled(DEFAULT.isVirtualThreadEventDispatchEnabled())
+                .setHttpCompressionEnabled(DEFAULT.isHttpCompressionEnabled())
+                .setHttpCompressionThreshold(DEFAULT.getHttpCompressionThreshold())
+                .setPerMessageDeflateEnabled(DEFAULT.isPerMessageDeflateEnabled())
+                .setPerMessageDeflateThreshold(DEFAULT.getPerMessageDeflateThreshold())
+                .setMaxHttpBufferSize(DEFAULT.getMaxHttpBufferSize())
+                .setSidPrefix(DEFAULT.getSidPrefix())
+                .setRetainedHeaders(DEFAULT.getRetainedHeaders())
+                .setMaxConnections(DEFAULT.getMaxConnections())
+                .setMaxConnectionsPerAddress(DEFAULT.getMaxConnectionsPerAddress())
+                .setHandshakeRateLimit(DEFAULT.getHandshakeRateLimit())
+                .setHandshakeRateBurst(DEFAULT.getHandshakeRateBurst())
                 .setInitialPacket(null);
     }
 
@@ -117,6 +186,33 @@ public final class EngineIoServerOptions {
         return this;
     }
 
+    /**
+     * Whether polling requests use non-blocking servlet IO.
+     */
+    public boolean isNonBlockingPollingIoEnabled() {
+        return mNonBlockingPollingIoEnabled;
+    }
+
+    /**
+     * Sets whether polling requests use non-blocking servlet IO.
+     * When enabled, request bodies are read with a {@link jakarta.servlet.ReadListener} and
+     * responses are written with a {@link jakarta.servlet.WriteListener} so that slow clients
+     * do not hold a container thread. This only applies to requests that support async.
+     * Packets in a request body are decoded as its chunks arrive, only JSONP bodies are buffered.
+     *
+     * @param nonBlockingPollingIoEnabled Boolean value for enabling non-blocking IO.
+     * @return Instance for chaining.
+     * @throws IllegalStateException If instance is locked.
+     */
+    public EngineIoServerOptions setNonBlockingPollingIoEnabled(boolean nonBlockingPollingIoEnabled) throws IllegalStateException {
+        if (mIsLocked) {
+            throw new IllegalStateException("Non-blocking polling IO cannot be set. Instance is locked.");
+        }
+
+        mNonBlockingPollingIoEnabled = nonBlockingPollingIoEnabled;
+        return this;
+    }
+
     /**
      * Gets the ping interval option in milliseconds.
      */
@@ -260,6 +356,508 @@ public final class EngineIoServerOptions {
         return this;
     }
 
+    /**
+     * Whether ping and ping timeout timers use a hashed wheel timer.
+     */
+    public boolean isHashedWheelPingTimerEnabled() {
+        return mHashedWheelPingTimerEnabled;
+    }
+
+    /**
+     * Sets whether ping and ping timeout timers use a hashed wheel timer.
+     * When enabled, resetting a socket's ping timeout on every received packet is O(1) and
+     * does not touch the executor queue. Timers fire with a precision of one tick.
+     *
+     * @param hashedWheelPingTimerEnabled Boolean value for enabling the hashed wheel timer.
+     * @return Instance for chaining.
+     * @throws IllegalStateException If instance is locked.
+     */
+    public EngineIoServerOptions setHashedWheelPingTimerEnabled(boolean hashedWheelPingTimerEnabled) throws IllegalStateException {
+        if (mIsLocked) {
+            throw new IllegalStateException("Hashed wheel ping timer cannot be set. Instance is locked.");
+        }
+
+        mHashedWheelPingTimerEnabled = hashedWheelPingTimerEnabled;
+        return this;
+    }
+
+    /**
+     * Gets the tick duration of the hashed wheel ping timer in milliseconds.
+     */
+    public long getPingTimerTickDuration() {
+        return mPingTimerTickDuration;
+    }
+
+    /**
+     * Sets the tick duration of the hashed wheel ping timer.
+     * Only used if the hashed wheel ping timer is enabled.
+     *
+     * @param pingTimerTickDuration Tick duration in milliseconds. Must be positive.
+     * @return Instance for chaining.
+     * @throws IllegalStateException If instance is locked.
+     * @throws IllegalArgumentException If tick duration is not positive.
+     */
+    public EngineIoServerOptions setPingTimerTickDuration(long pingTimerTickDuration) throws IllegalStateException, IllegalArgumentException {
+        if (mIsLocked) {
+            throw new IllegalStateException("Ping timer tick duration cannot be set. Instance is locked.");
+        }
+        if (pingTimerTickDuration <= 0) {
+            throw new IllegalArgumentException("Ping timer tick duration must be positive.");
+        }
+
+        mPingTimerTickDuration = pingTimerTickDuration;
+        return this;
+    }
+
+    /**
+     * Gets the max number of packets buffered per socket or 0 if unlimited.
+     */
+    public int getMaxWriteBufferPackets() {
+        return mMaxWriteBufferPackets;
+    }
+
+    /**
+     * Sets the max number of packets buffered per socket while the transport is not writable.
+     * Once reached, new message packets are handled according to the overflow policy.
+     *
+     * @param maxWriteBufferPackets Max number of packets or 0 for no limit.
+     * @return Instance for chaining.
+     * @throws IllegalStateException If instance is locked.
+     */
+    public EngineIoServerOptions setMaxWriteBufferPackets(int maxWriteBufferPackets) throws IllegalStateException {
+        if (mIsLocked) {
+            throw new IllegalStateException("Max write buffer packets cannot be set. Instance is locked.");
+        }
+
+        mMaxWriteBufferPackets = maxWriteBufferPackets;
+        return this;
+    }
+
+    /**
+     * Gets the max size of packet data buffered per socket or 0 if unlimited.
+     */
+    public long getMaxWriteBufferSize() {
+        return mMaxWriteBufferSize;
+    }
+
+    /**
+     * Sets the max size of packet data buffered per socket while the transport is not writable.
+     * String data is counted by its length and binary data by its number of bytes.
+     * Once reached, new message packets are handled according to the overflow policy.
+     *
+     * @param maxWriteBufferSize Max size of buffered data or 0 for no limit.
+     * @return Instance for chaining.
+     * @throws IllegalStateException If instance is locked.
+     */
+    public EngineIoServerOptions setMaxWriteBufferSize(long maxWriteBufferSize) throws IllegalStateException {
+        if (mIsLocked) {
+            throw new IllegalStateException("Max write buffer size cannot be set. Instance is locked.");
+        }
+
+        mMaxWriteBufferSize = maxWriteBufferSize;
+        return this;
+    }
+
+    /**
+     * Gets the policy applied when a socket write buffer is full.
+     */
+    public WriteBufferOverflowPolicy getWriteBufferOverflowPolicy() {
+        return mWriteBufferOverflowPolicy;
+    }
+
+    /**
+     * Sets the policy applied when a socket write buffer is full.
+     *
+     * @param writeBufferOverflowPolicy Policy for packets that do not fit into the write buffer.
+     * @return Instance for chaining.
+     * @throws IllegalStateException If instance is locked.
+     * @throws IllegalArgumentException If policy is null.
+     */
+    public EngineIoServerOptions setWriteBufferOverflowPolicy(WriteBufferOverflowPolicy writeBufferOverflowPolicy) throws IllegalStateException, IllegalArgumentException {
+        if (mIsLocked) {
+            throw new IllegalStateException("Write buffer overflow policy cannot be set. Instance is locked.");
+        }
+        if (writeBufferOverflowPolicy == null) {
+            throw new IllegalArgumentException("Write buffer overflow policy must not be null.");
+        }
+
+        mWriteBufferOverflowPolicy = writeBufferOverflowPolicy;
+        return this;
+    }
+
+    /**
+     * Gets the metrics receiving instrumentation events.
+     */
+    public EngineIoMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Sets the metrics receiving instrumentation events.
+     * Use {@link EngineIoMetrics#NOOP} to disable metrics.
+     *
+     * @param metrics Metrics implementation.
+     * @return Instance for chaining.
+     * @throws IllegalStateException If instance is locked.
+     * @throws IllegalArgumentException If metrics is null.
+     */
+    public EngineIoServerOptions setMetrics(EngineIoMetrics metrics) throws IllegalStateException, IllegalArgumentException {
+        if (mIsLocked) {
+            throw new IllegalStateException("Metrics cannot be set. Instance is locked.");
+        }
+        if (metrics == null) {
+            throw new IllegalArgumentException("Metrics must not be null.");
+        }
+
+        mMetrics = metrics;
+        return this;
+    }
+
+    /**
+     * Whether socket events are dispatched on virtual threads.
+     */
+    public boolean isVirtualThreadEventDispatchEnabled() {
+        return mVirtualThreadEventDispatchEnabled;
+    }
+
+    /**
+     * Sets whether socket events are dispatched on virtual threads.
+     * When enabled, the 'message', 'data', 'heartbeat' and 'close' events of a socket are emitted
+     * on virtual threads instead of the thread which received the data, so listeners may block.
+     * Events of one socket are still emitted one at a time and in order.
+     *
+     * @param virtualThreadEventDispatchEnabled Boolean value for enabling virtual thread dispatch.
+     * @return Instance for chaining.
+     * @throws IllegalStateException If instance is locked.
+     * @throws UnsupportedOperationException If enabled on a JVM without virtual threads.
+     */
+    public EngineIoServerOptions setVirtualThreadEventDispatchEnabled(boolean virtualThreadEventDispatchEnabled) throws IllegalStateException, UnsupportedOperationException {
+        if (mIsLocked) {
+            throw new IllegalStateException("Virtual thread event dispatch cannot be set. Instance is locked.");
+        }
+        if (virtualThreadEventDispatchEnabled && !VirtualThreads.isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this JVM.");
+        }
+
+        mVirtualThreadEventDispatchEnabled = virtualThreadEventDispatchEnabled;
+        return this;
+    }
+
+    /**
+     * Whether polling responses are compressed for clients which accept it.
+     */
+    public boolean isHttpCompressionEnabled() {
+        return mHttpCompressionEnabled;
+    }
+
+    /**
+     * Sets whether polling responses are compressed with gzip or deflate when the
+     * 'Accept-Encoding' header of the poll request allows it. Disabled by default.
+     *
+     * @param httpCompressionEnabled Boolean value for enabling HTTP compression.
+     * @return Instance for chaining.
+     * @throws IllegalStateException If instance is locked.
+     */
+    public EngineIoServerOptions setHttpCompressionEnabled(boolean httpCompressionEnabled) throws IllegalStateException {
+        if (mIsLocked) {
+            throw new IllegalStateException("HTTP compression enabled cannot be set. Instance is locked.");
+        }
+
+        mHttpCompressionEnabled = httpCompressionEnabled;
+        return this;
+    }
+
+    /**
+     * Gets the min size in bytes of a polling response to be compressed.
+     */
+    public int getHttpCompressionThreshold() {
+        return mHttpCompressionThreshold;
+    }
+
+    /**
+     * Sets the min size in bytes of a polling response to be compressed.
+     * Smaller responses are sent uncompressed since compression would not save much.
+     *
+     * @param httpCompressionThreshold Min response size in bytes.
+     * @return Instance for chaining.
+     * @throws IllegalStateException If instance is locked.
+     * @throws IllegalArgumentException If threshold is negative.
+     */
+    public EngineIoServerOptions setHttpCompressionThreshold(int httpCompressionThreshold) throws IllegalStateException, IllegalArgumentException {
+        if (mIsLocked) {
+            throw new IllegalStateException("HTTP compression threshold cannot be set. Instance is locked.");
+        }
+        if (httpCompressionThreshold < 0) {
+            throw new IllegalArgumentException("HTTP compression threshold must not be negative.");
+        }
+
+        mHttpCompressionThreshold = httpCompressionThreshold;
+        return this;
+    }
+
+    /**
+     * Whether WebSocket adapters should negotiate the 'permessage-deflate' extension.
+     */
+    public boolean isPerMessageDeflateEnabled() {
+        return mPerMessageDeflateEnabled;
+    }
+
+    /**
+     * Sets whether WebSocket adapters should negotiate the 'permessage-deflate' extension.
+     * The WebSocket connection is owned by the container, so this is a hint for the
+     * {@link EngineIoWebSocket} implementation which is passed on through
+     * {@link EngineIoWebSocket#isCompressionAllowed(int)}.
+     *
+     * @param perMessageDeflateEnabled Boolean value for enabling per-message deflate.
+     * @return Instance for chaining.
+     * @throws IllegalStateException If instance is locked.
+     */
+    public EngineIoServerOptions setPerMessageDeflateEnabled(boolean perMessageDeflateEnabled) throws IllegalStateException {
+        if (mIsLocked) {
+            throw new IllegalStateException("Per-message deflate enabled cannot be set. Instance is locked.");
+        }
+
+        mPerMessageDeflateEnabled = perMessageDeflateEnabled;
+        return this;
+    }
+
+    /**
+     * Gets the min size in bytes of a WebSocket message to be compressed.
+     */
+    public int getPerMessageDeflateThreshold() {
+        return mPerMessageDeflateThreshold;
+    }
+
+    /**
+     * Sets the min size in bytes of a WebSocket message to be compressed.
+     *
+     * @param perMessageDeflateThreshold Min message size in bytes.
+     * @return Instance for chaining.
+     * @throws IllegalStateException If instance is locked.
+     * @throws IllegalArgumentException If threshold is negative.
+     */
+    public EngineIoServerOptions setPerMessageDeflateThreshold(int perMessageDeflateThreshold) throws IllegalStateException, IllegalArgumentException {
+        if (mIsLocked) {
+            throw new IllegalStateException("Per-message deflate threshold cannot be set. Instance is locked.");
+        }
+        if (perMessageDeflateThreshold < 0) {
+            throw new IllegalArgumentException("Per-message deflate threshold must not be negative.");
+        }
+
+        mPerMessageDeflateThreshold = perMessageDeflateThreshold;
+        return this;
+    }
+
+    /**
+     * Gets the max size of a received payload or 0 if unlimited.
+     */
+    public long getMaxHttpBufferSize() {
+        return mMaxHttpBufferSize;
+    }
+
+    /**
+     * Sets the max size of a received payload. Defaults to 1 MB, older versions had no limit.
+     * Polling requests with a larger body are rejected with status 413 and WebSocket
+     * connections receiving a larger message are closed. Text messages are counted by the
+     * length of their UTF-8 encoding. WebSocket messages are only checked once the container
+     * has received them, so the adapter must cap the frame size of the container as well.
+     * The size is advertised to clients as 'maxPayload' in the protocol v4 handshake.
+     *
+     * @param maxHttpBufferSize Max payload size in bytes or 0 for no limit.
+     * @return Instance for chaining.
+     * @throws IllegalStateException If instance is locked.
+     * @throws IllegalArgumentException If size is negative.
+     */
+    public EngineIoServerOptions setMaxHttpBufferSize(long maxHttpBufferSize) throws IllegalStateException, IllegalArgumentException {
+        if (mIsLocked) {
+            throw new IllegalStateException("Max HTTP buffer size cannot be set. Instance is locked.");
+        }
+        if (maxHttpBufferSize < 0) {
+            throw new IllegalArgumentException("Max HTTP buffer size must not be negative.");
+        }
+
+        mMaxHttpBufferSize = maxHttpBufferSize;
+        return this;
+    }
+
+    /**
+     * Gets the prefix of generated session ids or null if not set.
+     */
+    public String getSidPrefix() {
+        return mSidPrefix;
+    }
+
+    /**
+     * Sets the prefix of generated session ids.
+     * A node id can be embedded in this way to route requests of a session to the node which
+     * owns it. The rest of the id has a fixed length of {@link ServerYeast#SID_LENGTH}.
+     *
+     * @param sidPrefix Prefix made of the characters 0-9, A-Z, a-z, '-' and '_' or null for none.
+     * @return Instance for chaining.
+     * @throws IllegalStateException If instance is locked.
+     * @throws IllegalArgumentException If prefix contains other characters.
+     */
+    public EngineIoServerOptions setSidPrefix(String sidPrefix) throws IllegalStateException, IllegalArgumentException {
+        if (mIsLocked) {
+            throw new IllegalStateException("Sid prefix cannot be set. Instance is locked.");
+        }
+        if (sidPrefix != null && !ServerYeast.isValidPrefix(sidPrefix)) {
+            throw new IllegalArgumentException("Sid prefix contains invalid characters.");
+        }
+
+        mSidPrefix = sidPrefix;
+        return this;
+    }
+
+    /**
+     * Gets the names of the headers retained from the initial request or null if all are retained.
+     */
+    public String[] getRetainedHeaders() {
+        return mRetainedHeaders;
+    }
+
+    /**
+     * Sets the names of the headers retained from the initial request.
+     * Only these headers are kept for {@link EngineIoSocket#getInitialHeaders()}, which saves
+     * a copy of all request headers per socket. Header names are matched ignoring case and
+     * retained headers are keyed by the names given here, for polling and WebSocket alike.
+     * The {@link EngineIoServer.HandshakeInterceptor} still sees all headers.
+     *
+     * @param retainedHeaders Array of header names or {@link #RETAINED_HEADERS_ALL}.
+     * @return Instance for chaining.
+     * @throws IllegalStateException If instance is locked.
+     */
+    public EngineIoServerOptions setRetainedHeaders(String[] retainedHeaders) throws IllegalStateException {
+        if (mIsLocked) {
+            throw new IllegalStateException("Retained headers cannot be set. Instance is locked.");
+        }
+
+        mRetainedHeaders = null;
+        if (retainedHeaders != null) {
+            // Copy the array to prevent outside modifications
+            mRetainedHeaders = new String[retainedHeaders.length];
+            System.arraycopy(retainedHeaders, 0, mRetainedHeaders, 0, retainedHeaders.length);
+        }
+
+        return this;
+    }
+
+    /**
+     * Gets the max number of connected clients or 0 if unlimited.
+     */
+    public int getMaxConnections() {
+        return mMaxConnections;
+    }
+
+    /**
+     * Sets the max number of connected clients.
+     * Handshakes beyond the limit are rejected with status 503 before a socket is created.
+     *
+     * @param maxConnections Max number of clients or 0 for no limit.
+     * @return Instance for chaining.
+     * @throws IllegalStateException If instance is locked.
+     * @throws IllegalArgumentException If count is negative.
+     */
+    public EngineIoServerOptions setMaxConnections(int maxConnections) throws IllegalStateException, IllegalArgumentException {
+        if (mIsLocked) {
+            throw new IllegalStateException("Max connections cannot be set. Instance is locked.");
+        }
+        if (maxConnections < 0) {
+            throw new IllegalArgumentException("Max connections must not be negative.");
+        }
+
+        mMaxConnections = maxConnections;
+        return this;
+    }
+
+    /**
+     * Gets the max number of connected clients per remote address or 0 if unlimited.
+     */
+    public int getMaxConnectionsPerAddress() {
+        return mMaxConnectionsPerAddress;
+    }
+
+    /**
+     * Sets the max number of connected clients per remote address.
+     * Handshakes beyond the limit are rejected with status 429 before a socket is created.
+     * WebSocket connections are only limited if {@link EngineIoWebSocket#getRemoteAddress()}
+     * is implemented.
+     *
+     * @param maxConnectionsPerAddress Max number of clients per address or 0 for no limit.
+     * @return Instance for chaining.
+     * @throws IllegalStateException If instance is locked.
+     * @throws IllegalArgumentException If count is negative.
+     */
+    public EngineIoServerOptions setMaxConnectionsPerAddress(int maxConnectionsPerAddress) throws IllegalStateException, IllegalArgumentException {
+        if (mIsLocked) {
+            throw new IllegalStateException("Max connections per address cannot be set. Instance is locked.");
+        }
+        if (maxConnectionsPerAddress < 0) {
+            throw new IllegalArgumentException("Max connections per address must not be negative.");
+        }
+
+        mMaxConnectionsPerAddress = maxConnectionsPerAddress;
+        return this;
+    }
+
+    /**
+     * Gets the max number of handshakes per second or 0 if unlimited.
+     */
+    public int getHandshakeRateLimit() {
+        return mHandshakeRateLimit;
+    }
+
+    /**
+     * Sets the max number of handshakes per second accepted by the server.
+     * Handshakes are admitted by a token bucket refilled at this rate and holding up to
+     * {@link #getHandshakeRateBurst()} tokens, so that reconnect storms are spread out.
+     * Handshakes without a token are rejected with status 503 before a socket is created.
+     *
+     * @param handshakeRateLimit Handshakes per second or 0 for no limit.
+     * @return Instance for chaining.
+     * @throws IllegalStateException If instance is locked.
+     * @throws IllegalArgumentException If rate is negative.
+     */
+    public EngineIoServerOptions setHandshakeRateLimit(int handshakeRateLimit) throws IllegalStateException, IllegalArgumentException {
+        if (mIsLocked) {
+            throw new IllegalStateException("Handshake rate limit cannot be set. Instance is locked.");
+        }
+        if (handshakeRateLimit < 0) {
+            throw new IllegalArgumentException("Handshake rate limit must not be negative.");
+        }
+
+        mHandshakeRateLimit = handshakeRateLimit;
+        return this;
+    }
+
+    /**
+     * Gets the max number of handshakes accepted at once or 0 if equal to the rate limit.
+     */
+    public int getHandshakeRateBurst() {
+        return mHandshakeRateBurst;
+    }
+
+    /**
+     * Sets the max number of handshakes accepted at once, which is the size of the token
+     * bucket of {@link #setHandshakeRateLimit(int)}.
+     *
+     * @param handshakeRateBurst Number of handshakes or 0 to use the rate limit.
+     * @return Instance for chaining.
+     * @throws IllegalStateException If instance is locked.
+     * @throws IllegalArgumentException If count is negative.
+     */
+    public EngineIoServerOptions setHandshakeRateBurst(int handshakeRateBurst) throws IllegalStateException, IllegalArgumentException {
+        if (mIsLocked) {
+            throw new IllegalStateException("Handshake rate burst cannot be set. Instance is locked.");
+        }
+        if (handshakeRateBurst < 0) {
+            throw new IllegalArgumentException("Handshake rate burst must not be negative.");
+        }
+
+        mHandshakeRateBurst = handshakeRateBurst;
+        return this;
+    }
+
     /**
      * Gets the custom {@link ScheduledExecutorService} for the server to use or null to let
      * the server create it's own executor.
@@ -1,16 +1,25 @@
 package io.socket.engineio.server;
 
+import io.socket.engineio.server.jfr.JfrEvents;
+import io.socket.engineio.server.metrics.EngineIoMetrics;
 import io.socket.engineio.server.parser.Packet;
+import io.socket.engineio.server.parser.Parser;
 import io.socket.engineio.server.transport.Polling;
 import io.socket.engineio.server.transport.WebSocket;
-import io.socket.engineio.server.utils.JsonUtils;
+import io.socket.engineio.server.utils.HashedWheelTimer;
+import io.socket.engineio.server.utils.SerialExecutor;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * An engine.io socket.
@@ -26,46 +35,97 @@ public final class EngineIoSocket extends Emitter {
         void call(EngineIoSocket socket, Object... data);
     }
 
-    private static final List<Packet<?>> PAYLOAD_NOOP = new ArrayList<Packet<?>>() {{
-        add(new Packet<>(Packet.NOOP));
-    }};
-
-    private static final String EMPTY_UPGRADES = JsonUtils.toJson(new String[]{});
-    private static final String WEBSOCKET_UPGRADES = JsonUtils.toJson(new String[] { WebSocket.NAME });
-    private static final String HANDSHAKE_JSON = "{\"sid\": \"%s\", \"upgrades\": %s, \"pingInterval\": %d, \"pingTimeout\": %d}";
+    private static final List<Packet<?>> PAYLOAD_NOOP = Collections.unmodifiableList(new ArrayList<Packet<?>>() {{
+        add(Parser.NOOP_PACKET);
+    }});
+
+    // One instance lives per connected client, so atomic state is held in volatile fields
+    // driven by field updaters rather than separate atomic objects
+    private static final AtomicIntegerFieldUpdater<EngineIoSocket> WRITE_BUFFER_COUNT =
+            AtomicIntegerFieldUpdater.newUpdater(EngineIoSocket.class, "mWriteBufferCount");
+    private static final AtomicLongFieldUpdater<EngineIoSocket> WRITE_BUFFER_SIZE =
+            AtomicLongFieldUpdater.newUpdater(EngineIoSocket.class, "mWriteBufferSize");
+    private static final AtomicIntegerFieldUpdater<EngineIoSocket> WRITE_BUFFER_FULL =
+            AtomicIntegerFieldUpdater.newUpdater(EngineIoSocket.class, "mWriteBufferFull");
+    private static final AtomicIntegerFieldUpdater<EngineIoSocket> FLUSH_WIP =
+            AtomicIntegerFieldUpdater.newUpdater(EngineIoSocket.class, "mFlushWip");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<EngineIoSocket, ScheduledFuture> PING_FUTURE =
+            AtomicReferenceFieldUpdater.newUpdater(EngineIoSocket.class, ScheduledFuture.class, "mPingFuture");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<EngineIoSocket, ScheduledFuture> PING_TIMEOUT_FUTURE =
+            AtomicReferenceFieldUpdater.newUpdater(EngineIoSocket.class, ScheduledFuture.class, "mPingTimeoutFuture");
+    private static final AtomicReferenceFieldUpdater<EngineIoSocket, WriteBufferLock> WRITE_BUFFER_LOCK =
+            AtomicReferenceFieldUpdater.newUpdater(EngineIoSocket.class, WriteBufferLock.class, "mWriteBufferLock");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<EngineIoSocket, ConcurrentHashMap> CALLBACKS =
+            AtomicReferenceFieldUpdater.newUpdater(EngineIoSocket.class, ConcurrentHashMap.class, "mCallbacks");
 
     private final String mSid;
     private final int mProtocolVersion;
     private final EngineIoServer mServer;
-    private final LinkedList<Packet<?>> mWriteBuffer = new LinkedList<>();
-    private final ConcurrentHashMap<String, ConcurrentLinkedQueue<SocketedListener>> mCallbacks = new ConcurrentHashMap<>();
+    private final EngineIoMetrics mMetrics;
+    private final ConcurrentLinkedQueue<Packet<?>> mWriteBuffer = new ConcurrentLinkedQueue<>();
+    private volatile int mWriteBufferCount = 0;
+    private volatile long mWriteBufferSize = 0;
+    private volatile int mWriteBufferFull = 0;
+    private volatile int mFlushWip = 0;
+
+    /**
+     * Lock for senders waiting on a full write buffer, created by the first one to wait.
+     */
+    private volatile WriteBufferLock mWriteBufferLock = null;
+    private final KnownEvent mPacketEvent = new KnownEvent("packet");
+    private final KnownEvent mDataEvent = new KnownEvent("data");
+    private final KnownEvent mMessageEvent = new KnownEvent("message");
+    private final KnownEvent mHeartbeatEvent = new KnownEvent("heartbeat");
+
+    /**
+     * Listeners of other events than the known ones, created by the first such listener.
+     */
+    private volatile ConcurrentHashMap<String, ListenerArray<SocketedListener>> mCallbacks = null;
 
-    private final Object mLockObject;
+    private final ReentrantLock mLock;
+    private final Executor mEventDispatcher;
     private final ScheduledExecutorService mScheduledTaskHandler;
-    private final Runnable mPingTask = this::sendPing;
-    private final Runnable mPingTimeoutTask = () -> onClose("ping timeout", null);
-    private ScheduledFuture<?> mPingFuture = null;
-    private ScheduledFuture<?> mPingTimeoutFuture = null;
-
-    private final AtomicBoolean mUpgrading = new AtomicBoolean(false);
-    private Runnable mCleanupFunction = null;
-    private ReadyState mReadyState;
-    private Transport mTransport;
+    private volatile ScheduledFuture<?> mPingFuture = null;
+    private volatile ScheduledFuture<?> mPingTimeoutFuture = null;
+    private final HashedWheelTimer.Timeout mPingTimeout;
+    private final HashedWheelTimer.Timeout mPingTimeoutTimeout;
+
+    private volatile boolean mUpgrading = false;
+    private volatile ReadyState mReadyState;
+    private volatile Transport mTransport;
+    private volatile long mPingSentTime = 0;
+    private String mRemoteAddress;
     private Map<String, String> mInitialQuery;
     private Map<String, List<String>> mInitialHeaders;
 
-    EngineIoSocket(Object lockObject,
+    EngineIoSocket(ReentrantLock lock,
                    String sid,
                    int protocolVersion,
                    EngineIoServer server,
                    ScheduledExecutorService scheduledTaskHandler) {
-        mLockObject = lockObject;
+        mLock = lock;
 
         mSid = sid;
         mProtocolVersion = protocolVersion;
         mServer = server;
+        mMetrics = server.getOptions().getMetrics();
         mScheduledTaskHandler = scheduledTaskHandler;
 
+        final ExecutorService eventExecutor = server.getEventExecutor();
+        mEventDispatcher = (eventExecutor != null)? new SerialExecutor(eventExecutor) : null;
+
+        final HashedWheelTimer pingTimer = server.getPingTimer();
+        if (pingTimer != null) {
+            mPingTimeout = pingTimer.newTimeout(this::sendPing);
+            mPingTimeoutTimeout = pingTimer.newTimeout(this::onPingTimeout);
+        } else {
+            mPingTimeout = null;
+            mPingTimeoutTimeout = null;
+        }
+
         mReadyState = ReadyState.OPENING;
     }
 
@@ -124,7 +184,7 @@ public final class EngineIoSocket extends Emitter {
         if(mReadyState == ReadyState.OPEN) {
             mReadyState = ReadyState.CLOSING;
 
-            if(mWriteBuffer.size() > 0) {
+            if(!mWriteBuffer.isEmpty()) {
                 mTransport.on("drain", args -> closeTransport());
             } else {
                 closeTransport();
@@ -141,9 +201,26 @@ public final class EngineIoSocket extends Emitter {
      * @return A reference to this object
      */
     public EngineIoSocket on(String event, SocketedListener fn) {
-        this.mCallbacks.computeIfAbsent(event, s -> new ConcurrentLinkedQueue<>());
-        final ConcurrentLinkedQueue<SocketedListener> callbacks = this.mCallbacks.get(event);
-        callbacks.add(fn);
+        final KnownEvent knownEvent = knownEvent(event);
+        if (knownEvent != null) {
+            knownEvent.mSocketListeners.add(fn);
+            return this;
+        }
+
+        ConcurrentHashMap<String, ListenerArray<SocketedListener>> callbacks = this.mCallbacks;
+        if (callbacks == null) {
+            CALLBACKS.compareAndSet(this, null, new ConcurrentHashMap<>());
+            callbacks = this.mCallbacks;
+        }
+
+        // Added inside compute so that a concurrent off cannot remove the array in between
+        callbacks.compute(event, (s, listeners) -> {
+            if (listeners == null) {
+                listeners = new ListenerArray<>();
+            }
+            listeners.add(fn);
+            return listeners;
+        });
         return this;
     }
 
@@ -156,40 +233,126 @@ public final class EngineIoSocket extends Emitter {
      * @return a reference to this object.
      */
     public EngineIoSocket off(String event, SocketedListener fn) {
-        final ConcurrentLinkedQueue<SocketedListener> callbacks = this.mCallbacks.get(event);
+        final ListenerArray<SocketedListener> callbacks = findSocketListeners(event);
         if (callbacks != null) {
-            Iterator<SocketedListener> it = callbacks.iterator();
-            while (it.hasNext()) {
-                SocketedListener internal = it.next();
-                if (fn.equals(internal)) {
-                    it.remove();
-                    break;
-                }
-            }
+            callbacks.remove(fn::equals);
         }
         return this;
     }
 
     @Override
     public EngineIoSocket off(String event) {
-        this.mCallbacks.remove(event);
+        final KnownEvent knownEvent = knownEvent(event);
+        if (knownEvent != null) {
+            knownEvent.mSocketListeners.clear();
+        } else {
+            final ConcurrentHashMap<String, ListenerArray<SocketedListener>> callbacks = this.mCallbacks;
+            if (callbacks != null) {
+                callbacks.remove(event);
+            }
+        }
         return (EngineIoSocket)super.off(event);
     }
 
+    @Override
+    boolean retainsListeners(String event) {
+        return knownEvent(event) != null;
+    }
+
     @Override
     public Emitter emit(String event, Object... args) {
-        final ConcurrentLinkedQueue<SocketedListener> callbacks = this.mCallbacks.get(event);
+        final ListenerArray<SocketedListener> callbacks = findSocketListeners(event);
         if (callbacks != null) {
-            for (SocketedListener fn : callbacks) {
-                try {
-                    fn.call(this, args);
-                } catch (Exception ignore) {
-                }
-            }
+            emitSocketed(callbacks, args);
         }
         return super.emit(event, args);
     }
 
+    private ListenerArray<SocketedListener> findSocketListeners(String event) {
+        final KnownEvent knownEvent = knownEvent(event);
+        if (knownEvent != null) {
+            return knownEvent.mSocketListeners;
+        }
+
+        final ConcurrentHashMap<String, ListenerArray<SocketedListener>> callbacks = this.mCallbacks;
+        return (callbacks != null)? callbacks.get(event) : null;
+    }
+
+    private KnownEvent knownEvent(String event) {
+        switch (event) {
+            case "packet":
+                return mPacketEvent;
+            case "data":
+                return mDataEvent;
+            case "message":
+                return mMessageEvent;
+            case "heartbeat":
+                return mHeartbeatEvent;
+            default:
+                return null;
+        }
+    }
+
+    private void emitSocketed(ListenerArray<SocketedListener> callbacks, Object[] args) {
+        for (Object fn : callbacks.get()) {
+            try {
+                ((SocketedListener) fn).call(this, args);
+            } catch (Exception ignore) {
+            }
+        }
+    }
+
+    private void emitMessage(Object data) {
+        mDataEvent.emit(data);
+        mMessageEvent.emit(data);
+    }
+
+    /**
+     * A frequently emitted event whose listener arrays are resolved once,
+     * so emitting it needs no name lookup.
+     * The event runs as a task emitting no arguments, so it can be dispatched without allocating.
+     */
+    private final class KnownEvent implements Runnable {
+
+        private final ListenerArray<SocketedListener> mSocketListeners = new ListenerArray<>();
+        private final ListenerArray<Listener> mListeners;
+
+        KnownEvent(String event) {
+            mListeners = listenersOf(event);
+        }
+
+        /**
+         * Emit a single argument. Nothing is allocated if the event has no listeners.
+         */
+        void emit(Object arg) {
+            if (mSocketListeners.isEmpty() && mListeners.isEmpty()) {
+                return;
+            }
+            emitArgs(new Object[] { arg });
+        }
+
+        void emitArgs(Object[] args) {
+            emitSocketed(mSocketListeners, args);
+            Emitter.emit(mListeners, args);
+        }
+
+        @Override
+        public void run() {
+            emitArgs(NO_ARGS);
+        }
+    }
+
+    /**
+     * Gets the remote address the socket was admitted with, if admission control is enabled.
+     */
+    String getRemoteAddress() {
+        return mRemoteAddress;
+    }
+
+    void setRemoteAddress(String remoteAddress) {
+        mRemoteAddress = remoteAddress;
+    }
+
     /**
      * Called after instance creation to initialize transport.
      *
@@ -217,8 +380,8 @@ public final class EngineIoSocket extends Emitter {
     void onRequest(HttpServletRequest request, HttpServletResponse response) throws IOException {
         mTransport.onRequest(request, response);
 
-        if (mUpgrading.get() && mTransport.isWritable() && mWriteBuffer.isEmpty()) {
-            mTransport.send(PAYLOAD_NOOP);
+        if (mUpgrading && mTransport.isWritable() && mWriteBuffer.isEmpty()) {
+            mTransport.send(new ArrayList<>(PAYLOAD_NOOP));
         }
     }
 
@@ -230,7 +393,7 @@ public final class EngineIoSocket extends Emitter {
      */
     @SuppressWarnings("SameParameterValue")
     boolean canUpgrade(String transport) {
-        return (!mUpgrading.get() && mTransport.getName().equals(Polling.NAME) && transport.equals(WebSocket.NAME));
+        return (!mUpgrading && mTransport.getName().equals(Polling.NAME) && transport.equals(WebSocket.NAME));
     }
 
     /**
@@ -239,16 +402,20 @@ public final class EngineIoSocket extends Emitter {
      * @param transport The transport to upgrade to.
      */
     void upgrade(final Transport transport) {
-        mUpgrading.set(true);
+        mUpgrading = true;
+
+        final String previousTransport = mTransport.getName();
+        final AtomicReference<Object> upgradeEvent = new AtomicReference<>(JfrEvents.beginUpgrade());
 
         final Runnable cleanup = () -> {
-            mUpgrading.set(false);
+            mUpgrading = false;
             transport.off("packet");
             transport.off("close");
             transport.off("error");
         };
 
         final Listener onError = args -> {
+            JfrEvents.endUpgrade(upgradeEvent.getAndSet(null), mSid, previousTransport, transport.getName(), false);
             cleanup.run();
             transport.close();
         };
@@ -256,15 +423,12 @@ public final class EngineIoSocket extends Emitter {
         transport.on("packet", args -> {
             final Packet<?> packet = (Packet<?>) args[0];
             if(packet.type.equals(Packet.PING) && (packet.data != null) && packet.data.equals("probe")) {
-                final Packet<String> replyPacket = new Packet<>(Packet.PONG);
-                replyPacket.data = "probe";
-
                 transport.send(new ArrayList<Packet<?>>() {{
-                    add(replyPacket);
+                    add(Parser.PROBE_PONG_PACKET);
                 }});
 
                 if (mTransport.isWritable()) {
-                    mTransport.send(PAYLOAD_NOOP);
+                    mTransport.send(new ArrayList<>(PAYLOAD_NOOP));
                 }
 
                 emit("upgrading", transport);
@@ -272,11 +436,14 @@ public final class EngineIoSocket extends Emitter {
                 cleanup.run();
                 clearTransport();
                 setTransport(transport);
+                mMetrics.onUpgrade(previousTransport, transport.getName(), mProtocolVersion);
+                JfrEvents.endUpgrade(upgradeEvent.getAndSet(null), mSid, previousTransport, transport.getName(), true);
                 emit("upgrade", transport);
                 flush();
 
                 schedulePing();
             } else {
+                JfrEvents.endUpgrade(upgradeEvent.getAndSet(null), mSid, previousTransport, transport.getName(), false);
                 cleanup.run();
                 transport.close();
             }
@@ -305,13 +472,6 @@ public final class EngineIoSocket extends Emitter {
         });
         transport.on("packet", args -> onPacket((Packet<?>) args[0]));
         transport.on("drain", args -> flush());
-
-        mCleanupFunction = () -> {
-            transport.off("error");
-            transport.off("close");
-            transport.off("packet");
-            transport.off("drain");
-        };
     }
 
     private void closeTransport() {
@@ -319,35 +479,26 @@ public final class EngineIoSocket extends Emitter {
     }
 
     private void clearTransport() {
-        if(mCleanupFunction != null) {
-            mCleanupFunction.run();
-        }
+        mTransport.off("error");
+        mTransport.off("close");
+        mTransport.off("packet");
+        mTransport.off("drain");
 
         mTransport.close();
     }
 
     private void onOpen() {
         mReadyState = ReadyState.OPEN;
+        mMetrics.onSocketOpen(mTransport.getName(), mProtocolVersion);
+        JfrEvents.socketOpen(mSid, mTransport.getName(), mProtocolVersion);
 
-        final String upgrades;
-        if (mTransport.getName().equals(Polling.NAME)) {
-            upgrades = WEBSOCKET_UPGRADES;
-        } else {
-            upgrades = EMPTY_UPGRADES;
-        }
-
-        Packet<String> openPacket = new Packet<>(Packet.OPEN);
-        openPacket.data = String.format(
-                HANDSHAKE_JSON,
-                JsonUtils.escape(mSid),
-                upgrades,
-                mServer.getOptions().getPingInterval(),
-                mServer.getOptions().getPingTimeout());
+        final Packet<String> openPacket = new Packet<>(Packet.OPEN);
+        openPacket.data = mServer.getHandshakeJson(mSid, mProtocolVersion, mTransport.getName().equals(Polling.NAME));
 
         sendPacket(openPacket);
 
-        if (mServer.getOptions().getInitialPacket() != null) {
-            sendPacket(mServer.getOptions().getInitialPacket());
+        if (mServer.getInitialPacket() != null) {
+            sendPacket(mServer.getInitialPacket());
         }
 
         emit("open");
@@ -366,13 +517,29 @@ public final class EngineIoSocket extends Emitter {
 
     private void onClose(String reason, String description) {
         if(mReadyState != ReadyState.CLOSED) {
+            if (mReadyState != ReadyState.OPENING) {
+                mMetrics.onSocketClose(mTransport.getName(), mProtocolVersion, reason);
+            }
+            JfrEvents.socketClose(mSid, mTransport.getName(), reason, description);
             mReadyState = ReadyState.CLOSED;
-            if(mPingFuture != null) {
-                mPingFuture.cancel(false);
+            final ScheduledFuture<?> pingFuture = mPingFuture;
+            if(pingFuture != null) {
+                pingFuture.cancel(false);
+            }
+            if (mPingTimeout != null) {
+                mPingTimeout.cancel();
+                mPingTimeoutTimeout.cancel();
+            }
+
+            if (mServer.getOptions().getWriteBufferOverflowPolicy() == WriteBufferOverflowPolicy.BLOCK) {
+                // Release senders waiting for the buffer to be flushed
+                signalWriteBufferNotFull();
             }
 
             clearTransport();
-            emit("close", reason, description);
+            // Leave the registry at once, so closed sockets are not counted while their listeners are busy
+            mServer.onSocketClose(this);
+            dispatch(() -> emit("close", reason, description));
         }
     }
 
@@ -382,7 +549,8 @@ public final class EngineIoSocket extends Emitter {
 
     private void onPacket(Packet<?> packet) {
         if(mReadyState == ReadyState.OPEN) {
-            emit("packet", packet);
+            mMetrics.onPacketReceived(mTransport.getName(), packet.type);
+            mPacketEvent.emit(packet);
 
             resetPingTimeout(mServer.getOptions().getPingTimeout() + mServer.getOptions().getPingInterval());
 
@@ -391,78 +559,297 @@ public final class EngineIoSocket extends Emitter {
                     if (mProtocolVersion != 3) {
                         onError();
                     } else {
-                        sendPacket(new Packet<>(Packet.PONG));
-                        emit("heartbeat");
+                        sendPacket(Parser.PONG_PACKET);
+                        dispatch(mHeartbeatEvent);
                     }
                     break;
                 case Packet.PONG:
+                    final long pingSentTime = mPingSentTime;
+                    if (pingSentTime != 0) {
+                        mPingSentTime = 0;
+                        mMetrics.onPingRoundTrip(System.nanoTime() - pingSentTime);
+                    }
                     schedulePing();
-                    emit("heartbeat");
+                    dispatch(mHeartbeatEvent);
                     break;
                 case Packet.ERROR:
                     onClose("parse error", null);
                     break;
                 case Packet.MESSAGE:
-                    emit("data", packet.data);
-                    emit("message", packet.data);
+                    final Object data = packet.data;
+                    if (mEventDispatcher == null) {
+                        emitMessage(data);
+                    } else {
+                        dispatch(() -> emitMessage(data));
+                    }
                     break;
             }
         }
     }
 
+    /**
+     * Add a packet to the write buffer and flush it if possible.
+     * Producers never wait for the transport lock unless the transport is writable
+     * and no other thread is already flushing, or the buffer overflows with
+     * {@link WriteBufferOverflowPolicy#DROP_OLDEST}.
+     */
     private void sendPacket(Packet<?> packet) {
-        synchronized (mLockObject) {
-            if ((mReadyState != ReadyState.CLOSING) && (mReadyState != ReadyState.CLOSED)) {
-                mWriteBuffer.add(packet);
+        if ((mReadyState == ReadyState.CLOSING) || (mReadyState == ReadyState.CLOSED)) {
+            return;
+        }
 
-                flush();
-            }
+        final long packetSize = getPacketSize(packet);
+        if (packet.type.equals(Packet.MESSAGE) && isWriteBufferFull(packetSize) && !onWriteBufferFull(packetSize)) {
+            return;
+        }
+
+        final int depth = WRITE_BUFFER_COUNT.incrementAndGet(this);
+        WRITE_BUFFER_SIZE.addAndGet(this, packetSize);
+        mWriteBuffer.offer(packet);
+
+        // The transport emits drain once it becomes writable
+        if (mTransport.isWritable()) {
+            flush();
+        } else {
+            mMetrics.onWriteBufferDepth(depth);
         }
     }
 
-    private void flush() {
-        synchronized (mLockObject) {
-            if ((mReadyState != ReadyState.CLOSED) && (mTransport.isWritable()) && (mWriteBuffer.size() > 0)) {
-                emit("flush", Collections.unmodifiableCollection(mWriteBuffer));
+    private boolean isWriteBufferFull(long packetSize) {
+        final int maxPackets = mServer.getOptions().getMaxWriteBufferPackets();
+        final long maxSize = mServer.getOptions().getMaxWriteBufferSize();
+        final int count = mWriteBufferCount;
+
+        // A packet larger than the size limit is still accepted into an empty buffer
+        return ((maxPackets > 0) && (count >= maxPackets)) ||
+                ((maxSize > 0) && (count > 0) && (mWriteBufferSize + packetSize > maxSize));
+    }
+
+    /**
+     * Apply the overflow policy for a message packet that does not fit into the write buffer.
+     * Limits are checked without locking, so concurrent senders may exceed them slightly.
+     *
+     * @param packetSize Size of the packet to add.
+     * @return True if the packet can be added to the buffer, false if it must be discarded.
+     */
+    private boolean onWriteBufferFull(long packetSize) {
+        if (WRITE_BUFFER_FULL.compareAndSet(this, 0, 1)) {
+            mMetrics.onWriteBufferFull();
+            emit("writeBufferFull", mWriteBufferCount, mWriteBufferSize);
+        }
+
+        switch (mServer.getOptions().getWriteBufferOverflowPolicy()) {
+            case BLOCK:
+                if (mLock.isHeldByCurrentThread()) {
+                    // The buffer can only be flushed under this lock, so waiting would never end.
+                    // The packet exceeds the limit instead and goes out with the next flush.
+                    return true;
+                }
+
+                final WriteBufferLock writeBufferLock = getWriteBufferLock();
+                writeBufferLock.lock();
+                try {
+                    while ((mReadyState != ReadyState.CLOSING) && (mReadyState != ReadyState.CLOSED) && isWriteBufferFull(packetSize)) {
+                        writeBufferLock.mNotFull.await();
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                } finally {
+                    writeBufferLock.unlock();
+                }
+                return (mReadyState != ReadyState.CLOSING) && (mReadyState != ReadyState.CLOSED);
+            case DROP_OLDEST:
+                // Flushes poll the buffer under the same lock, so removed packets are never also sent
+                mLock.lock();
+                try {
+                    final Iterator<Packet<?>> iterator = mWriteBuffer.iterator();
+                    while (isWriteBufferFull(packetSize) && iterator.hasNext()) {
+                        final Packet<?> bufferedPacket = iterator.next();
+                        if (bufferedPacket.type.equals(Packet.MESSAGE)) {
+                            iterator.remove();
+                            WRITE_BUFFER_COUNT.decrementAndGet(this);
+                            WRITE_BUFFER_SIZE.addAndGet(this, -getPacketSize(bufferedPacket));
+                        }
+                    }
+                } finally {
+                    mLock.unlock();
+                }
+                return !isWriteBufferFull(packetSize);
+            case DROP_NEWEST:
+                return false;
+            case CLOSE:
+            default:
+                onClose("write buffer overflow", null);
+                return false;
+        }
+    }
+
+    private static long getPacketSize(Packet<?> packet) {
+        if (packet.data instanceof byte[]) {
+            return ((byte[]) packet.data).length;
+        } else if (packet.data instanceof CharSequence) {
+            return ((CharSequence) packet.data).length();
+        } else {
+            return 0;
+        }
+    }
 
-                mTransport.send(mWriteBuffer);
-                mWriteBuffer.clear();
+    /**
+     * Send buffered packets if the transport is writable.
+     * Only one thread drains the buffer at a time. Calls made while another thread is
+     * draining return immediately and make that thread check the buffer once more.
+     */
+    private void flush() {
+        if (FLUSH_WIP.getAndIncrement(this) != 0) {
+            return;
+        }
 
-                emit("drain");
+        int missed = 1;
+        do {
+            if (!mWriteBuffer.isEmpty() && mTransport.isWritable()) {
+                mLock.lock();
+                try {
+                    if ((mReadyState != ReadyState.CLOSED) && mTransport.isWritable()) {
+                        final List<Packet<?>> packets = pollWriteBuffer();
+                        if (packets.size() > 0) {
+                            mMetrics.onFlush(mTransport.getName(), packets.size());
+                            emit("flush", Collections.unmodifiableCollection(packets));
+
+                            final Object flushEvent = JfrEvents.beginFlush();
+                            mTransport.send(packets);
+                            if (flushEvent != null) {
+                                long size = 0;
+                                for (Packet<?> packet : packets) {
+                                    size += getPacketSize(packet);
+                                }
+                                JfrEvents.endFlush(flushEvent, mSid, mTransport.getName(), packets.size(), size);
+                            }
+
+                            emit("drain");
+                        }
+                    }
+                } finally {
+                    mLock.unlock();
+                }
             }
+
+            missed = FLUSH_WIP.addAndGet(this, -missed);
+        } while (missed != 0);
+    }
+
+    private List<Packet<?>> pollWriteBuffer() {
+        final List<Packet<?>> packets = new ArrayList<>();
+        long size = 0;
+
+        Packet<?> packet;
+        while ((packet = mWriteBuffer.poll()) != null) {
+            packets.add(packet);
+            size += getPacketSize(packet);
         }
+
+        WRITE_BUFFER_COUNT.addAndGet(this, -packets.size());
+        WRITE_BUFFER_SIZE.addAndGet(this, -size);
+        mWriteBufferFull = 0;
+
+        if (mServer.getOptions().getWriteBufferOverflowPolicy() == WriteBufferOverflowPolicy.BLOCK) {
+            signalWriteBufferNotFull();
+        }
+        return packets;
     }
 
-    private void sendPing() {
-        synchronized (mLockObject) {
-            sendPacket(new Packet<>(Packet.PING));
-            resetPingTimeout(mServer.getOptions().getPingTimeout());
+    private WriteBufferLock getWriteBufferLock() {
+        final WriteBufferLock writeBufferLock = mWriteBufferLock;
+        if (writeBufferLock != null) {
+            return writeBufferLock;
+        }
+
+        WRITE_BUFFER_LOCK.compareAndSet(this, null, new WriteBufferLock());
+        return mWriteBufferLock;
+    }
+
+    /**
+     * Wake up senders blocked on a full write buffer, if any sender ever waited.
+     */
+    private void signalWriteBufferNotFull() {
+        final WriteBufferLock writeBufferLock = mWriteBufferLock;
+        if (writeBufferLock == null) {
+            return;
+        }
+
+        writeBufferLock.lock();
+        try {
+            writeBufferLock.mNotFull.signalAll();
+        } finally {
+            writeBufferLock.unlock();
+        }
+    }
+
+    /**
+     * Lock together with the condition senders wait on for the write buffer to drain.
+     * Uses a j.u.c lock rather than the buffer's monitor, which would pin the carrier of a
+     * waiting virtual thread.
+     */
+    private static final class WriteBufferLock extends ReentrantLock {
+
+        private final Condition mNotFull = newCondition();
+    }
+
+    /**
+     * Emit application events inline or on the event executor in per socket order.
+     */
+    private void dispatch(Runnable task) {
+        if (mEventDispatcher == null) {
+            task.run();
+            return;
+        }
+
+        try {
+            mEventDispatcher.execute(task);
+        } catch (RejectedExecutionException ex) {
+            // Server is shutting down
+            task.run();
         }
     }
 
+    private void sendPing() {
+        mPingSentTime = System.nanoTime();
+        sendPacket(Parser.PING_PACKET);
+        resetPingTimeout(mServer.getOptions().getPingTimeout());
+    }
+
+    private void onPingTimeout() {
+        JfrEvents.pingTimeout(getId());
+        onClose("ping timeout", null);
+    }
+
     private void schedulePing() {
-        synchronized (mLockObject) {
-            if(mPingFuture != null) {
-                mPingFuture.cancel(false);
-            }
+        if (mPingTimeout != null) {
+            mPingTimeout.reset(mServer.getOptions().getPingInterval(), TimeUnit.MILLISECONDS);
+            return;
+        }
 
-            mPingFuture = mScheduledTaskHandler.schedule(
-                    mPingTask,
-                    mServer.getOptions().getPingInterval(),
-                    TimeUnit.MILLISECONDS);
+        final ScheduledFuture<?> previous = PING_FUTURE.getAndSet(this, mScheduledTaskHandler.schedule(
+                this::sendPing,
+                mServer.getOptions().getPingInterval(),
+                TimeUnit.MILLISECONDS));
+        if (previous != null) {
+            previous.cancel(false);
         }
     }
 
     private void resetPingTimeout(long timeout) {
-        synchronized (mLockObject) {
-            if(mPingTimeoutFuture != null) {
-                mPingTimeoutFuture.cancel(false);
-            }
+        if (mPingTimeoutTimeout != null) {
+            mPingTimeoutTimeout.reset(timeout, TimeUnit.MILLISECONDS);
+            return;
+        }
 
-            mPingTimeoutFuture = mScheduledTaskHandler.schedule(
-                    mPingTimeoutTask,
-                    timeout,
-                    TimeUnit.MILLISECONDS);
+        final ScheduledFuture<?> previous = PING_TIMEOUT_FUTURE.getAndSet(this, mScheduledTaskHandler.schedule(
+                this::onPingTimeout,
+                timeout,
+                TimeUnit.MILLISECONDS));
+        if (previous != null) {
+            previous.cancel(false);
         }
     }
-}
\ No newline at end of file
+}
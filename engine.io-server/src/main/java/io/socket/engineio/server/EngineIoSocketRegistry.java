@@ -0,0 +1,207 @@
+package io.socket.engineio.server;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Registry of the sockets connected to a server.
+ *
+ * Sockets are spread over several shards by their id so that concurrent handshakes and
+ * closes do not contend on one map, and so that iteration can be split across cores one
+ * shard at a time. Iteration is weakly consistent: it never throws
+ * {@link java.util.ConcurrentModificationException} and sees each socket at most once, but
+ * may or may not see sockets added or removed while iterating.
+ */
+public final class EngineIoSocketRegistry implements Iterable<EngineIoSocket> {
+
+    private static final int MAX_SHARD_COUNT = 64;
+
+    private final ConcurrentHashMap<String, EngineIoSocket>[] mShards;
+    private final AtomicInteger mSize = new AtomicInteger(0);
+
+    EngineIoSocketRegistry() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    @SuppressWarnings("unchecked")
+    EngineIoSocketRegistry(int shardCount) {
+        int size = 1;
+        while (size < shardCount && size < MAX_SHARD_COUNT) {
+            size <<= 1;
+        }
+
+        mShards = new ConcurrentHashMap[size];
+        for (int i = 0; i < size; i++) {
+            mShards[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Gets the number of registered sockets.
+     */
+    public int size() {
+        return mSize.get();
+    }
+
+    /**
+     * Whether no sockets are registered.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Gets the socket with an id.
+     *
+     * @param sid Id of the socket.
+     * @return Socket or null if no socket with the id is registered.
+     */
+    public EngineIoSocket get(String sid) {
+        return shardOf(sid).get(sid);
+    }
+
+    /**
+     * Gets the number of shards.
+     */
+    public int getShardCount() {
+        return mShards.length;
+    }
+
+    /**
+     * Gets a weakly consistent iterator over all sockets.
+     */
+    @Override
+    public Iterator<EngineIoSocket> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    /**
+     * Gets a weakly consistent spliterator over all sockets.
+     * The spliterator splits between shards first and then within a shard.
+     */
+    @Override
+    public Spliterator<EngineIoSocket> spliterator() {
+        return new ShardSpliterator(0, mShards.length);
+    }
+
+    /**
+     * Gets a stream over all sockets.
+     *
+     * @param parallel True to get a parallel stream.
+     * @return Stream of sockets.
+     */
+    public Stream<EngineIoSocket> stream(boolean parallel) {
+        return StreamSupport.stream(spliterator(), parallel);
+    }
+
+    @Override
+    public void forEach(Consumer<? super EngineIoSocket> action) {
+        for (Map<String, EngineIoSocket> shard : mShards) {
+            shard.values().forEach(action);
+        }
+    }
+
+    void add(EngineIoSocket socket) {
+        if (shardOf(socket.getId()).put(socket.getId(), socket) == null) {
+            mSize.incrementAndGet();
+        }
+    }
+
+    boolean remove(EngineIoSocket socket) {
+        if (shardOf(socket.getId()).remove(socket.getId(), socket)) {
+            mSize.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    void clear() {
+        for (Map<String, EngineIoSocket> shard : mShards) {
+            for (EngineIoSocket socket : shard.values()) {
+                remove(socket);
+            }
+        }
+    }
+
+    private ConcurrentHashMap<String, EngineIoSocket> shardOf(String sid) {
+        final int hash = sid.hashCode();
+        return mShards[(hash ^ (hash >>> 16)) & (mShards.length - 1)];
+    }
+
+    /**
+     * Spliterator over a range of shards.
+     */
+    private final class ShardSpliterator implements Spliterator<EngineIoSocket> {
+
+        private int mIndex;
+        private final int mFence;
+        private Spliterator<EngineIoSocket> mCurrent;
+
+        ShardSpliterator(int index, int fence) {
+            mIndex = index;
+            mFence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super EngineIoSocket> action) {
+            while (true) {
+                if (mCurrent == null) {
+                    if (mIndex >= mFence) {
+                        return false;
+                    }
+                    mCurrent = mShards[mIndex++].values().spliterator();
+                }
+                if (mCurrent.tryAdvance(action)) {
+                    return true;
+                }
+                mCurrent = null;
+            }
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super EngineIoSocket> action) {
+            if (mCurrent != null) {
+                mCurrent.forEachRemaining(action);
+                mCurrent = null;
+            }
+            while (mIndex < mFence) {
+                mShards[mIndex++].values().forEach(action);
+            }
+        }
+
+        @Override
+        public Spliterator<EngineIoSocket> trySplit() {
+            if (mFence - mIndex > 1) {
+                final int middle = (mIndex + mFence) >>> 1;
+                final Spliterator<EngineIoSocket> prefix = new ShardSpliterator(mIndex, middle);
+                mIndex = middle;
+                return prefix;
+            }
+            if (mCurrent == null && mIndex < mFence) {
+                mCurrent = mShards[mIndex++].values().spliterator();
+            }
+            return (mCurrent != null)? mCurrent.trySplit() : null;
+        }
+
+        @Override
+        public long estimateSize() {
+            long size = (mCurrent != null)? mCurrent.estimateSize() : 0;
+            for (int i = mIndex; i < mFence; i++) {
+                size += mShards[i].size();
+            }
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.CONCURRENT | Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
+}
@@ -3,12 +3,17 @@ package io.socket.engineio.server;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Adapter between different WebSocket implementations and Engine.IO.
  */
 public abstract class EngineIoWebSocket extends Emitter {
 
+    private volatile boolean mPerMessageDeflateEnabled;
+    private volatile int mPerMessageDeflateThreshold;
+
     /**
      * Get the query of the initial HTTP request.
      *
@@ -23,6 +28,17 @@ public abstract class EngineIoWebSocket extends Emitter {
      */
     public abstract Map<String, List<String>> getConnectionHeaders();
 
+    /**
+     * Get the remote address of the client.
+     * Implementations should override this for
+     * {@link EngineIoServerOptions#setMaxConnectionsPerAddress(int)} to apply to WebSocket connections.
+     *
+     * @return Remote IP address or null if unknown.
+     */
+    public String getRemoteAddress() {
+        return null;
+    }
+
     /**
      * Write a string to the WebSocket and send to remote client.
      *
@@ -39,6 +55,88 @@ public abstract class EngineIoWebSocket extends Emitter {
      */
     public abstract void write(byte[] message) throws IOException;
 
+    /**
+     * Write a string to the WebSocket without waiting for it to be sent.
+     * The default implementation calls {@link #write(String)} and returns a completed stage.
+     * Implementations should override this to use the async API of the underlying WebSocket.
+     *
+     * @param message String payload to send.
+     * @return Stage completed when the message is sent or exceptionally on write error.
+     */
+    public CompletionStage<Void> writeAsync(String message) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            write(message);
+            future.complete(null);
+        } catch (IOException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * Write a byte array to the WebSocket without waiting for it to be sent.
+     * The default implementation calls {@link #write(byte[])} and returns a completed stage.
+     * Implementations should override this to use the async API of the underlying WebSocket.
+     *
+     * @param message Binary payload to send.
+     * @return Stage completed when the message is sent or exceptionally on write error.
+     */
+    public CompletionStage<Void> writeAsync(byte[] message) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            write(message);
+            future.complete(null);
+        } catch (IOException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * Write multiple messages to the WebSocket as one batch.
+     * Messages must be sent in order. The default implementation writes them one after
+     * another with {@link #writeAsync(String)} and {@link #writeAsync(byte[])}.
+     * Implementations can override this to use batch writes of the underlying WebSocket
+     * and flush only once.
+     *
+     * @param messages Messages to send, each either a String or a byte array.
+     * @return Stage completed when all messages are sent or exceptionally on write error.
+     */
+    public CompletionStage<Void> writeBatch(List<Object> messages) {
+        CompletionStage<Void> writeStage = CompletableFuture.completedFuture(null);
+        for (Object message : messages) {
+            if (message instanceof String) {
+                writeStage = writeStage.thenCompose(ignore -> writeAsync((String) message));
+            } else if (message instanceof byte[]) {
+                writeStage = writeStage.thenCompose(ignore -> writeAsync((byte[]) message));
+            }
+        }
+        return writeStage;
+    }
+
+    /**
+     * Check if a message should be sent compressed.
+     * Implementations which can enable compression per message, for example with the
+     * 'permessage-deflate' extension, should call this from the write methods. Whether the
+     * extension should be negotiated at all is given by
+     * {@link EngineIoServerOptions#isPerMessageDeflateEnabled()}.
+     *
+     * @param messageSize Size of the message, in characters for text and bytes for binary.
+     * @return True if per-message deflate is enabled and the message is not below the threshold.
+     */
+    public boolean isCompressionAllowed(int messageSize) {
+        return mPerMessageDeflateEnabled && messageSize >= mPerMessageDeflateThreshold;
+    }
+
+    /**
+     * Set the compression hints from the server options.
+     */
+    void setCompressionHints(boolean perMessageDeflateEnabled, int perMessageDeflateThreshold) {
+        mPerMessageDeflateEnabled = perMessageDeflateEnabled;
+        mPerMessageDeflateThreshold = perMessageDeflateThreshold;
+    }
+
     /**
      * Close the WebSocket.
      */
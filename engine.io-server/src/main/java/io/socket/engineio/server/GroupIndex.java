@@ -0,0 +1,79 @@
+package io.socket.engineio.server;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of group memberships of sockets.
+ *
+ * Memberships are kept in both directions so that sending to a group reads a single set and
+ * closing a socket only visits the groups it joined. Each set is updated atomically inside
+ * its map entry, so sockets joining and leaving different groups never contend, and empty
+ * sets are dropped.
+ */
+final class GroupIndex {
+
+    private final ConcurrentHashMap<String, Set<EngineIoSocket>> mMembers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<EngineIoSocket, Set<String>> mGroups = new ConcurrentHashMap<>();
+
+    void join(EngineIoSocket socket, String group) {
+        mGroups.compute(socket, (key, groups) -> {
+            if (groups == null) {
+                groups = ConcurrentHashMap.newKeySet();
+            }
+            groups.add(group);
+            return groups;
+        });
+        mMembers.compute(group, (key, members) -> {
+            if (members == null) {
+                members = ConcurrentHashMap.newKeySet();
+            }
+            members.add(socket);
+            return members;
+        });
+
+        // A socket closing concurrently might have already left all groups
+        if (socket.getReadyState() == ReadyState.CLOSED) {
+            leave(socket, group);
+        }
+    }
+
+    void leave(EngineIoSocket socket, String group) {
+        mGroups.computeIfPresent(socket, (key, groups) -> {
+            groups.remove(group);
+            return groups.isEmpty()? null : groups;
+        });
+        removeMember(group, socket);
+    }
+
+    void leaveAll(EngineIoSocket socket) {
+        final Set<String> groups = mGroups.remove(socket);
+        if (groups != null) {
+            for (String group : groups) {
+                removeMember(group, socket);
+            }
+        }
+    }
+
+    Set<EngineIoSocket> getMembers(String group) {
+        final Set<EngineIoSocket> members = mMembers.get(group);
+        return (members != null)? Collections.unmodifiableSet(members) : Collections.emptySet();
+    }
+
+    Set<String> getGroups(EngineIoSocket socket) {
+        final Set<String> groups = mGroups.get(socket);
+        return (groups != null)? Collections.unmodifiableSet(groups) : Collections.emptySet();
+    }
+
+    Set<String> getGroupNames() {
+        return Collections.unmodifiableSet(mMembers.keySet());
+    }
+
+    private void removeMember(String group, EngineIoSocket socket) {
+        mMembers.computeIfPresent(group, (key, members) -> {
+            members.remove(socket);
+            return members.isEmpty()? null : members;
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package io.socket.engineio.server;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Predicate;
+
+/**
+ * Copy-on-write array of listeners for one event.
+ * Emitting iterates a plain array without locking or allocating.
+ */
+final class ListenerArray<T> {
+
+    private static final Object[] EMPTY = new Object[0];
+
+    // Every socket holds several arrays, a field updater saves an atomic object per array
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ListenerArray, Object[]> LISTENERS =
+            AtomicReferenceFieldUpdater.newUpdater(ListenerArray.class, Object[].class, "mListeners");
+
+    private volatile Object[] mListeners = EMPTY;
+
+    /**
+     * Gets the current listeners. The returned array must not be modified.
+     */
+    Object[] get() {
+        return mListeners;
+    }
+
+    boolean isEmpty() {
+        return mListeners.length == 0;
+    }
+
+    void add(T listener) {
+        while (true) {
+            final Object[] current = mListeners;
+            final Object[] updated = new Object[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, current.length);
+            updated[current.length] = listener;
+            if (LISTENERS.compareAndSet(this, current, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Remove the first listener matching the predicate.
+     *
+     * @param matcher Predicate selecting the listener.
+     * @return True if a listener was removed.
+     */
+    boolean remove(Predicate<Object> matcher) {
+        while (true) {
+            final Object[] current = mListeners;
+            int index = -1;
+            for (int i = 0; i < current.length; i++) {
+                if (matcher.test(current[i])) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                return false;
+            }
+
+            final Object[] updated;
+            if (current.length == 1) {
+                updated = EMPTY;
+            } else {
+                updated = new Object[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, index);
+                System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            }
+            if (LISTENERS.compareAndSet(this, current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    void clear() {
+        mListeners = EMPTY;
+    }
+}
@@ -1,19 +1,32 @@
 package io.socket.engineio.server;
 
+import io.socket.engineio.server.utils.JsonUtils;
+
 enum ServerErrors {
     UNKNOWN_TRANSPORT(0, "Transport unknown"),
     UNKNOWN_SID(1, "Session ID unknown"),
     BAD_HANDSHAKE_METHOD(2, "Bad handshake method"),
     BAD_REQUEST(3, "Bad request"),
     FORBIDDEN(4, "Forbidden"),
-    UNSUPPORTED_PROTOCOL_VERSION(5, "Unsupported protocol version");
+    UNSUPPORTED_PROTOCOL_VERSION(5, "Unsupported protocol version"),
+    TOO_MANY_CONNECTIONS(6, "Too many connections", 503),
+    TOO_MANY_CONNECTIONS_FROM_ADDRESS(7, "Too many connections from address", 429),
+    TOO_MANY_HANDSHAKES(8, "Too many handshakes", 503);
 
     private final int mCode;
     private final String mMessage;
+    private final int mStatus;
+    private final String mJson;
 
     ServerErrors(int code, String message) {
+        this(code, message, 400);
+    }
+
+    ServerErrors(int code, String message, int status) {
         mCode = code;
         mMessage = message;
+        mStatus = status;
+        mJson = "{\"code\": " + code + ", \"message\": \"" + JsonUtils.escape(message) + "\"}";
     }
 
     public int getCode() {
@@ -23,4 +36,18 @@ enum ServerErrors {
     public String getMessage() {
         return mMessage;
     }
-}
\ No newline at end of file
+
+    /**
+     * Gets the HTTP status of responses with this error.
+     */
+    public int getStatus() {
+        return mStatus;
+    }
+
+    /**
+     * Gets the pre-formatted JSON body of responses with this error.
+     */
+    public String getJson() {
+        return mJson;
+    }
+}
@@ -1,5 +1,6 @@
 package io.socket.engineio.server;
 
+import io.socket.engineio.server.jfr.JfrEvents;
 import io.socket.engineio.server.parser.Packet;
 import io.socket.engineio.server.parser.Parser;
 import jakarta.servlet.http.HttpServletRequest;
@@ -99,6 +100,9 @@ public abstract class Transport extends Emitter {
      * @param packet Packet received by transport.
      */
     protected void onPacket(Packet<?> packet) {
+        if (packet.type.equals(Packet.ERROR)) {
+            JfrEvents.parserError(getName());
+        }
         emit("packet", packet);
     }
 
@@ -0,0 +1,27 @@
+package io.socket.engineio.server;
+
+/**
+ * What a socket does with a message packet that does not fit into its write buffer.
+ * Control packets such as ping, pong and close are never subject to the policy.
+ */
+public enum WriteBufferOverflowPolicy {
+    /**
+     * The sending thread waits until the buffer is flushed or the socket is closed.
+     * A send from a thread holding the transport lock, such as a message listener called
+     * inline while a polling request is processed, cannot wait for a flush. Its packet is
+     * buffered beyond the limit and sent with the next flush.
+     */
+    BLOCK,
+    /**
+     * The oldest buffered message packets are discarded to make room.
+     */
+    DROP_OLDEST,
+    /**
+     * The new packet is discarded.
+     */
+    DROP_NEWEST,
+    /**
+     * The socket is closed with reason "write buffer overflow".
+     */
+    CLOSE
+}
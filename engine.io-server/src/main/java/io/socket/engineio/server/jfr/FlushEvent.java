@@ -0,0 +1,28 @@
+package io.socket.engineio.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.socket.engineio.Flush")
+@Label("Flush")
+@Category("Engine.IO")
+@Description("A socket flushed buffered packets to its transport.")
+final class FlushEvent extends Event {
+
+    @Label("Session ID")
+    String sid;
+
+    @Label("Transport")
+    String transport;
+
+    @Label("Packet Count")
+    int packetCount;
+
+    @Label("Data Size")
+    @DataAmount
+    long bytes;
+}
@@ -0,0 +1,116 @@
+package io.socket.engineio.server.jfr;
+
+/**
+ * Emits engine.io events to JDK Flight Recorder.
+ *
+ * All methods do nothing if the JVM does not provide the jdk.jfr module. Events are only
+ * populated and committed while a recording has them enabled. Events with a duration are
+ * started by a begin method which returns an opaque token, or null if the event is not
+ * being recorded, and committed by passing the token to the matching end method.
+ */
+public final class JfrEvents {
+
+    private static final boolean AVAILABLE = isJfrAvailable();
+
+    private JfrEvents() {
+    }
+
+    /**
+     * Record a socket which completed its handshake.
+     */
+    public static void socketOpen(String sid, String transport, int protocolVersion) {
+        if (AVAILABLE) {
+            Recorder.socketOpen(sid, transport, protocolVersion);
+        }
+    }
+
+    /**
+     * Record a closed socket.
+     */
+    public static void socketClose(String sid, String transport, String reason, String description) {
+        if (AVAILABLE) {
+            Recorder.socketClose(sid, transport, reason, description);
+        }
+    }
+
+    /**
+     * Start timing a transport upgrade.
+     *
+     * @return Token for {@link #endUpgrade} or null if not recording.
+     */
+    public static Object beginUpgrade() {
+        return AVAILABLE? Recorder.beginUpgrade() : null;
+    }
+
+    /**
+     * Record a finished or failed transport upgrade.
+     */
+    public static void endUpgrade(Object token, String sid, String fromTransport, String toTransport, boolean successful) {
+        if (token != null) {
+            Recorder.endUpgrade(token, sid, fromTransport, toTransport, successful);
+        }
+    }
+
+    /**
+     * Start timing a held polling request.
+     *
+     * @return Token for {@link #endPollingRequest} or null if not recording.
+     */
+    public static Object beginPollingRequest() {
+        return AVAILABLE? Recorder.beginPollingRequest() : null;
+    }
+
+    /**
+     * Record the response of a held polling request.
+     */
+    public static void endPollingRequest(Object token, long bytes) {
+        if (token != null) {
+            Recorder.endPollingRequest(token, bytes);
+        }
+    }
+
+    /**
+     * Start timing a flush.
+     *
+     * @return Token for {@link #endFlush} or null if not recording.
+     */
+    public static Object beginFlush() {
+        return AVAILABLE? Recorder.beginFlush() : null;
+    }
+
+    /**
+     * Record a flush of buffered packets.
+     */
+    public static void endFlush(Object token, String sid, String transport, int packetCount, long bytes) {
+        if (token != null) {
+            Recorder.endFlush(token, sid, transport, packetCount, bytes);
+        }
+    }
+
+    /**
+     * Record a socket closing due to ping timeout.
+     */
+    public static void pingTimeout(String sid) {
+        if (AVAILABLE) {
+            Recorder.pingTimeout(sid);
+        }
+    }
+
+    /**
+     * Record data which could not be decoded.
+     */
+    public static void parserError(String transport) {
+        if (AVAILABLE) {
+            Recorder.parserError(transport);
+        }
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError ignore) {
+            return false;
+        }
+    }
+}
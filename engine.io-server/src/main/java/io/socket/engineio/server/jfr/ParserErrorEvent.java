@@ -0,0 +1,17 @@
+package io.socket.engineio.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.socket.engineio.ParserError")
+@Label("Parser Error")
+@Category("Engine.IO")
+@Description("A transport received data which could not be decoded.")
+final class ParserErrorEvent extends Event {
+
+    @Label("Transport")
+    String transport;
+}
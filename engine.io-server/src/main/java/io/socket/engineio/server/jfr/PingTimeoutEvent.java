@@ -0,0 +1,17 @@
+package io.socket.engineio.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.socket.engineio.PingTimeout")
+@Label("Ping Timeout")
+@Category("Engine.IO")
+@Description("A socket was closed because the client did not answer in time.")
+final class PingTimeoutEvent extends Event {
+
+    @Label("Session ID")
+    String sid;
+}
@@ -0,0 +1,19 @@
+package io.socket.engineio.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.socket.engineio.PollingRequest")
+@Label("Polling Request")
+@Category("Engine.IO")
+@Description("A polling GET request was held open. The duration spans from the request to its response.")
+final class PollingRequestEvent extends Event {
+
+    @Label("Response Size")
+    @DataAmount
+    long bytes;
+}
@@ -0,0 +1,108 @@
+package io.socket.engineio.server.jfr;
+
+/**
+ * Creates and commits the event classes.
+ * Only loaded once {@link JfrEvents} has found jdk.jfr to be available.
+ */
+final class Recorder {
+
+    private Recorder() {
+    }
+
+    static void socketOpen(String sid, String transport, int protocolVersion) {
+        final SocketOpenEvent event = new SocketOpenEvent();
+        if (event.shouldCommit()) {
+            event.sid = sid;
+            event.transport = transport;
+            event.protocolVersion = protocolVersion;
+            event.commit();
+        }
+    }
+
+    static void socketClose(String sid, String transport, String reason, String description) {
+        final SocketCloseEvent event = new SocketCloseEvent();
+        if (event.shouldCommit()) {
+            event.sid = sid;
+            event.transport = transport;
+            event.reason = reason;
+            event.description = description;
+            event.commit();
+        }
+    }
+
+    static Object beginUpgrade() {
+        final UpgradeEvent event = new UpgradeEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    static void endUpgrade(Object token, String sid, String fromTransport, String toTransport, boolean successful) {
+        final UpgradeEvent event = (UpgradeEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.sid = sid;
+            event.fromTransport = fromTransport;
+            event.toTransport = toTransport;
+            event.successful = successful;
+            event.commit();
+        }
+    }
+
+    static Object beginPollingRequest() {
+        final PollingRequestEvent event = new PollingRequestEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    static void endPollingRequest(Object token, long bytes) {
+        final PollingRequestEvent event = (PollingRequestEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    static Object beginFlush() {
+        final FlushEvent event = new FlushEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    static void endFlush(Object token, String sid, String transport, int packetCount, long bytes) {
+        final FlushEvent event = (FlushEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.sid = sid;
+            event.transport = transport;
+            event.packetCount = packetCount;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    static void pingTimeout(String sid) {
+        final PingTimeoutEvent event = new PingTimeoutEvent();
+        if (event.shouldCommit()) {
+            event.sid = sid;
+            event.commit();
+        }
+    }
+
+    static void parserError(String transport) {
+        final ParserErrorEvent event = new ParserErrorEvent();
+        if (event.shouldCommit()) {
+            event.transport = transport;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package io.socket.engineio.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.socket.engineio.SocketClose")
+@Label("Socket Close")
+@Category("Engine.IO")
+@Description("A socket was closed.")
+final class SocketCloseEvent extends Event {
+
+    @Label("Session ID")
+    String sid;
+
+    @Label("Transport")
+    String transport;
+
+    @Label("Reason")
+    String reason;
+
+    @Label("Description")
+    String description;
+}
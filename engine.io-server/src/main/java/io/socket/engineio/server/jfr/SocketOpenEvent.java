@@ -0,0 +1,23 @@
+package io.socket.engineio.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.socket.engineio.SocketOpen")
+@Label("Socket Open")
+@Category("Engine.IO")
+@Description("A socket completed its handshake.")
+final class SocketOpenEvent extends Event {
+
+    @Label("Session ID")
+    String sid;
+
+    @Label("Transport")
+    String transport;
+
+    @Label("Protocol Version")
+    int protocolVersion;
+}
@@ -0,0 +1,26 @@
+package io.socket.engineio.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.socket.engineio.Upgrade")
+@Label("Transport Upgrade")
+@Category("Engine.IO")
+@Description("A socket attempted to upgrade its transport. The duration spans from the upgrade request to its completion.")
+final class UpgradeEvent extends Event {
+
+    @Label("Session ID")
+    String sid;
+
+    @Label("From Transport")
+    String fromTransport;
+
+    @Label("To Transport")
+    String toTransport;
+
+    @Label("Successful")
+    boolean successful;
+}
@@ -0,0 +1,4 @@
+/**
+ * JDK Flight Recorder events emitted by engine.io.
+ */
+package io.socket.engineio.server.jfr;
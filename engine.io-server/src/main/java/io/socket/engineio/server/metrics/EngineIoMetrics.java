@@ -0,0 +1,121 @@
+package io.socket.engineio.server.metrics;
+
+/**
+ * Receives instrumentation events from the server, sockets and transports.
+ *
+ * All methods do nothing by default so that implementations only override what they need.
+ * Methods are called from many threads on hot paths and must be thread safe and cheap.
+ * Byte counts of text frames are counted in characters.
+ */
+public interface EngineIoMetrics {
+
+    /**
+     * Metrics implementation which ignores all events.
+     */
+    EngineIoMetrics NOOP = new EngineIoMetrics() {};
+
+    /**
+     * Called when a client completes a handshake.
+     *
+     * @param transport Name of the transport used for the handshake.
+     * @param protocolVersion Protocol version of the client.
+     */
+    default void onHandshake(String transport, int protocolVersion) {
+    }
+
+    /**
+     * Called when a handshake is rejected by admission control.
+     *
+     * @param transport Name of the transport used for the handshake.
+     * @param reason Reason of rejection.
+     */
+    default void onHandshakeRejected(String transport, String reason) {
+    }
+
+    /**
+     * Called when a socket is opened.
+     *
+     * @param transport Name of the transport of the socket.
+     * @param protocolVersion Protocol version of the socket.
+     */
+    default void onSocketOpen(String transport, int protocolVersion) {
+    }
+
+    /**
+     * Called when a socket is closed.
+     *
+     * @param transport Name of the transport of the socket at close time.
+     * @param protocolVersion Protocol version of the socket.
+     * @param reason Reason of closure.
+     */
+    default void onSocketClose(String transport, int protocolVersion, String reason) {
+    }
+
+    /**
+     * Called when a socket is upgraded to another transport.
+     *
+     * @param fromTransport Name of the previous transport.
+     * @param toTransport Name of the new transport.
+     * @param protocolVersion Protocol version of the socket.
+     */
+    default void onUpgrade(String fromTransport, String toTransport, int protocolVersion) {
+    }
+
+    /**
+     * Called for each packet received from a client.
+     *
+     * @param transport Name of the transport the packet was received on.
+     * @param packetType Type of the packet.
+     */
+    default void onPacketReceived(String transport, String packetType) {
+    }
+
+    /**
+     * Called when a socket flushes buffered packets to its transport.
+     *
+     * @param transport Name of the transport.
+     * @param packetCount Number of packets flushed.
+     */
+    default void onFlush(String transport, int packetCount) {
+    }
+
+    /**
+     * Called when encoded data is received by a transport.
+     *
+     * @param transport Name of the transport.
+     * @param bytes Number of bytes received.
+     */
+    default void onBytesReceived(String transport, long bytes) {
+    }
+
+    /**
+     * Called when encoded data is written by a transport.
+     *
+     * @param transport Name of the transport.
+     * @param bytes Number of bytes written.
+     */
+    default void onBytesSent(String transport, long bytes) {
+    }
+
+    /**
+     * Called when a packet is buffered because the transport is not writable.
+     *
+     * @param depth Number of packets in the write buffer including the new one.
+     */
+    default void onWriteBufferDepth(int depth) {
+    }
+
+    /**
+     * Called when a socket write buffer reaches its limit.
+     */
+    default void onWriteBufferFull() {
+    }
+
+    /**
+     * Called when a pong is received for a ping sent by the server.
+     *
+     * @param nanos Round trip time in nanoseconds.
+     */
+    default void onPingRoundTrip(long nanos) {
+    }
+}
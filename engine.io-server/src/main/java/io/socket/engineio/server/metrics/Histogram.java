@@ -0,0 +1,96 @@
+package io.socket.engineio.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free histogram of non-negative values with power of two buckets.
+ *
+ * Bucket i holds values in the range [2^(i-1), 2^i - 1] and bucket 0 holds zero,
+ * so percentiles are accurate to within a factor of two.
+ */
+public final class Histogram {
+
+    private static final int BUCKET_COUNT = 64;
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder mCount = new LongAdder();
+    private final LongAdder mSum = new LongAdder();
+    private final AtomicLong mMax = new AtomicLong(0);
+
+    /**
+     * Record a value. Negative values are recorded as zero.
+     *
+     * @param value Value to record.
+     */
+    public void record(long value) {
+        final long v = Math.max(value, 0);
+
+        mBuckets.incrementAndGet(BUCKET_COUNT - Long.numberOfLeadingZeros(v));
+        mCount.increment();
+        mSum.add(v);
+
+        long max = mMax.get();
+        while (v > max && !mMax.compareAndSet(max, v)) {
+            max = mMax.get();
+        }
+    }
+
+    /**
+     * Gets the number of recorded values.
+     */
+    public long getCount() {
+        return mCount.sum();
+    }
+
+    /**
+     * Gets the sum of recorded values.
+     */
+    public long getSum() {
+        return mSum.sum();
+    }
+
+    /**
+     * Gets the largest recorded value.
+     */
+    public long getMax() {
+        return mMax.get();
+    }
+
+    /**
+     * Gets the mean of recorded values or 0 if none were recorded.
+     */
+    public double getMean() {
+        final long count = getCount();
+        return (count == 0)? 0 : ((double) getSum() / count);
+    }
+
+    /**
+     * Gets an upper bound of the value at the percentile.
+     *
+     * @param percentile Percentile between 0 and 100.
+     * @return Upper bound of the bucket containing the percentile or 0 if no values were recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        final long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = mBuckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        final long target = Math.max(1, (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min((i == BUCKET_COUNT - 1)? Long.MAX_VALUE : ((1L << i) - 1), getMax());
+            }
+        }
+        return getMax();
+    }
+}
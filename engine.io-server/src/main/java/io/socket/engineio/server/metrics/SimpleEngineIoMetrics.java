@@ -0,0 +1,197 @@
+package io.socket.engineio.server.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics implementation keeping counters and histograms in memory.
+ *
+ * Values can be read at any time, for example by a periodic reporter
+ * forwarding them to a monitoring system.
+ */
+public final class SimpleEngineIoMetrics implements EngineIoMetrics {
+
+    private final ConcurrentMap<String, LongAdder> mActiveSockets = new ConcurrentHashMap<>();
+    private final LongAdder mHandshakes = new LongAdder();
+    private final LongAdder mRejectedHandshakes = new LongAdder();
+    private final LongAdder mUpgrades = new LongAdder();
+    private final LongAdder mPacketsReceived = new LongAdder();
+    private final LongAdder mPacketsSent = new LongAdder();
+    private final LongAdder mBytesReceived = new LongAdder();
+    private final LongAdder mBytesSent = new LongAdder();
+    private final LongAdder mWriteBufferOverflows = new LongAdder();
+    private final Histogram mFlushSizes = new Histogram();
+    private final Histogram mWriteBufferDepths = new Histogram();
+    private final Histogram mPingRoundTrips = new Histogram();
+
+    @Override
+    public void onHandshake(String transport, int protocolVersion) {
+        mHandshakes.increment();
+    }
+
+    @Override
+    public void onHandshakeRejected(String transport, String reason) {
+        mRejectedHandshakes.increment();
+    }
+
+    @Override
+    public void onSocketOpen(String transport, int protocolVersion) {
+        activeSockets(transport, protocolVersion).increment();
+    }
+
+    @Override
+    public void onSocketClose(String transport, int protocolVersion, String reason) {
+        activeSockets(transport, protocolVersion).decrement();
+    }
+
+    @Override
+    public void onUpgrade(String fromTransport, String toTransport, int protocolVersion) {
+        mUpgrades.increment();
+        activeSockets(fromTransport, protocolVersion).decrement();
+        activeSockets(toTransport, protocolVersion).increment();
+    }
+
+    @Override
+    public void onPacketReceived(String transport, String packetType) {
+        mPacketsReceived.increment();
+    }
+
+    @Override
+    public void onFlush(String transport, int packetCount) {
+        mPacketsSent.add(packetCount);
+        mFlushSizes.record(packetCount);
+    }
+
+    @Override
+    public void onBytesReceived(String transport, long bytes) {
+        mBytesReceived.add(bytes);
+    }
+
+    @Override
+    public void onBytesSent(String transport, long bytes) {
+        mBytesSent.add(bytes);
+    }
+
+    @Override
+    public void onWriteBufferDepth(int depth) {
+        mWriteBufferDepths.record(depth);
+    }
+
+    @Override
+    public void onWriteBufferFull() {
+        mWriteBufferOverflows.increment();
+    }
+
+    @Override
+    public void onPingRoundTrip(long nanos) {
+        mPingRoundTrips.record(nanos);
+    }
+
+    /**
+     * Gets the number of open sockets on a transport and protocol version.
+     *
+     * @param transport Name of the transport.
+     * @param protocolVersion Protocol version.
+     */
+    public long getActiveSockets(String transport, int protocolVersion) {
+        final LongAdder count = mActiveSockets.get(key(transport, protocolVersion));
+        return (count != null)? count.sum() : 0;
+    }
+
+    /**
+     * Gets the number of open sockets across all transports and protocol versions.
+     */
+    public long getActiveSockets() {
+        long total = 0;
+        for (LongAdder count : mActiveSockets.values()) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Gets the number of completed handshakes.
+     */
+    public long getHandshakes() {
+        return mHandshakes.sum();
+    }
+
+    /**
+     * Gets the number of handshakes rejected by admission control.
+     */
+    public long getRejectedHandshakes() {
+        return mRejectedHandshakes.sum();
+    }
+
+    /**
+     * Gets the number of transport upgrades.
+     */
+    public long getUpgrades() {
+        return mUpgrades.sum();
+    }
+
+    /**
+     * Gets the number of packets received from clients.
+     */
+    public long getPacketsReceived() {
+        return mPacketsReceived.sum();
+    }
+
+    /**
+     * Gets the number of packets flushed to transports.
+     */
+    public long getPacketsSent() {
+        return mPacketsSent.sum();
+    }
+
+    /**
+     * Gets the number of encoded bytes received by transports.
+     */
+    public long getBytesReceived() {
+        return mBytesReceived.sum();
+    }
+
+    /**
+     * Gets the number of encoded bytes written by transports.
+     */
+    public long getBytesSent() {
+        return mBytesSent.sum();
+    }
+
+    /**
+     * Gets the number of times a write buffer reached its limit.
+     */
+    public long getWriteBufferOverflows() {
+        return mWriteBufferOverflows.sum();
+    }
+
+    /**
+     * Gets the histogram of packets per flush.
+     */
+    public Histogram getFlushSizes() {
+        return mFlushSizes;
+    }
+
+    /**
+     * Gets the histogram of write buffer depths seen when buffering packets.
+     */
+    public Histogram getWriteBufferDepths() {
+        return mWriteBufferDepths;
+    }
+
+    /**
+     * Gets the histogram of ping round trip times in nanoseconds.
+     */
+    public Histogram getPingRoundTrips() {
+        return mPingRoundTrips;
+    }
+
+    private LongAdder activeSockets(String transport, int protocolVersion) {
+        return mActiveSockets.computeIfAbsent(key(transport, protocolVersion), key -> new LongAdder());
+    }
+
+    private static String key(String transport, int protocolVersion) {
+        return transport + '/' + protocolVersion;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Metrics interface and a dependency free implementation.
+ */
+package io.socket.engineio.server.metrics;
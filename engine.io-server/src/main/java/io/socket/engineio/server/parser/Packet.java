@@ -1,5 +1,7 @@
 package io.socket.engineio.server.parser;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 public final class Packet<T> {
 
     static final public String OPEN = "open";
@@ -11,15 +13,115 @@ public final class Packet<T> {
     static final public String NOOP = "noop";
     static final public String ERROR = "error";
 
+    /**
+     * Number of cached encodings, two per protocol for each of text and binary transports.
+     */
+    private static final int ENCODED_COUNT = 8;
+
     public String type;
     public T data;
 
+    /**
+     * Snapshot and cached encodings of this packet.
+     * Only set for packets created by {@link Parser#preEncode(Packet)}.
+     */
+    final Encodings encoded;
+
+    /**
+     * Wire type of {@link #type}, resolved when the packet is created.
+     * Null if the type is not sent over the wire.
+     */
+    private PacketType packetType;
+
     public Packet(String type) {
         this(type, null);
     }
 
     public Packet(String type, T data) {
+        this(type, data, false);
+    }
+
+    Packet(String type, T data, boolean preEncoded) {
         this.type = type;
         this.data = data;
+        this.packetType = PacketType.fromName(type);
+        this.encoded = preEncoded? new Encodings(type, data, packetType) : null;
+    }
+
+    Packet(PacketType type, T data) {
+        this.type = type.getName();
+        this.data = data;
+        this.packetType = type;
+        this.encoded = null;
+    }
+
+    /**
+     * Gets the wire type of the packet.
+     * Resolved again only if {@link #type} was assigned since.
+     *
+     * @return Packet type or null if the type is not sent over the wire.
+     */
+    PacketType getPacketType() {
+        if (encoded != null) {
+            return encoded.packetType;
+        }
+
+        PacketType packetType = this.packetType;
+        if (packetType == null || packetType.getName() != type) {
+            packetType = PacketType.fromName(type);
+            this.packetType = packetType;
+        }
+        return packetType;
+    }
+
+    /**
+     * Gets the data the packet is encoded with.
+     * For pre-encoded packets this is the snapshot taken when the packet was created.
+     */
+    Object getEncodedData() {
+        return (encoded != null)? encoded.data : data;
+    }
+
+    /**
+     * Get the cached encoding at index or store the one supplied by the encoder.
+     * Concurrent callers may both encode but all of them observe the same stored value.
+     */
+    Object getEncoded(int index, Encoder encoder) {
+        final AtomicReferenceArray<Object> values = encoded.values;
+        Object value = values.get(index);
+        if (value == null) {
+            values.compareAndSet(index, null, encoder.encode());
+            value = values.get(index);
+        }
+        return value;
+    }
+
+    /**
+     * Creates a plain packet with the type and data of the snapshot to encode from.
+     */
+    Packet<Object> copyEncoded() {
+        return new Packet<>(encoded.type, encoded.data);
+    }
+
+    interface Encoder {
+        Object encode();
+    }
+
+    /**
+     * Type and data of a pre-encoded packet copied when it is created, so that the cached
+     * encodings cannot go stale when the public fields of the shared packet are assigned.
+     */
+    static final class Encodings {
+
+        private final String type;
+        private final Object data;
+        private final PacketType packetType;
+        private final AtomicReferenceArray<Object> values = new AtomicReferenceArray<>(ENCODED_COUNT);
+
+        Encodings(String type, Object data, PacketType packetType) {
+            this.type = type;
+            this.data = (data instanceof byte[])? ((byte[]) data).clone() : data;
+            this.packetType = packetType;
+        }
     }
 }
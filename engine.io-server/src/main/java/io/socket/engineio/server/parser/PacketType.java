@@ -0,0 +1,124 @@
+package io.socket.engineio.server.parser;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Packet types which can be sent over the wire, with their protocol codes.
+ *
+ * Parsers use the array indexed tables of this enum instead of {@link Parser#PACKETS}
+ * and {@link Parser#PACKETS_REVERSE} so that encoding and decoding neither box, hash nor
+ * allocate strings. {@link Packet#type} keeps using the String constants of {@link Packet},
+ * each packet caches its type when created.
+ */
+public enum PacketType {
+    OPEN(Packet.OPEN, 0),
+    CLOSE(Packet.CLOSE, 1),
+    PING(Packet.PING, 2),
+    PONG(Packet.PONG, 3),
+    MESSAGE(Packet.MESSAGE, 4),
+    UPGRADE(Packet.UPGRADE, 5),
+    NOOP(Packet.NOOP, 6);
+
+    private static final PacketType[] VALUES = values();
+    private static final PacketType[] BY_CODE = new PacketType[VALUES.length];
+    private static final Map<String, PacketType> BY_NAME = new HashMap<>();
+
+    static {
+        for (PacketType type : VALUES) {
+            BY_CODE[type.mCode] = type;
+            BY_NAME.put(type.mName, type);
+        }
+    }
+
+    private final String mName;
+    private final int mCode;
+    private final String mCodeString;
+
+    PacketType(String name, int code) {
+        mName = name;
+        mCode = code;
+        mCodeString = String.valueOf(code);
+    }
+
+    /**
+     * Gets the name used in {@link Packet#type}.
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Gets the protocol code of the type.
+     */
+    public int getCode() {
+        return mCode;
+    }
+
+    /**
+     * Gets the protocol code as used in text encoding.
+     */
+    public String getCodeString() {
+        return mCodeString;
+    }
+
+    /**
+     * Gets the type with the protocol code.
+     *
+     * @param code Protocol code.
+     * @return Packet type or null if the code is not valid.
+     */
+    public static PacketType fromCode(int code) {
+        return (code >= 0 && code < BY_CODE.length)? BY_CODE[code] : null;
+    }
+
+    /**
+     * Gets the type of a text encoded protocol code character.
+     *
+     * @param codeChar Protocol code character such as '4'.
+     * @return Packet type or null if the character is not a valid code.
+     */
+    public static PacketType fromCodeChar(char codeChar) {
+        return fromCode(codeChar - '0');
+    }
+
+    /**
+     * Gets the type with the name.
+     *
+     * @param name Packet type name.
+     * @return Packet type or null if the name is not a wire packet type.
+     */
+    public static PacketType fromName(String name) {
+        return (name != null)? BY_NAME.get(name) : null;
+    }
+
+    /**
+     * Gets the type of a received protocol code for decoding.
+     *
+     * @param code Protocol code.
+     * @return Packet type.
+     * @throws IllegalArgumentException If the code is not valid.
+     */
+    static PacketType decode(int code) throws IllegalArgumentException {
+        final PacketType type = fromCode(code);
+        if (type == null) {
+            throw new IllegalArgumentException("Invalid packet type code: " + code);
+        }
+        return type;
+    }
+
+    /**
+     * Gets the type of the packet for encoding.
+     *
+     * @param packet Packet to encode.
+     * @return Packet type.
+     * @throws IllegalArgumentException If the packet type cannot be encoded.
+     */
+    static PacketType of(Packet<?> packet) throws IllegalArgumentException {
+        final PacketType type = packet.getPacketType();
+        if (type == null) {
+            throw new IllegalArgumentException("Invalid packet type: " + packet.type);
+        }
+        return type;
+    }
+}
@@ -1,5 +1,8 @@
 package io.socket.engineio.server.parser;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -7,6 +10,9 @@ import java.util.Map;
 
 public interface Parser {
 
+    /**
+     * Packet type codes by name. Kept for compatibility, parsers use {@link PacketType}.
+     */
     Map<String, Integer> PACKETS = Collections.unmodifiableMap(new HashMap<String, Integer>() {{
         put(Packet.OPEN, 0);
         put(Packet.CLOSE, 1);
@@ -16,6 +22,9 @@ public interface Parser {
         put(Packet.UPGRADE, 5);
         put(Packet.NOOP, 6);
     }});
+    /**
+     * Packet type names by code. Kept for compatibility, parsers use {@link PacketType}.
+     */
     Map<Integer, String> PACKETS_REVERSE = Collections.unmodifiableMap(new HashMap<Integer, String>() {{
         put(0, Packet.OPEN);
         put(1, Packet.CLOSE);
@@ -28,6 +37,16 @@ public interface Parser {
 
     Packet<String> ERROR_PACKET = new Packet<>(Packet.ERROR, "parser error");
 
+    /*
+     * Pre-encoded control packets shared by all sockets.
+     * Each is encoded at most once per protocol version and transport kind.
+     */
+    Packet<String> PING_PACKET = preEncode(new Packet<>(Packet.PING));
+    Packet<String> PONG_PACKET = preEncode(new Packet<>(Packet.PONG));
+    Packet<String> PROBE_PONG_PACKET = preEncode(new Packet<>(Packet.PONG, "probe"));
+    Packet<String> NOOP_PACKET = preEncode(new Packet<>(Packet.NOOP));
+    Packet<String> CLOSE_PACKET = preEncode(new Packet<>(Packet.CLOSE));
+
     Parser PROTOCOL_V3 = new ParserV3();
     Parser PROTOCOL_V4 = new ParserV4();
 
@@ -36,14 +55,112 @@ public interface Parser {
     }
 
     interface DecodePayloadCallback<T> {
+
+        /**
+         * Called with each decoded packet of a payload.
+         *
+         * @param packet The decoded packet.
+         * @param index Index of the packet in the payload.
+         * @param total Number of packets in the payload, or -1 if unknown because the payload
+         *              is decoded from a stream. The last packet cannot be recognized by its index then.
+         * @return True to continue decoding, false to stop.
+         */
         boolean call(Packet<T> packet, int index, int total);
     }
 
+    /**
+     * Decoder for a payload which is received in chunks.
+     */
+    interface PayloadDecoder {
+
+        /**
+         * Decode the next chunk of the payload.
+         * Packets completed by the chunk are passed to the callback before this returns.
+         *
+         * @param buffer Buffer containing the chunk.
+         * @param offset Offset of the chunk in buffer.
+         * @param length Length of the chunk.
+         * @return False if the callback stopped decoding, in which case later chunks are ignored.
+         */
+        boolean write(byte[] buffer, int offset, int length);
+
+        /**
+         * Decode the rest of the payload once all chunks have been written.
+         */
+        void end();
+    }
+
+    /**
+     * Create a copy of the packet which caches its encoded forms.
+     * The packet is encoded at most once per protocol version and transport kind and the
+     * encoded form is shared by every socket it is sent to.
+     *
+     * The type and data are copied, so later assignments to the fields of either packet
+     * do not change what is sent.
+     *
+     * @param packet The packet to copy.
+     * @param <T> Type of packet data.
+     * @return Packet with cached encodings or the same packet if already pre-encoded.
+     */
+    static <T> Packet<T> preEncode(Packet<T> packet) {
+        if (packet.encoded != null) {
+            return packet;
+        }
+        return new Packet<>(packet.type, packet.data, true);
+    }
+
     int getProtocolVersion();
 
     void encodePacket(Packet<?> packet, boolean supportsBinary, EncodeCallback<Object> callback);
     Packet<?> decodePacket(Object data);
 
+    /**
+     * Encode a packet directly into an output stream.
+     * Text is written as UTF-8 without building intermediate strings.
+     *
+     * @param packet The packet to encode.
+     * @param supportsBinary Whether the transport supports binary encoding.
+     * @param outputStream The stream to write the encoded packet to.
+     * @return True if binary data was written, false if text was written.
+     * @throws IOException On write error.
+     */
+    boolean encodePacket(Packet<?> packet, boolean supportsBinary, OutputStream outputStream) throws IOException;
+
     void encodePayload(List<Packet<?>> packets, boolean supportsBinary, EncodeCallback<Object> callback);
+
+    /**
+     * Encode an array of packets directly into an output stream.
+     * Text is written as UTF-8 without building intermediate strings.
+     *
+     * @param packets Array of packets to encode.
+     * @param supportsBinary Whether the transport supports binary encoding.
+     * @param outputStream The stream to write the encoded payload to.
+     * @return True if binary data was written, false if text was written.
+     * @throws IOException On write error.
+     */
+    boolean encodePayload(List<Packet<?>> packets, boolean supportsBinary, OutputStream outputStream) throws IOException;
+
     void decodePayload(Object data, DecodePayloadCallback<Object> callback);
+
+    /**
+     * Decode a text payload incrementally from an input stream.
+     * Each packet is passed to the callback as soon as it has been read completely,
+     * so the first packet can be handled before the rest of the payload arrives.
+     * Since the number of packets is not known in advance, total is passed as -1.
+     *
+     * @param inputStream The stream containing the UTF-8 encoded payload.
+     * @param callback The callback to be called with each decoded packet in payload.
+     * @throws IOException On read error.
+     */
+    void decodePayload(InputStream inputStream, DecodePayloadCallback<Object> callback) throws IOException;
+
+    /**
+     * Create a decoder for a UTF-8 encoded text payload which is pushed in chunks, for example
+     * as it is read with non-blocking IO. Packets are passed to the callback as soon as they are
+     * complete with total -1, so only the packet being read is buffered.
+     *
+     * @param callback The callback to be called with each decoded packet in payload.
+     * @return New decoder for one payload.
+     */
+    PayloadDecoder newPayloadDecoder(DecodePayloadCallback<Object> callback);
 }
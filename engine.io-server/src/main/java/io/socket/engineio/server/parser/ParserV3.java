@@ -1,5 +1,10 @@
 package io.socket.engineio.server.parser;
 
+import io.socket.engineio.server.utils.Utf8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Base64;
@@ -9,6 +14,7 @@ import java.util.List;
 public final class ParserV3 implements Parser {
 
     public static final int PROTOCOL = 3;
+    private static final int ENCODED_INDEX = 0;
 
     @Override
     public int getProtocolVersion() {
@@ -24,10 +30,15 @@ public final class ParserV3 implements Parser {
      */
     @Override
     public void encodePacket(Packet<?> packet, boolean supportsBinary, EncodeCallback<Object> callback) {
+        if (packet.encoded != null) {
+            callback.call(getEncoded(packet, supportsBinary));
+            return;
+        }
+
         if (packet.data instanceof byte[]) {
             encodeByteArray((Packet<byte[]>) packet, supportsBinary, callback);
         } else {
-            String encoded = String.valueOf(PACKETS.get(packet.type));
+            String encoded = PacketType.of(packet).getCodeString();
 
             if (null != packet.data) {
                 encoded += String.valueOf(packet.data);
@@ -41,17 +52,54 @@ public final class ParserV3 implements Parser {
         if (supportsBinary) {
             byte[] data = packet.data;
             byte[] resultArray = new byte[1 + data.length];
-            resultArray[0] = PACKETS.get(packet.type).byteValue();
+            resultArray[0] = (byte) PacketType.of(packet).getCode();
             System.arraycopy(data, 0, resultArray, 1, data.length);
             callback.call(resultArray);
         } else {
             String resultBuilder = "b" +
-                    PACKETS.get(packet.type).byteValue() +
+                    PacketType.of(packet).getCodeString() +
                     Base64.getEncoder().encodeToString(packet.data);
             callback.call(resultBuilder);
         }
     }
 
+    /**
+     * Encode a packet for transfer over transport directly into an output stream.
+     *
+     * @param packet The packet to encode.
+     * @param supportsBinary Whether the transport supports binary encoding.
+     * @param outputStream The stream to write the encoded packet to.
+     * @return True if binary data was written, false if text was written.
+     * @throws IOException On write error.
+     */
+    @Override
+    public boolean encodePacket(Packet<?> packet, boolean supportsBinary, OutputStream outputStream) throws IOException {
+        if (packet.encoded != null) {
+            outputStream.write(getEncodedBytes(packet, supportsBinary));
+            return supportsBinary && (packet.getEncodedData() instanceof byte[]);
+        }
+
+        if (packet.data instanceof byte[]) {
+            if (supportsBinary) {
+                outputStream.write(PacketType.of(packet).getCode());
+                outputStream.write((byte[]) packet.data);
+                return true;
+            } else {
+                outputStream.write('b');
+                outputStream.write('0' + PacketType.of(packet).getCode());
+                outputStream.write(Base64.getEncoder().encode((byte[]) packet.data));
+                return false;
+            }
+        } else {
+            outputStream.write('0' + PacketType.of(packet).getCode());
+
+            if (null != packet.data) {
+                Utf8.write(String.valueOf(packet.data), outputStream);
+            }
+            return false;
+        }
+    }
+
     /**
      * Encode an array of packets into a payload for transfer over transport.
      *
@@ -63,7 +111,7 @@ public final class ParserV3 implements Parser {
     public void encodePayload(List<Packet<?>> packets, boolean supportsBinary, EncodeCallback<Object> callback) {
         boolean isBinary = false;
         for (Packet<?> packet : packets) {
-            if (packet.data instanceof byte[]) {
+            if (packet.getEncodedData() instanceof byte[]) {
                 isBinary = true;
                 break;
             }
@@ -88,6 +136,52 @@ public final class ParserV3 implements Parser {
         callback.call(result.toString());
     }
 
+    /**
+     * Encode an array of packets into a payload directly into an output stream.
+     *
+     * @param packets Array of packets to encode.
+     * @param supportsBinary Whether the transport supports binary encoding.
+     * @param outputStream The stream to write the encoded payload to.
+     * @return True if binary data was written, false if text was written.
+     * @throws IOException On write error.
+     */
+    @Override
+    public boolean encodePayload(List<Packet<?>> packets, boolean supportsBinary, OutputStream outputStream) throws IOException {
+        boolean isBinary = false;
+        for (Packet<?> packet : packets) {
+            if (packet.getEncodedData() instanceof byte[]) {
+                isBinary = true;
+                break;
+            }
+        }
+
+        if (isBinary && supportsBinary) {
+            for (Packet<?> packet : packets) {
+                if (packet.getEncodedData() instanceof byte[]) {
+                    writeBinaryLengthHeader(true, 1 + ((byte[]) packet.getEncodedData()).length, outputStream);
+                    encodePacket(packet, true, outputStream);
+                } else {
+                    writeBinaryLengthHeader(false, getEncodedTextLength(packet), outputStream);
+                    encodePacket(packet, false, outputStream);
+                }
+            }
+            return true;
+        }
+
+        if (packets.size() == 0) {
+            outputStream.write('0');
+            outputStream.write(':');
+            return false;
+        }
+
+        for (Packet<?> packet : packets) {
+            Utf8.writeDecimal(getEncodedTextLength(packet), outputStream);
+            outputStream.write(':');
+            encodePacket(packet, false, outputStream);
+        }
+        return false;
+    }
+
     /**
      * Decode payload received from transport.
      *
@@ -154,6 +248,33 @@ public final class ParserV3 implements Parser {
         }
     }
 
+    /**
+     * Decode a text payload incrementally from a stream received from transport.
+     *
+     * @param inputStream The stream containing the payload.
+     * @param callback The callback to be called with each decoded packet in payload.
+     * @throws IOException On read error.
+     */
+    @Override
+    public void decodePayload(InputStream inputStream, DecodePayloadCallback<Object> callback) throws IOException {
+        assert callback != null;
+
+        new StreamPayloadDecoder(callback).decodeAll(inputStream);
+    }
+
+    /**
+     * Create a decoder for a text payload pushed in chunks.
+     *
+     * @param callback The callback to be called with each decoded packet in payload.
+     * @return New decoder for one payload.
+     */
+    @Override
+    public PayloadDecoder newPayloadDecoder(DecodePayloadCallback<Object> callback) {
+        assert callback != null;
+
+        return new StreamPayloadDecoder(callback);
+    }
+
     /**
      * Encode an array of packets into a binary payload for transfer over transport.
      *  @param packets Array of packets to encode.
@@ -212,19 +333,20 @@ public final class ParserV3 implements Parser {
         if(data instanceof String) {
             final String stringData = (String) data;
             if(stringData.charAt(0) == 'b') {
-                final Packet<byte[]> packet = new Packet<>(PACKETS_REVERSE.get(
-                        Integer.parseInt(String.valueOf(stringData.charAt(1)))));
+                final PacketType type = PacketType.decode(stringData.charAt(1) - '0');
+                final Packet<byte[]> packet = new Packet<>(type, null);
                 packet.data = Base64.getDecoder().decode(stringData.substring(2));
                 return packet;
             } else {
-                final Packet<String> packet = new Packet<>(PACKETS_REVERSE.get(
-                        Integer.parseInt(String.valueOf(stringData.charAt(0)))));
+                final PacketType type = PacketType.decode(stringData.charAt(0) - '0');
+                final Packet<String> packet = new Packet<>(type, null);
                 packet.data = stringData.substring(1);
                 return packet;
             }
         } else if(data instanceof byte[]) {
             final byte[] byteData = (byte[]) data;
-            final Packet<byte[]> packet = new Packet<>(PACKETS_REVERSE.get((int) byteData[0]));
+            final PacketType type = PacketType.decode(byteData[0]);
+            final Packet<byte[]> packet = new Packet<>(type, null);
             packet.data = new byte[byteData.length - 1];
             System.arraycopy(byteData, 1, packet.data, 0, packet.data.length);
             return packet;
@@ -233,6 +355,26 @@ public final class ParserV3 implements Parser {
         }
     }
 
+    /**
+     * Get the length in chars of the text encoding of a packet without encoding it.
+     */
+    private static int getEncodedTextLength(Packet<?> packet) {
+        final Object data = packet.getEncodedData();
+        if (data instanceof byte[]) {
+            return 2 + (4 * ((((byte[]) data).length + 2) / 3));
+        } else if (data != null) {
+            return 1 + String.valueOf(data).length();
+        } else {
+            return 1;
+        }
+    }
+
+    private static void writeBinaryLengthHeader(boolean isBinary, int length, OutputStream outputStream) throws IOException {
+        outputStream.write(isBinary? 1 : 0);
+        Utf8.writeDigits(length, 0, outputStream);
+        outputStream.write(255);
+    }
+
     private static String setLengthHeader(String message) {
         return message.length() + ":" + message;
     }
@@ -252,4 +394,76 @@ public final class ParserV3 implements Parser {
 
         return result;
     }
+
+    private Object getEncoded(Packet<?> packet, boolean supportsBinary) {
+        return packet.getEncoded(ENCODED_INDEX + (supportsBinary? 1 : 0), () -> {
+            final Object[] encoded = new Object[1];
+            // Encode a plain copy of the snapshot to bypass the cache lookup
+            encodePacket(packet.copyEncoded(), supportsBinary, data -> encoded[0] = data);
+            return encoded[0];
+        });
+    }
+
+    private byte[] getEncodedBytes(Packet<?> packet, boolean supportsBinary) {
+        return (byte[]) packet.getEncoded(ENCODED_INDEX + (supportsBinary? 3 : 2), () -> {
+            final Object encoded = getEncoded(packet, supportsBinary);
+            return (encoded instanceof byte[])? encoded : ((String) encoded).getBytes(StandardCharsets.UTF_8);
+        });
+    }
+
+    /**
+     * Reads the length prefix of each packet and decodes the packet once that many characters are read.
+     */
+    private final class StreamPayloadDecoder extends TextPayloadDecoder {
+
+        private final DecodePayloadCallback<Object> mCallback;
+        private final StringBuilder mCurrent = new StringBuilder();
+        private int mIndex = 0;
+        private int mLength = -1;   // -1 while reading the length prefix
+
+        StreamPayloadDecoder(DecodePayloadCallback<Object> callback) {
+            mCallback = callback;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected boolean decode(char[] buffer, int offset, int length) {
+            final int end = offset + length;
+            int position = offset;
+            while (position < end) {
+                if (mLength < 0) {
+                    final char ch = buffer[position++];
+                    if (ch == ':') {
+                        mLength = Integer.parseInt(mCurrent.toString());
+                        mCurrent.setLength(0);
+                    } else {
+                        mCurrent.append(ch);
+                        continue;
+                    }
+                } else {
+                    final int count = Math.min(mLength - mCurrent.length(), end - position);
+                    mCurrent.append(buffer, position, count);
+                    position += count;
+                }
+
+                if ((mLength >= 0) && (mCurrent.length() == mLength)) {
+                    final Packet<?> packet = decodePacket(mCurrent.toString());
+                    if (!mCallback.call((Packet<Object>) packet, mIndex++, -1)) {
+                        return false;
+                    }
+
+                    mCurrent.setLength(0);
+                    mLength = -1;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        protected void finish() {
+            if ((mLength >= 0) || (mCurrent.length() > 0)) {
+                throw new IllegalArgumentException("Invalid payload: incomplete packet");
+            }
+        }
+    }
 }
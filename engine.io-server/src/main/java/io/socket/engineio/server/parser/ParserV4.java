@@ -1,5 +1,11 @@
 package io.socket.engineio.server.parser;
 
+import io.socket.engineio.server.utils.Utf8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
@@ -9,6 +15,8 @@ public final class ParserV4 implements Parser {
 
     public static final int PROTOCOL = 4;
     private static final String SEPARATOR = "\u001E";   // (char) 30
+    private static final int SEPARATOR_BYTE = 30;
+    private static final int ENCODED_INDEX = 4;
 
     @Override
     public int getProtocolVersion() {
@@ -24,10 +32,15 @@ public final class ParserV4 implements Parser {
      */
     @Override
     public void encodePacket(Packet<?> packet, boolean supportsBinary, EncodeCallback<Object> callback) {
+        if (packet.encoded != null) {
+            callback.call(getEncoded(packet, supportsBinary));
+            return;
+        }
+
         if (packet.data instanceof byte[]) {
             encodeByteArray((Packet<byte[]>) packet, supportsBinary, callback);
         } else {
-            String encoded = String.valueOf(PACKETS.get(packet.type));
+            String encoded = PacketType.of(packet).getCodeString();
 
             if (null != packet.data) {
                 encoded += String.valueOf(packet.data);
@@ -47,6 +60,41 @@ public final class ParserV4 implements Parser {
         }
     }
 
+    /**
+     * Encode a packet for transfer over transport directly into an output stream.
+     *
+     * @param packet The packet to encode.
+     * @param supportsBinary Whether the transport supports binary encoding.
+     * @param outputStream The stream to write the encoded packet to.
+     * @return True if binary data was written, false if text was written.
+     * @throws IOException On write error.
+     */
+    @Override
+    public boolean encodePacket(Packet<?> packet, boolean supportsBinary, OutputStream outputStream) throws IOException {
+        if (packet.encoded != null) {
+            outputStream.write(getEncodedBytes(packet, supportsBinary));
+            return supportsBinary && (packet.getEncodedData() instanceof byte[]);
+        }
+
+        if (packet.data instanceof byte[]) {
+            if (supportsBinary) {
+                outputStream.write((byte[]) packet.data);
+                return true;
+            } else {
+                outputStream.write('b');
+                outputStream.write(Base64.getEncoder().encode((byte[]) packet.data));
+                return false;
+            }
+        } else {
+            outputStream.write('0' + PacketType.of(packet).getCode());
+
+            if (null != packet.data) {
+                Utf8.write(String.valueOf(packet.data), outputStream);
+            }
+            return false;
+        }
+    }
+
     /**
      * Encode an array of packets into a payload for transfer over transport.
      *
@@ -66,6 +114,26 @@ public final class ParserV4 implements Parser {
         callback.call(String.join(SEPARATOR, encodedPackets));
     }
 
+    /**
+     * Encode an array of packets into a payload directly into an output stream.
+     *
+     * @param packets Array of packets to encode.
+     * @param supportsBinary Whether the transport supports binary encoding.
+     * @param outputStream The stream to write the encoded payload to.
+     * @return Always false since payloads are always encoded as text.
+     * @throws IOException On write error.
+     */
+    @Override
+    public boolean encodePayload(List<Packet<?>> packets, boolean supportsBinary, OutputStream outputStream) throws IOException {
+        for (int i = 0; i < packets.size(); i++) {
+            if (i > 0) {
+                outputStream.write(SEPARATOR_BYTE);
+            }
+            encodePacket(packets.get(i), false, outputStream);
+        }
+        return false;
+    }
+
     /**
      * Decode payload received from transport.
      *
@@ -98,6 +166,33 @@ public final class ParserV4 implements Parser {
         }
     }
 
+    /**
+     * Decode payload incrementally from a stream received from transport.
+     *
+     * @param inputStream The stream containing the payload.
+     * @param callback The callback to be called with each decoded packet in payload.
+     * @throws IOException On read error.
+     */
+    @Override
+    public void decodePayload(InputStream inputStream, DecodePayloadCallback<Object> callback) throws IOException {
+        assert callback != null;
+
+        new StreamPayloadDecoder(callback).decodeAll(inputStream);
+    }
+
+    /**
+     * Create a decoder for a payload pushed in chunks.
+     *
+     * @param callback The callback to be called with each decoded packet in payload.
+     * @return New decoder for one payload.
+     */
+    @Override
+    public PayloadDecoder newPayloadDecoder(DecodePayloadCallback<Object> callback) {
+        assert callback != null;
+
+        return new StreamPayloadDecoder(callback);
+    }
+
     /**
      * Decode a packet received from transport.
      *
@@ -113,19 +208,81 @@ public final class ParserV4 implements Parser {
         if(data instanceof String) {
             final String stringData = (String) data;
             if(stringData.charAt(0) == 'b') {
-                final Packet<byte[]> packet = new Packet<>(Packet.MESSAGE);
+                final Packet<byte[]> packet = new Packet<>(PacketType.MESSAGE, null);
                 packet.data = java.util.Base64.getDecoder().decode(stringData.substring(1));
                 return packet;
             } else {
-                final Packet<String> packet = new Packet<>(PACKETS_REVERSE.get(
-                        Integer.parseInt(String.valueOf(stringData.charAt(0)))));
+                final PacketType type = PacketType.decode(stringData.charAt(0) - '0');
+                final Packet<String> packet = new Packet<>(type, null);
                 packet.data = stringData.substring(1);
                 return packet;
             }
         } else if(data instanceof byte[]) {
-            return new Packet<>(Packet.MESSAGE, (byte[]) data);
+            return new Packet<>(PacketType.MESSAGE, (byte[]) data);
         } else {
             throw new IllegalArgumentException("Invalid type for data: " + data.getClass().getSimpleName());
         }
     }
+
+    private Object getEncoded(Packet<?> packet, boolean supportsBinary) {
+        return packet.getEncoded(ENCODED_INDEX + (supportsBinary? 1 : 0), () -> {
+            final Object[] encoded = new Object[1];
+            // Encode a plain copy of the snapshot to bypass the cache lookup
+            encodePacket(packet.copyEncoded(), supportsBinary, data -> encoded[0] = data);
+            return encoded[0];
+        });
+    }
+
+    private byte[] getEncodedBytes(Packet<?> packet, boolean supportsBinary) {
+        return (byte[]) packet.getEncoded(ENCODED_INDEX + (supportsBinary? 3 : 2), () -> {
+            final Object encoded = getEncoded(packet, supportsBinary);
+            return (encoded instanceof byte[])? encoded : ((String) encoded).getBytes(StandardCharsets.UTF_8);
+        });
+    }
+
+    /**
+     * Splits the payload at separators and decodes each packet once its separator or the end is read.
+     */
+    private final class StreamPayloadDecoder extends TextPayloadDecoder {
+
+        private final DecodePayloadCallback<Object> mCallback;
+        private final StringBuilder mEncodedPacket = new StringBuilder();
+        private int mIndex = 0;
+
+        StreamPayloadDecoder(DecodePayloadCallback<Object> callback) {
+            mCallback = callback;
+        }
+
+        @Override
+        protected boolean decode(char[] buffer, int offset, int length) {
+            final int end = offset + length;
+            int start = offset;
+            for (int i = offset; i < end; i++) {
+                if (buffer[i] == SEPARATOR_BYTE) {
+                    mEncodedPacket.append(buffer, start, i - start);
+                    if (!decodeStreamPacket()) {
+                        return false;
+                    }
+                    start = i + 1;
+                }
+            }
+            mEncodedPacket.append(buffer, start, end - start);
+            return true;
+        }
+
+        @Override
+        protected void finish() {
+            if (mEncodedPacket.length() > 0) {
+                decodeStreamPacket();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private boolean decodeStreamPacket() {
+            final Packet<?> packet = decodePacket(mEncodedPacket.toString());
+            mEncodedPacket.setLength(0);
+
+            return mCallback.call((Packet<Object>) packet, mIndex++, -1) && !packet.type.equals(Packet.ERROR);
+        }
+    }
 }
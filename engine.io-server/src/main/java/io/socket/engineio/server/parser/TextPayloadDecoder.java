@@ -0,0 +1,107 @@
+package io.socket.engineio.server.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes a UTF-8 text payload pushed in chunks of any size.
+ * Chunks are converted to characters as they arrive and passed on to the protocol specific
+ * {@link #decode(char[], int, int)}, so only the packet being read is held in memory.
+ * Malformed input is replaced like {@link java.io.InputStreamReader} does.
+ */
+abstract class TextPayloadDecoder implements Parser.PayloadDecoder {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private final CharsetDecoder mCharsetDecoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer mBytes = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharBuffer mChars = CharBuffer.allocate(BUFFER_SIZE);
+    private boolean mStopped = false;
+
+    @Override
+    public final boolean write(byte[] buffer, int offset, int length) {
+        while (!mStopped && length > 0) {
+            final int count = Math.min(length, mBytes.remaining());
+            mBytes.put(buffer, offset, count);
+            offset += count;
+            length -= count;
+
+            // Bytes of a character split across chunks are kept for the next one
+            mBytes.flip();
+            decodeBytes(false);
+            mBytes.compact();
+        }
+        return !mStopped;
+    }
+
+    @Override
+    public final void end() {
+        if (mStopped) {
+            return;
+        }
+
+        mBytes.flip();
+        decodeBytes(true);
+        mBytes.clear();
+        if (!mStopped) {
+            CoderResult result;
+            do {
+                result = mCharsetDecoder.flush(mChars);
+                emitChars();
+            } while (!mStopped && result.isOverflow());
+        }
+        if (!mStopped) {
+            finish();
+        }
+    }
+
+    /**
+     * Push the whole content of an input stream and end the payload.
+     */
+    final void decodeAll(InputStream inputStream) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            if (!write(buffer, 0, read)) {
+                return;
+            }
+        }
+        end();
+    }
+
+    /**
+     * Decode the next characters of the payload.
+     *
+     * @return False to stop decoding the payload.
+     */
+    protected abstract boolean decode(char[] buffer, int offset, int length);
+
+    /**
+     * Called once all characters of the payload have been decoded.
+     */
+    protected abstract void finish();
+
+    private void decodeBytes(boolean endOfInput) {
+        CoderResult result;
+        do {
+            result = mCharsetDecoder.decode(mBytes, mChars, endOfInput);
+            emitChars();
+        } while (!mStopped && result.isOverflow());
+    }
+
+    private void emitChars() {
+        mChars.flip();
+        if (mChars.hasRemaining() && !decode(mChars.array(), mChars.arrayOffset() + mChars.position(), mChars.remaining())) {
+            mStopped = true;
+        }
+        mChars.clear();
+    }
+}
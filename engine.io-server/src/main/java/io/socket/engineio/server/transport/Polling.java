@@ -1,22 +1,34 @@
 package io.socket.engineio.server.transport;
 
+import io.socket.engineio.server.EngineIoServerOptions;
 import io.socket.engineio.server.Transport;
+import io.socket.engineio.server.jfr.JfrEvents;
 import io.socket.engineio.server.parser.Packet;
 import io.socket.engineio.server.parser.Parser;
+import io.socket.engineio.server.utils.HttpHeaders;
 import io.socket.engineio.server.utils.JsonUtils;
 import io.socket.engineio.server.utils.ParseQS;
 import jakarta.servlet.AsyncContext;
 import jakarta.servlet.AsyncEvent;
 import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ReadListener;
 import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Polling transport.
@@ -26,24 +38,55 @@ public final class Polling extends Transport implements AsyncListener {
     public static final String NAME = "polling";
 
     private static final List<Packet<?>> PACKET_CLOSE = Collections.unmodifiableList(new ArrayList<Packet<?>>() {{
-        add(new Packet<String>(Packet.CLOSE));
+        add(Parser.CLOSE_PACKET);
     }});
     private static final List<Packet<?>> PACKET_NOOP = Collections.unmodifiableList(new ArrayList<Packet<?>>() {{
-        add(new Packet<String>(Packet.NOOP));
+        add(Parser.NOOP_PACKET);
     }});
 
-    private final Object mLockObject;
+    private static final int READ_BUFFER_SIZE = 4096;
+
+    private static final String ENCODING_GZIP = "gzip";
+    private static final String ENCODING_DEFLATE = "deflate";
+
+    private final ReentrantLock mLock;
+    private final EngineIoServerOptions mOptions;
 
     private HttpServletRequest mPollRequest;
     private HttpServletResponse mPollResponse;
-    private boolean mWritable;
+    private Object mPollRequestEvent;
+    private volatile boolean mWritable;
     private boolean mShouldClose;
     private Map<String, String> mQuery;
     private Map<String, List<String>> mHeaders;
 
+    /**
+     * @deprecated The transport no longer synchronizes on a monitor object. Unless the object is a
+     * {@link ReentrantLock}, the transport uses a lock of its own. Use {@link #Polling(ReentrantLock, Parser)}.
+     */
+    @Deprecated
     public Polling(Object lockObject, Parser parser) {
+        this(lockObject, parser, EngineIoServerOptions.DEFAULT);
+    }
+
+    /**
+     * @deprecated The transport no longer synchronizes on a monitor object. Unless the object is a
+     * {@link ReentrantLock}, the transport uses a lock of its own.
+     * Use {@link #Polling(ReentrantLock, Parser, EngineIoServerOptions)}.
+     */
+    @Deprecated
+    public Polling(Object lockObject, Parser parser, EngineIoServerOptions options) {
+        this((lockObject instanceof ReentrantLock)? (ReentrantLock) lockObject : new ReentrantLock(), parser, options);
+    }
+
+    public Polling(ReentrantLock lock, Parser parser) {
+        this(lock, parser, EngineIoServerOptions.DEFAULT);
+    }
+
+    public Polling(ReentrantLock lock, Parser parser, EngineIoServerOptions options) {
         super(parser);
-        mLockObject = lockObject;
+        mLock = lock;
+        mOptions = options;
 
         mWritable = false;
         mShouldClose = false;
@@ -63,31 +106,15 @@ public final class Polling extends Transport implements AsyncListener {
 
     @Override
     public void onRequest(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        synchronized (mLockObject) {
+        mLock.lock();
+        try {
             if (mQuery == null) {
-                if (request.getQueryString() != null) {
-                    mQuery = ParseQS.decode(request.getQueryString());
-                } else {
-                    mQuery = new HashMap<>();
-                }
+                // Reuse the query parsed by the server
+                @SuppressWarnings("unchecked") final Map<String, String> query = (Map<String, String>) request.getAttribute("query");
+                mQuery = (query != null)? query : ParseQS.decode(request.getQueryString());
             }
             if (mHeaders == null) {
-                mHeaders = new HashMap<>();
-
-                final Enumeration<String> iter = request.getHeaderNames();
-                if (iter != null) {
-                    while (iter.hasMoreElements()) {
-                        final String headerName = iter.nextElement();
-                        final List<String> headerValues = new ArrayList<>();
-
-                        final Enumeration<String> iter2 = request.getHeaders(headerName);
-                        while (iter2.hasMoreElements()) {
-                            headerValues.add(iter2.nextElement());
-                        }
-
-                        mHeaders.put(headerName, headerValues);
-                    }
-                }
+                mHeaders = HttpHeaders.copy(request, mOptions.getRetainedHeaders());
             }
 
             switch (request.getMethod().toLowerCase()) {
@@ -102,16 +129,19 @@ public final class Polling extends Transport implements AsyncListener {
                     response.getWriter().write("");
                     break;
             }
+        } finally {
+            mLock.unlock();
         }
     }
 
     @Override
     public void send(List<Packet<?>> packets) {
-        synchronized (mLockObject) {
+        mLock.lock();
+        try {
             mWritable = false;
 
             if(mShouldClose) {
-                packets.add(new Packet<>(Packet.CLOSE));
+                packets.add(Parser.CLOSE_PACKET);
             }
 
             @SuppressWarnings("unchecked") final Map<String, String> query = (Map<String, String>) mPollRequest.getAttribute("query");
@@ -120,11 +150,8 @@ public final class Polling extends Transport implements AsyncListener {
             if(packets.size() == 0) {
                 throw new IllegalArgumentException("No packets to send.");
             }
-            mParser.encodePayload(packets, true, data -> {
-                final String contentType;
-                final byte[] contentBytes;
-
-                if (jsonp) {
+            if (jsonp) {
+                mParser.encodePayload(packets, true, data -> {
                     final String jsonpIndex = query.get("j").replaceAll("[^0-9]", "");
                     final String jsonContentString = (data instanceof String)?
                             ("\"" + JsonUtils.escape((String) data) + "\"") :
@@ -133,34 +160,31 @@ public final class Polling extends Transport implements AsyncListener {
                             .replace("\u2028", "\\u2028")
                             .replace("\u2029", "\\u2029");
                     final String contentString = "___eio[" + jsonpIndex + "](" + jsContentString + ")";
+                    final byte[] contentBytes = contentString.getBytes(StandardCharsets.UTF_8);
 
-                    contentType = "text/javascript; charset=UTF-8";
-                    contentBytes = contentString.getBytes(StandardCharsets.UTF_8);
-                } else {
-                    contentType = (data instanceof String)? "text/plain; charset=UTF-8" : "application/octet-stream";
-                    contentBytes = (data instanceof String)? ((String)data).getBytes(StandardCharsets.UTF_8) : ((byte[])data);
-                }
-
-                mPollResponse.setContentType(contentType);
-                mPollResponse.setContentLength(contentBytes.length);
-
-                try (OutputStream outputStream = mPollResponse.getOutputStream()) {
-                    outputStream.write(contentBytes);
+                    writeResponse("text/javascript; charset=UTF-8", contentBytes, contentBytes.length);
+                });
+            } else {
+                final PayloadBuffer payload = new PayloadBuffer();
+                try {
+                    final boolean isBinary = mParser.encodePayload(packets, true, payload);
+
+                    // A partially encoded payload is never sent
+                    writeResponse(
+                            isBinary? "application/octet-stream" : "text/plain; charset=UTF-8",
+                            payload.getBuffer(),
+                            payload.size());
                 } catch (IOException ex) {
-                    onError("write failure", ex.getMessage());
-                }
-
-                if (mPollRequest.isAsyncStarted()) {
-                    mPollRequest.getAsyncContext().complete();
+                    abortPollResponse();
+                    onError("encode failure", ex.getMessage());
                 }
-
-                mPollRequest = null;
-                mPollResponse = null;
-            });
+            }
 
             if(mShouldClose) {
                 onClose();
             }
+        } finally {
+            mLock.unlock();
         }
     }
 
@@ -176,27 +200,22 @@ public final class Polling extends Transport implements AsyncListener {
 
     @Override
     protected void doClose() {
-        synchronized (mLockObject) {
+        mLock.lock();
+        try {
             if(mWritable) {
                 send(new ArrayList<>(PACKET_CLOSE));
                 onClose();
             } else {
                 mShouldClose = true;
             }
+        } finally {
+            mLock.unlock();
         }
     }
 
     @Override
     protected void onData(Object data) {
-        mParser.decodePayload(data, (packet, index, total) -> {
-            if(packet.type.equals(Packet.CLOSE)) {
-                onClose();
-                return false;
-            } else {
-                onPacket(packet);
-                return true;
-            }
-        });
+        mParser.decodePayload(data, this::onPayloadPacket);
     }
 
     @Override
@@ -219,7 +238,15 @@ public final class Polling extends Transport implements AsyncListener {
 
     @Override
     public void onTimeout(AsyncEvent asyncEvent) {
-        send(new ArrayList<>(PACKET_NOOP));
+        mLock.lock();
+        try {
+            // A non-blocking write might still be in progress after the poll request has been answered
+            if (mWritable) {
+                send(new ArrayList<>(PACKET_NOOP));
+            }
+        } finally {
+            mLock.unlock();
+        }
     }
 
     @Override
@@ -244,6 +271,7 @@ public final class Polling extends Transport implements AsyncListener {
 
         mPollRequest = request;
         mPollResponse = response;
+        mPollRequestEvent = JfrEvents.beginPollingRequest();
 
         boolean asyncEnabled = false;
         if (request.isAsyncSupported() || request.isAsyncStarted()) {
@@ -266,20 +294,208 @@ public final class Polling extends Transport implements AsyncListener {
         @SuppressWarnings("unchecked") final Map<String, String> query = (Map<String, String>) request.getAttribute("query");
 
         final boolean jsonp = query.containsKey("j");
-        final byte[] readBuffer = readInput(request);
+
+        final long contentLength = request.getContentLengthLong();
+        if (isPayloadTooLarge(contentLength)) {
+            rejectPayload(response);
+            return;
+        }
+        if (contentLength > 0) {
+            mOptions.getMetrics().onBytesReceived(NAME, contentLength);
+        }
+
+        if (mOptions.isNonBlockingPollingIoEnabled() && request.isAsyncSupported()) {
+            final AsyncContext asyncContext = request.startAsync();
+            final ServletInputStream inputStream = request.getInputStream();
+            inputStream.setReadListener(new PayloadReadListener(asyncContext, inputStream, response, jsonp));
+            return;
+        }
 
         if (jsonp) {
-            final String packetPayloadRaw = ParseQS.decode(new String(readBuffer, StandardCharsets.UTF_8)).get("d");
-            final String packetPayload = packetPayloadRaw.replace("\\n", "\n");
-            onData(packetPayload);
+            final PayloadBuffer body = readInput(request, contentLength);
+            if (body == null) {
+                rejectPayload(response);
+                return;
+            }
+
+            onJsonpData(body.getBuffer(), body.size());
+        } else if (contentLength < 0) {
+            // Body without a declared length is limited while it is decoded.
+            // Packets read before the limit was exceeded have already been delivered.
+            final LimitedInputStream inputStream = new LimitedInputStream(request.getInputStream(), mOptions.getMaxHttpBufferSize());
+            try {
+                mParser.decodePayload(inputStream, this::onPayloadPacket);
+            } catch (PayloadTooLargeException ex) {
+                rejectPayload(response);
+                return;
+            } finally {
+                inputStream.close();
+                mOptions.getMetrics().onBytesReceived(NAME, inputStream.getCount());
+            }
         } else {
-            onData((new String(readBuffer, StandardCharsets.UTF_8)));
+            try (final ServletInputStream inputStream = request.getInputStream()) {
+                mParser.decodePayload(inputStream, this::onPayloadPacket);
+            }
         }
 
         response.setContentType("text/html");
         response.getWriter().write("ok");
     }
 
+    private void onJsonpData(byte[] data, int length) {
+        final String packetPayloadRaw = ParseQS.decode(new String(data, 0, length, StandardCharsets.UTF_8)).get("d");
+        final String packetPayload = packetPayloadRaw.replace("\\n", "\n");
+        onData(packetPayload);
+    }
+
+    private boolean onPayloadPacket(Packet<Object> packet, int index, int total) {
+        if(packet.type.equals(Packet.CLOSE)) {
+            onClose();
+            return false;
+        } else {
+            onPacket(packet);
+            return true;
+        }
+    }
+
+    private void writeResponse(String contentType, byte[] content, int contentLength) {
+        final String contentEncoding = getContentEncoding(contentLength);
+        if (contentEncoding != null) {
+            try {
+                final PayloadBuffer compressed = compress(contentEncoding, content, contentLength);
+                content = compressed.getBuffer();
+                contentLength = compressed.size();
+                mPollResponse.setHeader("Content-Encoding", contentEncoding);
+            } catch (IOException ignore) {
+                // Send uncompressed
+            }
+        }
+
+        mPollResponse.setContentType(contentType);
+        mPollResponse.setContentLength(contentLength);
+        mOptions.getMetrics().onBytesSent(NAME, contentLength);
+        JfrEvents.endPollingRequest(mPollRequestEvent, contentLength);
+        mPollRequestEvent = null;
+
+        if (mOptions.isNonBlockingPollingIoEnabled() && mPollRequest.isAsyncStarted()) {
+            try {
+                final ServletOutputStream outputStream = mPollResponse.getOutputStream();
+                outputStream.setWriteListener(new PayloadWriteListener(
+                        mPollRequest.getAsyncContext(), outputStream, content, contentLength));
+            } catch (IOException ex) {
+                onError("write failure", ex.getMessage());
+                mPollRequest.getAsyncContext().complete();
+            }
+
+            mPollRequest = null;
+            mPollResponse = null;
+            return;
+        }
+
+        try (OutputStream outputStream = mPollResponse.getOutputStream()) {
+            outputStream.write(content, 0, contentLength);
+        } catch (IOException ex) {
+            onError("write failure", ex.getMessage());
+        }
+
+        if (mPollRequest.isAsyncStarted()) {
+            mPollRequest.getAsyncContext().complete();
+        }
+
+        mPollRequest = null;
+        mPollResponse = null;
+    }
+
+    /**
+     * Answer the held poll request with an error instead of a payload and release it.
+     */
+    private void abortPollResponse() {
+        mPollResponse.setStatus(500);
+        JfrEvents.endPollingRequest(mPollRequestEvent, 0);
+        mPollRequestEvent = null;
+
+        if (mPollRequest.isAsyncStarted()) {
+            mPollRequest.getAsyncContext().complete();
+        }
+
+        mPollRequest = null;
+        mPollResponse = null;
+    }
+
+    private String getContentEncoding(int contentLength) {
+        if (!mOptions.isHttpCompressionEnabled() || contentLength < mOptions.getHttpCompressionThreshold()) {
+            return null;
+        }
+
+        // Caches must not serve this response to clients with other accepted encodings
+        mPollResponse.addHeader("Vary", "Accept-Encoding");
+        return negotiateContentEncoding(mPollRequest.getHeader("Accept-Encoding"));
+    }
+
+    /**
+     * Pick the content encoding for a response from an 'Accept-Encoding' header.
+     * gzip is preferred over deflate and encodings with a quality of zero are not used.
+     *
+     * @param acceptEncoding Value of the header or null.
+     * @return "gzip", "deflate" or null if the response must not be compressed.
+     */
+    static String negotiateContentEncoding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+
+        // Explicitly listed codings take precedence over the wildcard
+        Boolean gzip = null;
+        Boolean deflate = null;
+        boolean any = false;
+        for (String coding : acceptEncoding.split(",")) {
+            final String[] params = coding.split(";");
+            final String name = params[0].trim().toLowerCase(Locale.ROOT);
+
+            boolean acceptable = true;
+            for (int i = 1; i < params.length; i++) {
+                final String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        acceptable = Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException ignore) {
+                        acceptable = false;
+                    }
+                }
+            }
+
+            switch (name) {
+                case ENCODING_GZIP:
+                    gzip = acceptable;
+                    break;
+                case ENCODING_DEFLATE:
+                    deflate = acceptable;
+                    break;
+                case "*":
+                    any = acceptable;
+                    break;
+            }
+        }
+
+        if ((gzip != null)? gzip : any) {
+            return ENCODING_GZIP;
+        }
+        if ((deflate != null)? deflate : any) {
+            return ENCODING_DEFLATE;
+        }
+        return null;
+    }
+
+    private static PayloadBuffer compress(String contentEncoding, byte[] content, int contentLength) throws IOException {
+        final PayloadBuffer compressed = new PayloadBuffer();
+        try (OutputStream outputStream = contentEncoding.equals(ENCODING_GZIP)?
+                new GZIPOutputStream(compressed) :
+                new DeflaterOutputStream(compressed)) {
+            outputStream.write(content, 0, contentLength);
+        }
+        return compressed;
+    }
+
     private String serializeByteArray(byte[] input) {
         final String[] array = new String[input.length];
         for (int i = 0; i < input.length; i++) {
@@ -289,16 +505,242 @@ public final class Polling extends Transport implements AsyncListener {
         return '[' + String.join(",", array) + ']';
     }
 
-    private byte[] readInput(final HttpServletRequest request) throws IOException {
+    private boolean isPayloadTooLarge(long size) {
+        return mOptions.getMaxHttpBufferSize() > 0 && size > mOptions.getMaxHttpBufferSize();
+    }
+
+    private void rejectPayload(HttpServletResponse response) throws IOException {
+        response.setStatus(413);
+        response.getWriter().write("");
+    }
+
+    /**
+     * Read the request body.
+     *
+     * @param request Request to read.
+     * @param contentLength Declared length of the body or -1 if unknown.
+     * @return Body or null if it is larger than the max payload size.
+     */
+    private PayloadBuffer readInput(final HttpServletRequest request, long contentLength) throws IOException {
+        final PayloadBuffer body = new PayloadBuffer((contentLength > 0 && contentLength < Integer.MAX_VALUE)?
+                (int) contentLength : READ_BUFFER_SIZE);
+
         try(final ServletInputStream inputStream = request.getInputStream()) {
-            final byte[] readBuffer = new byte[request.getContentLength()];
+            final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+
+            int read;
+            while ((read = inputStream.read(readBuffer)) != -1) {
+                body.write(readBuffer, 0, read);
+                if (isPayloadTooLarge(body.size())) {
+                    return null;
+                }
+            }
+        }
+
+        return body;
+    }
+
+    /**
+     * Reads a POST body without blocking and decodes its packets as the chunks arrive.
+     */
+    private final class PayloadReadListener implements ReadListener {
+
+        private final AsyncContext mAsyncContext;
+        private final ServletInputStream mInputStream;
+        private final HttpServletResponse mResponse;
+        private final PayloadBuffer mJsonpBody;
+        private final Parser.PayloadDecoder mDecoder;
+        private final byte[] mReadBuffer = new byte[READ_BUFFER_SIZE];
+        private long mCount;
+        private boolean mRejected;
+
+        PayloadReadListener(AsyncContext asyncContext, ServletInputStream inputStream, HttpServletResponse response, boolean jsonp) {
+            mAsyncContext = asyncContext;
+            mInputStream = inputStream;
+            mResponse = response;
+
+            // Only form encoded jsonp bodies need to be complete before they can be decoded
+            mJsonpBody = jsonp? new PayloadBuffer() : null;
+            mDecoder = jsonp? null : mParser.newPayloadDecoder(Polling.this::onPayloadPacket);
+        }
+
+        @Override
+        public void onDataAvailable() throws IOException {
+            int read;
+            while (!mRejected && mInputStream.isReady() && (read = mInputStream.read(mReadBuffer)) != -1) {
+                mCount += read;
+                if (isPayloadTooLarge(mCount)) {
+                    // Packets decoded before the limit was exceeded have already been delivered
+                    mRejected = true;
+                    try {
+                        rejectPayload(mResponse);
+                    } finally {
+                        mAsyncContext.complete();
+                    }
+                } else if (mJsonpBody != null) {
+                    mJsonpBody.write(mReadBuffer, 0, read);
+                } else {
+                    mLock.lock();
+                    try {
+                        mDecoder.write(mReadBuffer, 0, read);
+                    } finally {
+                        mLock.unlock();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onAllDataRead() throws IOException {
+            if (mRejected) {
+                return;
+            }
+
+            try {
+                mLock.lock();
+                try {
+                    if (mJsonpBody != null) {
+                        onJsonpData(mJsonpBody.getBuffer(), mJsonpBody.size());
+                    } else {
+                        mDecoder.end();
+                    }
+                } finally {
+                    mLock.unlock();
+                }
+
+                mResponse.setContentType("text/html");
+                mResponse.getWriter().write("ok");
+            } finally {
+                mAsyncContext.complete();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            Polling.this.onError("read failure", throwable.getMessage());
+            mAsyncContext.complete();
+        }
+    }
+
+    /**
+     * Writes a poll response without blocking and completes the request once it has been flushed.
+     */
+    private final class PayloadWriteListener implements WriteListener {
+
+        private final AsyncContext mAsyncContext;
+        private final ServletOutputStream mOutputStream;
+        private final byte[] mContent;
+        private final int mContentLength;
+        private boolean mWritten;
+
+        PayloadWriteListener(AsyncContext asyncContext, ServletOutputStream outputStream, byte[] content, int contentLength) {
+            mAsyncContext = asyncContext;
+            mOutputStream = outputStream;
+            mContent = content;
+            mContentLength = contentLength;
+            mWritten = false;
+        }
+
+        @Override
+        public void onWritePossible() throws IOException {
+            if (!mWritten) {
+                mWritten = true;
+                mOutputStream.write(mContent, 0, mContentLength);
+            }
+
+            if (mOutputStream.isReady()) {
+                mAsyncContext.complete();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            Polling.this.onError("write failure", throwable.getMessage());
+            mAsyncContext.complete();
+        }
+    }
+
+    /**
+     * Counts the bytes read from a request body and fails once they exceed the limit,
+     * so that a body without a declared length is decoded as it arrives.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private final long mLimit;
+        private long mCount;
+
+        /**
+         * @param inputStream Stream to read.
+         * @param limit Max number of bytes to read or 0 if unlimited.
+         */
+        LimitedInputStream(InputStream inputStream, long limit) {
+            super(inputStream);
+            mLimit = limit;
+        }
+
+        long getCount() {
+            return mCount;
+        }
 
-            int remaining = readBuffer.length;
-            while (remaining > 0) {
-                remaining -= inputStream.read(readBuffer, readBuffer.length - remaining, readBuffer.length);
+        @Override
+        public int read() throws IOException {
+            final int value = super.read();
+            if (value != -1) {
+                count(1);
             }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int read = super.read(b, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void count(long read) throws PayloadTooLargeException {
+            mCount += read;
+            if (mLimit > 0 && mCount > mLimit) {
+                throw new PayloadTooLargeException();
+            }
+        }
+    }
+
+    private static final class PayloadTooLargeException extends IOException {
+
+        PayloadTooLargeException() {
+            super("Payload too large");
+        }
+    }
+
+    /**
+     * Buffer that exposes its backing array so payloads can be written without another copy.
+     */
+    private static final class PayloadBuffer extends ByteArrayOutputStream {
+
+        PayloadBuffer() {
+        }
+
+        PayloadBuffer(int size) {
+            super(size);
+        }
 
-            return readBuffer;
+        byte[] getBuffer() {
+            return buf;
         }
     }
 }
\ No newline at end of file
@@ -2,14 +2,20 @@ package io.socket.engineio.server.transport;
 
 import io.socket.engineio.server.parser.Parser;
 import io.socket.engineio.server.parser.Packet;
+import io.socket.engineio.server.EngineIoServerOptions;
 import io.socket.engineio.server.EngineIoWebSocket;
 import io.socket.engineio.server.Transport;
+import io.socket.engineio.server.metrics.EngineIoMetrics;
+import io.socket.engineio.server.utils.HttpHeaders;
+import io.socket.engineio.server.utils.Utf8;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 /**
  * WebSocket transport.
@@ -19,11 +25,30 @@ public final class WebSocket extends Transport {
     public static final String NAME = "websocket";
 
     private final EngineIoWebSocket mConnection;
+    private final EngineIoMetrics mMetrics;
+    private final long mMaxPayload;
+    private final String[] mRetainedHeaders;
+    private volatile boolean mWritable = true;
 
     public WebSocket(EngineIoWebSocket webSocket, Parser parser) {
+        this(webSocket, parser, EngineIoServerOptions.DEFAULT);
+    }
+
+    public WebSocket(EngineIoWebSocket webSocket, Parser parser, EngineIoServerOptions options) {
         super(parser);
         mConnection = webSocket;
-        mConnection.on("message", args -> onData(args[0]));
+        mMetrics = options.getMetrics();
+        mMaxPayload = options.getMaxHttpBufferSize();
+        mRetainedHeaders = options.getRetainedHeaders();
+        mConnection.on("message", args -> {
+            final long size = getMessageSize(args[0]);
+            mMetrics.onBytesReceived(NAME, size);
+            if (mMaxPayload > 0 && size > mMaxPayload) {
+                onError("payload too large", "Message of size " + size + " exceeds max payload of " + mMaxPayload);
+                return;
+            }
+            onData(args[0]);
+        });
         mConnection.on("close", args -> onClose());
         mConnection.on("error", args -> onError((String) args[0], (String) args[1]));
     }
@@ -35,33 +60,56 @@ public final class WebSocket extends Transport {
 
     @Override
     public Map<String, List<String>> getInitialHeaders() {
-        return mConnection.getConnectionHeaders();
+        return HttpHeaders.filter(mConnection.getConnectionHeaders(), mRetainedHeaders);
     }
 
     @Override
     public void onRequest(HttpServletRequest request, HttpServletResponse response) { }
 
+    /**
+     * Write packets without waiting for the network.
+     * Multiple packets are handed to the connection as a single batch. The transport is
+     * not writable until the write has completed, after which it emits drain so that
+     * packets buffered in the meantime are sent.
+     */
     @Override
     public void send(List<Packet<?>> packets) {
-        final Parser.EncodeCallback<Object> encodeCallback = data -> {
-            try {
-                if(data instanceof String) {
-                    mConnection.write((String) data);
-                } else if(data instanceof byte[]) {
-                    mConnection.write((byte[]) data);
-                }
-            } catch (IOException ex) {
-                onError("write error", ex.getMessage());
-            }
-        };
+        mWritable = false;
+
+        final List<Object> messages = new ArrayList<>(packets.size());
         for (Packet<?> packet : packets) {
-            mParser.encodePacket(packet, true, encodeCallback);
+            mParser.encodePacket(packet, true, messages::add);
+        }
+
+        long size = 0;
+        for (Object message : messages) {
+            size += getMessageSize(message);
         }
+        mMetrics.onBytesSent(NAME, size);
+
+        final CompletionStage<Void> writeStage;
+        if (messages.size() == 1 && messages.get(0) instanceof String) {
+            writeStage = mConnection.writeAsync((String) messages.get(0));
+        } else if (messages.size() == 1 && messages.get(0) instanceof byte[]) {
+            writeStage = mConnection.writeAsync((byte[]) messages.get(0));
+        } else {
+            writeStage = mConnection.writeBatch(messages);
+        }
+
+        writeStage.whenComplete((ignore, error) -> {
+            if (error != null) {
+                final Throwable cause = (error instanceof CompletionException && error.getCause() != null)? error.getCause() : error;
+                onError("write error", cause.getMessage());
+            } else {
+                mWritable = true;
+                emit("drain");
+            }
+        });
     }
 
     @Override
     public boolean isWritable() {
-        return true;
+        return mWritable;
     }
 
     @Override
@@ -73,4 +121,13 @@ public final class WebSocket extends Transport {
     protected void doClose() {
         mConnection.close();
     }
+
+    private static long getMessageSize(Object message) {
+        if (message instanceof byte[]) {
+            return ((byte[]) message).length;
+        } else if (message instanceof String) {
+            return Utf8.encodedLength((String) message);
+        }
+        return 0;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,251 @@
+package io.socket.engineio.server.utils;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A hashed wheel timer for large numbers of frequently reset timeouts.
+ *
+ * Resetting a {@link Timeout} only updates its deadline and is O(1). The wheel re-examines
+ * a timeout lazily when its bucket comes up, so a timeout that keeps being pushed into
+ * the future costs nothing until it actually expires. Expiry is accurate to one tick.
+ *
+ * Timeouts are checked once per tick on the given executor and expired tasks are
+ * executed on the same executor.
+ */
+public final class HashedWheelTimer {
+
+    private static final long IDLE = Long.MIN_VALUE;
+
+    /**
+     * A reusable timeout bound to a single task.
+     */
+    public final class Timeout {
+
+        private final Runnable mTask;
+        private final AtomicLong mDeadline = new AtomicLong(IDLE);
+        private final AtomicBoolean mQueued = new AtomicBoolean(false);
+        private volatile long mParkedDeadline = Long.MAX_VALUE;
+        private Slot mSlot = null;
+
+        private Timeout(Runnable task) {
+            mTask = task;
+        }
+
+        /**
+         * Schedule the task to run after the delay, replacing any pending deadline.
+         *
+         * @param delay Delay before the task runs.
+         * @param unit Unit of the delay.
+         */
+        public void reset(long delay, TimeUnit unit) {
+            final long deadline = mClock.getAsLong() + unit.toNanos(delay);
+            mDeadline.set(deadline);
+
+            // Only enqueue if the wheel does not hold this timeout or holds it too late
+            if (mQueued.compareAndSet(false, true) || (deadline - mParkedDeadline < 0)) {
+                mPending.offer(this);
+            }
+        }
+
+        /**
+         * Cancel the pending deadline if any.
+         */
+        public void cancel() {
+            mDeadline.set(IDLE);
+        }
+    }
+
+    private static final class Slot {
+
+        private final Timeout mTimeout;
+        private long mTick;
+
+        private Slot(Timeout timeout) {
+            mTimeout = timeout;
+        }
+    }
+
+    private final ScheduledExecutorService mExecutor;
+    private final LongSupplier mClock;
+    private final long mTickNanos;
+    private final long mStartTime;
+    private final int mMask;
+    private final ArrayDeque<Slot>[] mWheel;
+    private final ConcurrentLinkedQueue<Timeout> mPending = new ConcurrentLinkedQueue<>();
+    private final ScheduledFuture<?> mTickFuture;
+
+    private long mTick = 0;
+
+    /**
+     * Create a timer and start ticking on the executor.
+     *
+     * @param executor Executor for ticks and expired tasks.
+     * @param tickDuration Duration of one tick.
+     * @param unit Unit of tick duration.
+     * @param wheelSize Number of buckets in the wheel. Rounded up to a power of two.
+     * @throws IllegalArgumentException If tick duration or wheel size is not positive.
+     */
+    public HashedWheelTimer(ScheduledExecutorService executor, long tickDuration, TimeUnit unit, int wheelSize) throws IllegalArgumentException {
+        this(executor, tickDuration, unit, wheelSize, System::nanoTime);
+    }
+
+    /**
+     * Create a timer reading time from the clock and start ticking on the executor.
+     * Ticks expire every timeout which is due according to the clock, so a manually
+     * advanced clock together with an executor that runs ticks on demand makes expiry
+     * deterministic.
+     *
+     * @param executor Executor for ticks and expired tasks.
+     * @param tickDuration Duration of one tick.
+     * @param unit Unit of tick duration.
+     * @param wheelSize Number of buckets in the wheel. Rounded up to a power of two.
+     * @param clock Monotonic time source in nanoseconds, like {@link System#nanoTime()}.
+     * @throws IllegalArgumentException If tick duration or wheel size is not positive.
+     */
+    @SuppressWarnings("unchecked")
+    public HashedWheelTimer(ScheduledExecutorService executor, long tickDuration, TimeUnit unit, int wheelSize, LongSupplier clock) throws IllegalArgumentException {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive.");
+        }
+        if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid wheel size.");
+        }
+
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+
+        mExecutor = executor;
+        mClock = clock;
+        mTickNanos = unit.toNanos(tickDuration);
+        mMask = size - 1;
+        mWheel = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            mWheel[i] = new ArrayDeque<>();
+        }
+
+        mStartTime = clock.getAsLong();
+        mTickFuture = executor.scheduleAtFixedRate(this::onTick, tickDuration, tickDuration, unit);
+    }
+
+    /**
+     * Create a new idle timeout for the task.
+     *
+     * @param task Task to run on expiry.
+     * @return Timeout which can be reset and cancelled any number of times.
+     */
+    public Timeout newTimeout(Runnable task) {
+        return new Timeout(task);
+    }
+
+    /**
+     * Stop ticking. Pending timeouts will not expire after this.
+     */
+    public void stop() {
+        mTickFuture.cancel(false);
+    }
+
+    private void onTick() {
+        final long now = mClock.getAsLong();
+        final long currentTick = (now - mStartTime) / mTickNanos;
+
+        Timeout timeout;
+        while ((timeout = mPending.poll()) != null) {
+            place(timeout, mTick);
+        }
+
+        // After a stall one full rotation covers every bucket
+        if (currentTick - mTick > mMask) {
+            mTick = currentTick - mMask;
+        }
+        for (; mTick <= currentTick; mTick++) {
+            final ArrayDeque<Slot> bucket = mWheel[(int) (mTick & mMask)];
+            for (int count = bucket.size(); count > 0; count--) {
+                final Slot slot = bucket.poll();
+                if (slot.mTimeout.mSlot != slot) {
+                    // Superseded by an earlier placement
+                    continue;
+                }
+                if (slot.mTick > currentTick) {
+                    bucket.add(slot);
+                    continue;
+                }
+
+                expire(slot, now, currentTick);
+            }
+        }
+    }
+
+    private void expire(Slot slot, long now, long currentTick) {
+        final Timeout timeout = slot.mTimeout;
+        while (true) {
+            final long deadline = timeout.mDeadline.get();
+            if (deadline == IDLE) {
+                unpark(timeout);
+                return;
+            }
+            if (deadline - now > 0) {
+                park(slot, Math.max(tickOf(deadline), currentTick + 1));
+                return;
+            }
+            if (timeout.mDeadline.compareAndSet(deadline, IDLE)) {
+                unpark(timeout);
+                try {
+                    mExecutor.execute(timeout.mTask);
+                } catch (RejectedExecutionException ignore) {
+                }
+                return;
+            }
+        }
+    }
+
+    private void place(Timeout timeout, long minTick) {
+        final long deadline = timeout.mDeadline.get();
+        if (deadline == IDLE) {
+            if (timeout.mSlot == null) {
+                unpark(timeout);
+            }
+            return;
+        }
+
+        final long tick = Math.max(tickOf(deadline), minTick);
+        if (timeout.mSlot != null && timeout.mSlot.mTick <= tick) {
+            return;
+        }
+
+        final Slot slot = new Slot(timeout);
+        timeout.mSlot = slot;
+        park(slot, tick);
+    }
+
+    private void park(Slot slot, long tick) {
+        slot.mTick = tick;
+        slot.mTimeout.mParkedDeadline = mStartTime + tick * mTickNanos;
+        mWheel[(int) (tick & mMask)].add(slot);
+    }
+
+    private void unpark(Timeout timeout) {
+        timeout.mSlot = null;
+        timeout.mParkedDeadline = Long.MAX_VALUE;
+        timeout.mQueued.set(false);
+
+        // A reset may have raced with the flag being cleared
+        if (timeout.mDeadline.get() != IDLE && timeout.mQueued.compareAndSet(false, true)) {
+            place(timeout, mTick + 1);
+        }
+    }
+
+    private long tickOf(long deadline) {
+        final long elapsed = deadline - mStartTime;
+        return (elapsed <= 0) ? 0 : (elapsed + mTickNanos - 1) / mTickNanos;
+    }
+}
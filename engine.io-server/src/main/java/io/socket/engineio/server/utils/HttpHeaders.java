@@ -0,0 +1,92 @@
+package io.socket.engineio.server.utils;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public interface HttpHeaders {
+
+    /**
+     * Create a read-only view of the headers of a request.
+     * Headers are only read from the request when accessed, so the view must not be used
+     * after the request has completed.
+     *
+     * @param request Request to read headers from.
+     * @return Map of header names to values.
+     */
+    static Map<String, List<String>> view(HttpServletRequest request) {
+        return new RequestHeaderMap(request);
+    }
+
+    /**
+     * Copy headers of a request.
+     * Copied headers are keyed by the given names, like {@link #filter(Map, String[])} does.
+     *
+     * @param request Request to read headers from.
+     * @param names Names of the headers to copy or null to copy all headers.
+     * @return Map of header names to values.
+     */
+    static Map<String, List<String>> copy(HttpServletRequest request, String[] names) {
+        if (names == null) {
+            final Map<String, List<String>> headers = new HashMap<>();
+            final Enumeration<String> headerNames = request.getHeaderNames();
+            if (headerNames != null) {
+                while (headerNames.hasMoreElements()) {
+                    final String headerName = headerNames.nextElement();
+                    headers.put(headerName, Collections.list(request.getHeaders(headerName)));
+                }
+            }
+            return headers;
+        }
+        if (names.length == 0) {
+            return Collections.emptyMap();
+        }
+
+        final Map<String, List<String>> headers = new HashMap<>(names.length * 2);
+        for (String name : names) {
+            final Enumeration<String> values = request.getHeaders(name);
+            if (values != null && values.hasMoreElements()) {
+                headers.put(name, Collections.list(values));
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * Keep only some headers of a header map.
+     * Kept headers are keyed by the given names rather than the spelling of the map, so that
+     * the result does not depend on how the container spells header names.
+     *
+     * @param headers Headers to filter or null.
+     * @param names Names of the headers to keep, matched ignoring case, or null to keep all headers.
+     * @return Map of the kept headers or the given map if all headers are kept.
+     */
+    static Map<String, List<String>> filter(Map<String, List<String>> headers, String[] names) {
+        if (headers == null || names == null) {
+            return headers;
+        }
+        if (names.length == 0) {
+            return Collections.emptyMap();
+        }
+
+        final Map<String, List<String>> filtered = new HashMap<>(names.length * 2);
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            for (String name : names) {
+                if (name.equalsIgnoreCase(entry.getKey())) {
+                    filtered.merge(name, entry.getValue(), (values, otherValues) -> {
+                        final List<String> merged = new ArrayList<>(values);
+                        merged.addAll(otherValues);
+                        return merged;
+                    });
+                    break;
+                }
+            }
+        }
+        return filtered;
+    }
+}
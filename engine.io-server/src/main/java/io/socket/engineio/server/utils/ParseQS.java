@@ -2,12 +2,10 @@ package io.socket.engineio.server.utils;
 
 
 import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public interface ParseQS {
 
@@ -26,23 +24,114 @@ public interface ParseQS {
                 .orElse("");
     }
 
-    static Map<String, String> decode(String qs) {
-        return Arrays.stream(qs.split("&"))
-                .map(s -> s.split("="))
-                .collect(Collectors.toMap(
-                        s -> {
-                            try {
-                                return URLDecoder.decode(s[0], StandardCharsets.UTF_8.name());
-                            } catch (UnsupportedEncodingException ignore) {
-                                throw new RuntimeException("This will never happen");
-                            }
-                        },
-                        s -> {
-                            try {
-                                return (s.length > 1) ? URLDecoder.decode(s[1], StandardCharsets.UTF_8.name()) : "";
-                            } catch (UnsupportedEncodingException ignore) {
-                                throw new RuntimeException("This will never happen");
-                            }
-                        }));
+    /**
+     * Decode a query string in a single pass.
+     * Keys and values are only percent-decoded if they contain an escape. For repeated keys
+     * the last value is kept. Insertion order is kept.
+     *
+     * @param qs Query string without the leading '?' or null.
+     * @return Mutable map of the decoded parameters.
+     * @throws IllegalArgumentException If the query string contains an invalid escape.
+     */
+    static Map<String, String> decode(String qs) throws IllegalArgumentException {
+        if (qs == null || qs.isEmpty()) {
+            return new SmallStringMap(4);
+        }
+
+        int count = 1;
+        for (int i = 0; i < qs.length(); i++) {
+            if (qs.charAt(i) == '&') {
+                count++;
+            }
+        }
+
+        // Lookups in the small map are linear, so long query strings are hashed instead
+        final Map<String, String> query = (count <= SmallStringMap.MAX_EXPECTED_SIZE)?
+                new SmallStringMap(count) : new LinkedHashMap<>(count * 4 / 3 + 1);
+        final int length = qs.length();
+        int start = 0;
+        while (start <= length) {
+            int end = qs.indexOf('&', start);
+            if (end < 0) {
+                end = length;
+            }
+
+            if (end > start) {
+                int separator = qs.indexOf('=', start);
+                if (separator < 0 || separator > end) {
+                    separator = end;
+                }
+
+                query.put(
+                        decodeComponent(qs, start, separator),
+                        (separator < end)? decodeComponent(qs, separator + 1, end) : "");
+            }
+
+            start = end + 1;
+        }
+
+        return query;
+    }
+
+    /**
+     * Decode a part of an application/x-www-form-urlencoded string as UTF-8.
+     *
+     * @param s String containing the part.
+     * @param start Start index of the part.
+     * @param end End index of the part, exclusive.
+     * @return Decoded part.
+     * @throws IllegalArgumentException If the part contains an invalid escape.
+     */
+    static String decodeComponent(String s, int start, int end) throws IllegalArgumentException {
+        int index = start;
+        while (index < end) {
+            final char c = s.charAt(index);
+            if (c == '%' || c == '+') {
+                break;
+            }
+            index++;
+        }
+        if (index == end) {
+            return s.substring(start, end);
+        }
+
+        final StringBuilder decoded = new StringBuilder(end - start);
+        decoded.append(s, start, index);
+
+        byte[] bytes = null;
+        while (index < end) {
+            final char c = s.charAt(index);
+            if (c == '+') {
+                decoded.append(' ');
+                index++;
+            } else if (c == '%') {
+                if (bytes == null) {
+                    bytes = new byte[(end - index) / 3];
+                }
+
+                // Consecutive escapes form one UTF-8 sequence
+                int count = 0;
+                while (index < end && s.charAt(index) == '%') {
+                    if (index + 2 >= end) {
+                        throw new IllegalArgumentException("Incomplete trailing escape (%) pattern");
+                    }
+
+                    final int high = Character.digit(s.charAt(index + 1), 16);
+                    final int low = Character.digit(s.charAt(index + 2), 16);
+                    if (high < 0 || low < 0) {
+                        throw new IllegalArgumentException("Illegal hex characters in escape (%) pattern");
+                    }
+
+                    bytes[count++] = (byte) ((high << 4) | low);
+                    index += 3;
+                }
+                decoded.append(new String(bytes, 0, count, StandardCharsets.UTF_8));
+            } else {
+                decoded.append(c);
+                index++;
+            }
+        }
+
+        return decoded.toString();
     }
 }
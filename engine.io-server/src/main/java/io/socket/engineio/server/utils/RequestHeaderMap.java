@@ -0,0 +1,74 @@
+package io.socket.engineio.server.utils;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Read-only map view of the headers of a request.
+ *
+ * Lookups ask the request directly, which matches header names ignoring case. Nothing is
+ * copied unless the view is iterated.
+ */
+final class RequestHeaderMap extends AbstractMap<String, List<String>> {
+
+    private final HttpServletRequest mRequest;
+
+    RequestHeaderMap(HttpServletRequest request) {
+        mRequest = request;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return (key instanceof String) && mRequest.getHeader((String) key) != null;
+    }
+
+    @Override
+    public List<String> get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+
+        final Enumeration<String> values = mRequest.getHeaders((String) key);
+        return (values != null && values.hasMoreElements())? Collections.list(values) : null;
+    }
+
+    @Override
+    public Set<Entry<String, List<String>>> entrySet() {
+        final Enumeration<String> headerNames = mRequest.getHeaderNames();
+        final List<String> names = (headerNames != null)? Collections.list(headerNames) : new ArrayList<>();
+
+        return new AbstractSet<Entry<String, List<String>>>() {
+
+            @Override
+            public Iterator<Entry<String, List<String>>> iterator() {
+                final Iterator<String> iterator = names.iterator();
+                return new Iterator<Entry<String, List<String>>>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, List<String>> next() {
+                        final String name = iterator.next();
+                        return new SimpleImmutableEntry<>(name, get(name));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return names.size();
+            }
+        };
+    }
+}
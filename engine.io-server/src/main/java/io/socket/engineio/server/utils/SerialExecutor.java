@@ -0,0 +1,63 @@
+package io.socket.engineio.server.utils;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks one at a time in submission order on another executor.
+ *
+ * At most one task of this executor is submitted to the underlying executor at any time,
+ * so tasks never run concurrently and each task sees the effects of the previous ones.
+ * No thread is held while the queue is empty.
+ * A task which throws is reported to the uncaught exception handler of the running
+ * thread and does not stop the tasks after it.
+ */
+public final class SerialExecutor implements Executor {
+
+    private final Executor mExecutor;
+    private final ConcurrentLinkedQueue<Runnable> mTasks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger mWip = new AtomicInteger(0);
+    private final Runnable mDrainTask = this::drain;
+
+    /**
+     * Create a serial executor.
+     *
+     * @param executor Executor to run tasks on.
+     */
+    public SerialExecutor(Executor executor) {
+        mExecutor = executor;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        mTasks.offer(task);
+        if (mWip.getAndIncrement() == 0) {
+            try {
+                mExecutor.execute(mDrainTask);
+            } catch (RejectedExecutionException ex) {
+                mTasks.clear();
+                mWip.set(0);
+                throw ex;
+            }
+        }
+    }
+
+    private void drain() {
+        int missed = 1;
+        do {
+            Runnable task;
+            while ((task = mTasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (Throwable ex) {
+                    final Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+                }
+            }
+
+            missed = mWip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+}
@@ -11,6 +11,16 @@ public interface ServerYeast {
     ThreadLocal<SecureRandom> THREAD_RANDOM = new ThreadLocal<>();
     char[] ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz-_".toCharArray();
 
+    /**
+     * Number of random bytes in a session id.
+     */
+    int SID_RANDOM_BYTES = 16;
+
+    /**
+     * Number of characters of a session id without prefix.
+     */
+    int SID_LENGTH = 22;
+
     static String yeast() {
         SecureRandom secureRandom = THREAD_RANDOM.get();
         if (secureRandom == null) {
@@ -22,13 +32,76 @@ public interface ServerYeast {
     }
 
     static String encode(long num) {
-        final StringBuilder encoded = new StringBuilder();
+        // 11 characters of 6 bits cover any non-negative long
+        final char[] encoded = new char[11];
+        int index = encoded.length;
         long dividedNum = num;
         do {
-            encoded.insert(0, ALPHABET[(int)(dividedNum % ALPHABET.length)]);
+            encoded[--index] = ALPHABET[(int)(dividedNum % ALPHABET.length)];
             dividedNum = dividedNum / ALPHABET.length;
         } while (dividedNum > 0);
 
-        return encoded.toString();
+        return new String(encoded, index, encoded.length - index);
+    }
+
+    /**
+     * Generate a session id of 128 random bits.
+     * The id always has {@link #SID_LENGTH} characters from {@link #ALPHABET}.
+     *
+     * @return New session id.
+     */
+    static String sid() {
+        return sid(null);
+    }
+
+    /**
+     * Generate a session id of 128 random bits after a prefix.
+     * The random part always has {@link #SID_LENGTH} characters from {@link #ALPHABET}.
+     *
+     * @param prefix Prefix such as a node id or null for none.
+     * @return New session id.
+     */
+    static String sid(String prefix) {
+        final byte[] bytes = SidRandom.get().nextBytes();
+        final int prefixLength = (prefix != null)? prefix.length() : 0;
+        final char[] chars = new char[prefixLength + SID_LENGTH];
+        if (prefixLength > 0) {
+            prefix.getChars(0, prefixLength, chars, 0);
+        }
+
+        // 3 bytes to 4 characters, the 16th byte gives the last 2 characters
+        int charIndex = prefixLength;
+        int byteIndex = 0;
+        while (byteIndex + 3 <= bytes.length) {
+            final int bits = ((bytes[byteIndex] & 0xff) << 16) |
+                    ((bytes[byteIndex + 1] & 0xff) << 8) |
+                    (bytes[byteIndex + 2] & 0xff);
+            chars[charIndex++] = ALPHABET[(bits >>> 18) & 0x3f];
+            chars[charIndex++] = ALPHABET[(bits >>> 12) & 0x3f];
+            chars[charIndex++] = ALPHABET[(bits >>> 6) & 0x3f];
+            chars[charIndex++] = ALPHABET[bits & 0x3f];
+            byteIndex += 3;
+        }
+        final int last = bytes[byteIndex] & 0xff;
+        chars[charIndex++] = ALPHABET[last >>> 2];
+        chars[charIndex] = ALPHABET[last & 0x03];
+
+        return new String(chars);
+    }
+
+    /**
+     * Check whether a session id prefix only uses characters of {@link #ALPHABET}.
+     *
+     * @param prefix Prefix to check.
+     * @return True if the prefix can be used.
+     */
+    static boolean isValidPrefix(String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            final char c = prefix.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || c == '-' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
     }
 }
@@ -0,0 +1,57 @@
+package io.socket.engineio.server.utils;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Per-thread random source for session ids.
+ *
+ * The default {@link SecureRandom} on Linux reads from the kernel under a global lock on
+ * every call. Each thread instead uses its own DRBG, or SHA1PRNG on JVMs without it,
+ * seeded once from the default source, and reuses one byte array for the random bits.
+ */
+final class SidRandom {
+
+    private static final ThreadLocal<SidRandom> THREAD_RANDOM = ThreadLocal.withInitial(SidRandom::new);
+
+    private final SecureRandom mRandom = newRandom();
+    private final byte[] mBytes = new byte[ServerYeast.SID_RANDOM_BYTES];
+
+    private SidRandom() {
+    }
+
+    /**
+     * Gets the random source of the current thread.
+     */
+    static SidRandom get() {
+        return THREAD_RANDOM.get();
+    }
+
+    /**
+     * Fill the reused byte array with new random bytes.
+     *
+     * @return Random bytes, only valid until the next call on the same thread.
+     */
+    byte[] nextBytes() {
+        mRandom.nextBytes(mBytes);
+        return mBytes;
+    }
+
+    private static SecureRandom newRandom() {
+        try {
+            // Seeds itself from the default entropy source
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException ignore) {
+        }
+
+        try {
+            final SecureRandom random = SecureRandom.getInstance("SHA1PRNG");
+            final byte[] seed = new byte[32];
+            new SecureRandom().nextBytes(seed);
+            random.setSeed(seed);
+            return random;
+        } catch (NoSuchAlgorithmException ignore) {
+            return new SecureRandom();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package io.socket.engineio.server.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Map of strings backed by a single array of keys and values.
+ *
+ * Lookups scan the array, which is faster and much smaller than hashing for the handful
+ * of parameters in an engine.io query string. Insertion order is kept.
+ */
+final class SmallStringMap extends AbstractMap<String, String> {
+
+    /**
+     * Number of entries up to which a scan beats hashing. Larger maps should be hashed.
+     */
+    static final int MAX_EXPECTED_SIZE = 8;
+
+    private String[] mEntries;
+    private int mSize;
+
+    SmallStringMap(int expectedSize) {
+        mEntries = new String[Math.max(expectedSize, 1) * 2];
+        mSize = 0;
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public String get(Object key) {
+        final int index = indexOf(key);
+        return (index >= 0)? mEntries[index * 2 + 1] : null;
+    }
+
+    @Override
+    public String put(String key, String value) {
+        final int index = indexOf(key);
+        if (index >= 0) {
+            final String previous = mEntries[index * 2 + 1];
+            mEntries[index * 2 + 1] = value;
+            return previous;
+        }
+
+        if (mSize * 2 == mEntries.length) {
+            mEntries = Arrays.copyOf(mEntries, mEntries.length * 2);
+        }
+        mEntries[mSize * 2] = key;
+        mEntries[mSize * 2 + 1] = value;
+        mSize++;
+        return null;
+    }
+
+    @Override
+    public String remove(Object key) {
+        final int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+
+        final String previous = mEntries[index * 2 + 1];
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(mEntries, 0, mSize * 2, null);
+        mSize = 0;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return mSize;
+            }
+        };
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < mSize; i++) {
+            if (Objects.equals(mEntries[i * 2], key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(mEntries, (index + 1) * 2, mEntries, index * 2, (mSize - index - 1) * 2);
+        mSize--;
+        mEntries[mSize * 2] = null;
+        mEntries[mSize * 2 + 1] = null;
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, String>> {
+
+        private int mNext = 0;
+        private int mLast = -1;
+
+        @Override
+        public boolean hasNext() {
+            return mNext < mSize;
+        }
+
+        @Override
+        public Entry<String, String> next() {
+            if (mNext >= mSize) {
+                throw new NoSuchElementException();
+            }
+
+            mLast = mNext++;
+            final int index = mLast;
+            return new SimpleEntry<String, String>(mEntries[index * 2], mEntries[index * 2 + 1]) {
+
+                @Override
+                public String setValue(String value) {
+                    super.setValue(value);
+                    return put(getKey(), value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (mLast < 0) {
+                throw new IllegalStateException();
+            }
+
+            removeAt(mLast);
+            mNext = mLast;
+            mLast = -1;
+        }
+    }
+}
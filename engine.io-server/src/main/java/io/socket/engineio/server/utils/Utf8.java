@@ -0,0 +1,137 @@
+package io.socket.engineio.server.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
+
+/**
+ * Encoding of strings and numbers directly into output streams.
+ */
+public final class Utf8 {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * Scratch buffers so that strings can be encoded into a stream without allocating an
+     * intermediate byte array for every call. The buffers are softly referenced, so the
+     * buffers of idle or short-lived threads can be reclaimed under memory pressure.
+     */
+    private static final ThreadLocal<SoftReference<byte[]>> THREAD_BUFFER = new ThreadLocal<>();
+
+    private Utf8() {
+    }
+
+    /**
+     * Write the UTF-8 encoding of the string to the output stream.
+     * Unpaired surrogates are replaced with '?' to match {@link String#getBytes(java.nio.charset.Charset)}.
+     *
+     * @param input The string to encode.
+     * @param outputStream The stream to write to.
+     * @throws IOException On write error.
+     */
+    public static void write(CharSequence input, OutputStream outputStream) throws IOException {
+        final byte[] buffer = threadBuffer();
+
+        final int length = input.length();
+        int position = 0;
+        for (int i = 0; i < length; i++) {
+            if (position > BUFFER_SIZE - 4) {
+                outputStream.write(buffer, 0, position);
+                position = 0;
+            }
+
+            final char ch = input.charAt(i);
+            if (ch < 0x80) {
+                buffer[position++] = (byte) ch;
+            } else if (ch < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (ch >> 6));
+                buffer[position++] = (byte) (0x80 | (ch & 0x3F));
+            } else if (Character.isSurrogate(ch)) {
+                if (Character.isHighSurrogate(ch) && (i + 1 < length) && Character.isLowSurrogate(input.charAt(i + 1))) {
+                    final int codePoint = Character.toCodePoint(ch, input.charAt(++i));
+                    buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    buffer[position++] = (byte) '?';
+                }
+            } else {
+                buffer[position++] = (byte) (0xE0 | (ch >> 12));
+                buffer[position++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (ch & 0x3F));
+            }
+        }
+
+        if (position > 0) {
+            outputStream.write(buffer, 0, position);
+        }
+    }
+
+    /**
+     * Gets the number of bytes of the UTF-8 encoding of the string.
+     * Unpaired surrogates count as one byte as they are encoded as '?'.
+     *
+     * @param input The string to measure.
+     * @return Encoded length in bytes.
+     */
+    public static long encodedLength(CharSequence input) {
+        final int length = input.length();
+        long encodedLength = length;
+        for (int i = 0; i < length; i++) {
+            final char ch = input.charAt(i);
+            if (ch >= 0x800) {
+                if (Character.isHighSurrogate(ch) && (i + 1 < length) && Character.isLowSurrogate(input.charAt(i + 1))) {
+                    encodedLength += 2;
+                    i++;
+                } else if (!Character.isSurrogate(ch)) {
+                    encodedLength += 2;
+                }
+            } else if (ch >= 0x80) {
+                encodedLength += 1;
+            }
+        }
+        return encodedLength;
+    }
+
+    /**
+     * Write the decimal representation of a non-negative integer as ASCII digits.
+     *
+     * @param value The value to write.
+     * @param outputStream The stream to write to.
+     * @throws IOException On write error.
+     */
+    public static void writeDecimal(int value, OutputStream outputStream) throws IOException {
+        writeDigits(value, '0', outputStream);
+    }
+
+    /**
+     * Write the decimal digits of a non-negative integer, most significant first, each as
+     * one byte of the value zero plus the digit.
+     *
+     * @param value The value to write.
+     * @param zero Byte value of the digit 0, for example '0' for ASCII or 0 for raw digits.
+     * @param outputStream The stream to write to.
+     * @throws IOException On write error.
+     */
+    public static void writeDigits(int value, int zero, OutputStream outputStream) throws IOException {
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            outputStream.write(zero + ((value / divisor) % 10));
+            divisor /= 10;
+        }
+    }
+
+    private static byte[] threadBuffer() {
+        final SoftReference<byte[]> reference = THREAD_BUFFER.get();
+        byte[] buffer = (reference != null)? reference.get() : null;
+        if (buffer == null) {
+            buffer = new byte[BUFFER_SIZE];
+            THREAD_BUFFER.set(new SoftReference<>(buffer));
+        }
+        return buffer;
+    }
+}
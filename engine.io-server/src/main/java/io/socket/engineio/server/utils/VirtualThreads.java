@@ -0,0 +1,44 @@
+package io.socket.engineio.server.utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads on JVMs which support them.
+ * Looked up reflectively since the library targets Java 8.
+ */
+public interface VirtualThreads {
+
+    String EXECUTOR_FACTORY_METHOD = "newVirtualThreadPerTaskExecutor";
+
+    /**
+     * Checks whether the running JVM supports virtual threads.
+     */
+    static boolean isSupported() {
+        try {
+            Executors.class.getMethod(EXECUTOR_FACTORY_METHOD);
+            return true;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Create an executor which starts a new virtual thread for each task.
+     *
+     * @return New executor service.
+     * @throws UnsupportedOperationException If the JVM does not support virtual threads.
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor() throws UnsupportedOperationException {
+        try {
+            final Method method = Executors.class.getMethod(EXECUTOR_FACTORY_METHOD);
+            return (ExecutorService) method.invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this JVM.", ex);
+        } catch (InvocationTargetException ex) {
+            throw new UnsupportedOperationException("Virtual threads are not available.", ex.getCause());
+        }
+    }
+}
@@ -17,6 +17,7 @@ import java.lang.management.ThreadMXBean;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
 
 public final class DeadLockTest {
 
@@ -26,7 +27,7 @@ public final class DeadLockTest {
 	 */
 	@Test
 	public void testTransportDeadlock() {
-		final Object lockObject = new Object();
+		final ReentrantLock lockObject = new ReentrantLock();
 		final EngineIoSocket socket = new EngineIoSocket(lockObject,
 				ServerYeast.yeast(),
 				ParserV4.PROTOCOL,
@@ -171,4 +171,51 @@ public final class EmitterTest {
         Mockito.verify(listener0, Mockito.times(2)).call();
         Mockito.verify(listener1, Mockito.times(2)).call();
     }
+
+    @Test
+    public void testListenersOfAfterOff() {
+        final Emitter emitter = new Emitter() {
+            @Override
+            boolean retainsListeners(String event) {
+                return event.equals("event");
+            }
+        };
+        final ListenerArray<Emitter.Listener> callbacks = emitter.listenersOf("event");
+
+        final Emitter.Listener listener0 = Mockito.mock(Emitter.Listener.class);
+        final Emitter.Listener listener1 = Mockito.mock(Emitter.Listener.class);
+
+        emitter.on("event", listener0);
+        emitter.off("event");
+        emitter.on("event", listener1);
+        emitter.off();
+        emitter.on("event", listener1);
+
+        Emitter.emit(callbacks, new Object[] { "Engine.IO" });
+
+        Mockito.verify(listener0, Mockito.times(0)).call(Mockito.any());
+        Mockito.verify(listener1, Mockito.times(1)).call(Mockito.eq("Engine.IO"));
+        Assert.assertEquals(1, emitter.listeners("event").size());
+    }
+
+    @Test
+    public void testOffRemovesEvent() {
+        final Emitter emitter = new Emitter();
+        final ListenerArray<Emitter.Listener> callbacks = emitter.listenersOf("event");
+
+        final Emitter.Listener listener = Mockito.mock(Emitter.Listener.class);
+
+        emitter.on("event", listener);
+        emitter.off("event");
+        Assert.assertFalse(emitter.hasListeners("event"));
+
+        // The event is registered anew rather than reusing the dropped array
+        emitter.on("event", listener);
+        Assert.assertTrue(callbacks.isEmpty());
+        Assert.assertNotSame(callbacks, emitter.listenersOf("event"));
+
+        emitter.off();
+        Assert.assertNotSame(callbacks, emitter.listenersOf("event"));
+        Assert.assertFalse(emitter.hasListeners("event"));
+    }
 }
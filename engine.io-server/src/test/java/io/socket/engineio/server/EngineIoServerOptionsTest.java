@@ -1,7 +1,9 @@
 package io.socket.engineio.server;
 
 import io.socket.engineio.server.parser.Packet;
+import io.socket.engineio.server.utils.VirtualThreads;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
 public final class EngineIoServerOptionsTest {
@@ -58,4 +60,41 @@ public final class EngineIoServerOptionsTest {
 
         options.setPingTimeout(1000);
     }
-}
\ No newline at end of file
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetPingTimerTickDuration_error() {
+        EngineIoServerOptions.newFromDefault().setPingTimerTickDuration(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetHttpCompressionThreshold_error() {
+        EngineIoServerOptions.newFromDefault().setHttpCompressionThreshold(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetMaxHttpBufferSize_error() {
+        EngineIoServerOptions.newFromDefault().setMaxHttpBufferSize(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetMaxConnections_error() {
+        EngineIoServerOptions.newFromDefault().setMaxConnections(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetHandshakeRateLimit_error() {
+        EngineIoServerOptions.newFromDefault().setHandshakeRateLimit(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetSidPrefix_error() {
+        EngineIoServerOptions.newFromDefault().setSidPrefix("node 1");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSetVirtualThreadEventDispatchEnabled_unsupported() {
+        Assume.assumeFalse(VirtualThreads.isSupported());
+
+        EngineIoServerOptions.newFromDefault().setVirtualThreadEventDispatchEnabled(true);
+    }
+}
@@ -1,20 +1,29 @@
 package io.socket.engineio.server;
 
+import io.socket.engineio.server.metrics.SimpleEngineIoMetrics;
+import io.socket.engineio.server.parser.Packet;
 import io.socket.engineio.server.transport.Polling;
 import io.socket.engineio.server.utils.ParseQS;
 import io.socket.engineio.server.utils.ServerYeast;
 import jakarta.servlet.http.HttpServletRequest;
 import org.json.JSONObject;
 import org.junit.Test;
+import org.mockito.AdditionalMatchers;
 import org.mockito.Mockito;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
 public final class EngineIoServerTest {
@@ -23,14 +32,20 @@ public final class EngineIoServerTest {
 
         private final Map<String, String> mQuery;
         private final Map<String, List<String>> mHeaders;
+        private final String mRemoteAddress;
 
         WebSocketConnectionStub() {
             this(new HashMap<>(), new HashMap<>());
         }
 
         WebSocketConnectionStub(Map<String, String> query, Map<String, List<String>> headers) {
+            this(query, headers, null);
+        }
+
+        WebSocketConnectionStub(Map<String, String> query, Map<String, List<String>> headers, String remoteAddress) {
             mQuery = query;
             mHeaders = headers;
+            mRemoteAddress = remoteAddress;
         }
 
         @Override
@@ -43,6 +58,11 @@ public final class EngineIoServerTest {
             return mHeaders;
         }
 
+        @Override
+        public String getRemoteAddress() {
+            return mRemoteAddress;
+        }
+
         @Override
         public void write(String message) {
         }
@@ -163,6 +183,43 @@ public final class EngineIoServerTest {
                 .call(Mockito.any(EngineIoSocket.class));
     }
 
+    @Test
+    public void testHandleRequest_retainedHeaders() throws IOException {
+        final List<String> interceptedCookie = new ArrayList<>();
+        final EngineIoServerOptions options = EngineIoServerOptions.newFromDefault()
+                .setAllowSyncPolling(true)
+                .setRetainedHeaders(new String[] { "Cookie" });
+        options.setHandshakeInterceptor((query, headers) -> {
+            interceptedCookie.addAll(headers.get("cookie"));
+            return headers.containsKey("User-Agent");
+        });
+        final EngineIoServer server = new EngineIoServer(options);
+
+        final HttpServletRequest request = getConnectRequest(new HashMap<String, String>() {{
+            put("transport", Polling.NAME);
+        }});
+        Mockito.doAnswer(invocationOnMock -> {
+            final String name = invocationOnMock.getArgument(0);
+            return Collections.enumeration(name.equalsIgnoreCase("Cookie")?
+                    Collections.singletonList("a=b") :
+                    (name.equalsIgnoreCase("User-Agent")? Collections.singletonList("test") : Collections.<String>emptyList()));
+        }).when(request).getHeaders(Mockito.anyString());
+        Mockito.doAnswer(invocationOnMock -> {
+            final String name = invocationOnMock.getArgument(0);
+            return (name.equalsIgnoreCase("Cookie") || name.equalsIgnoreCase("User-Agent"))? "value" : null;
+        }).when(request).getHeader(Mockito.anyString());
+
+        final List<EngineIoSocket> sockets = new ArrayList<>();
+        server.on("connection", args -> sockets.add((EngineIoSocket) args[0]));
+
+        server.handleRequest(request, new HttpServletResponseImpl());
+
+        assertEquals(Collections.singletonList("a=b"), interceptedCookie);
+        assertEquals(1, sockets.size());
+        assertEquals(Collections.singletonMap("Cookie", Collections.singletonList("a=b")), sockets.get(0).getInitialHeaders());
+        Mockito.verify(request, Mockito.never()).getHeaderNames();
+    }
+
     @Test
     public void testHandleWebSocket_connect() {
         final EngineIoServer server = new EngineIoServer();
@@ -178,6 +235,125 @@ public final class EngineIoServerTest {
                 .call(Mockito.any(EngineIoSocket.class));
     }
 
+    @Test
+    public void testHandleWebSocket_compressionHints() {
+        final EngineIoWebSocket webSocket = new WebSocketConnectionStub();
+        new EngineIoServer().handleWebSocket(webSocket);
+        assertFalse(webSocket.isCompressionAllowed(4096));
+
+        final EngineIoServer server = new EngineIoServer(EngineIoServerOptions.newFromDefault()
+                .setPerMessageDeflateEnabled(true)
+                .setPerMessageDeflateThreshold(100));
+        final EngineIoWebSocket deflateWebSocket = new WebSocketConnectionStub();
+        server.handleWebSocket(deflateWebSocket);
+        assertFalse(deflateWebSocket.isCompressionAllowed(99));
+        assertTrue(deflateWebSocket.isCompressionAllowed(100));
+    }
+
+    @Test
+    public void testBroadcast() throws IOException {
+        final EngineIoServer server = new EngineIoServer();
+
+        final Map<String, String> queryV3 = new HashMap<>();
+        queryV3.put("EIO", "3");
+        final Map<String, String> queryV4 = new HashMap<>();
+        queryV4.put("EIO", "4");
+        final EngineIoWebSocket webSocketV3 = Mockito.spy(new WebSocketConnectionStub(queryV3, new HashMap<>()));
+        final EngineIoWebSocket webSocketV4 = Mockito.spy(new WebSocketConnectionStub(queryV4, new HashMap<>()));
+        server.handleWebSocket(webSocketV3);
+        server.handleWebSocket(webSocketV4);
+
+        server.broadcast(new Packet<>(Packet.MESSAGE, "Engine.IO"));
+        server.broadcast(new Packet<>(Packet.MESSAGE, new byte[] { 1, 2, 3 }));
+
+        Mockito.verify(webSocketV3, Mockito.times(1))
+                .write(Mockito.eq("4Engine.IO"));
+        Mockito.verify(webSocketV4, Mockito.times(1))
+                .write(Mockito.eq("4Engine.IO"));
+        Mockito.verify(webSocketV3, Mockito.times(1))
+                .write(AdditionalMatchers.aryEq(new byte[] { 4, 1, 2, 3 }));
+        Mockito.verify(webSocketV4, Mockito.times(1))
+                .write(AdditionalMatchers.aryEq(new byte[] { 1, 2, 3 }));
+    }
+
+    @Test
+    public void testHandleWebSocket_sidPrefix() {
+        final EngineIoServer server = new EngineIoServer(EngineIoServerOptions.newFromDefault()
+                .setSidPrefix("node-1_"));
+
+        final List<EngineIoSocket> sockets = new ArrayList<>();
+        server.on("connection", args -> sockets.add((EngineIoSocket) args[0]));
+        server.handleWebSocket(new WebSocketConnectionStub());
+        server.handleWebSocket(new WebSocketConnectionStub());
+
+        for (EngineIoSocket socket : sockets) {
+            assertTrue(socket.getId().startsWith("node-1_"));
+            assertEquals("node-1_".length() + ServerYeast.SID_LENGTH, socket.getId().length());
+            assertTrue(socket.getId().matches("[0-9A-Za-z_-]+"));
+        }
+        assertNotEquals(sockets.get(0).getId(), sockets.get(1).getId());
+    }
+
+    @Test
+    public void testGroups() throws IOException {
+        final EngineIoServer server = new EngineIoServer();
+
+        final List<EngineIoSocket> sockets = new ArrayList<>();
+        server.on("connection", args -> sockets.add((EngineIoSocket) args[0]));
+
+        final EngineIoWebSocket webSocket1 = Mockito.spy(new WebSocketConnectionStub());
+        final EngineIoWebSocket webSocket2 = Mockito.spy(new WebSocketConnectionStub());
+        server.handleWebSocket(webSocket1);
+        server.handleWebSocket(webSocket2);
+        final String sid1 = sockets.get(0).getId();
+        final String sid2 = sockets.get(1).getId();
+
+        assertTrue(server.joinGroup("a", sid1));
+        assertTrue(server.joinGroup("a", sid2));
+        assertTrue(server.joinGroup("b", sid2));
+        assertFalse(server.joinGroup("a", "unknown"));
+        assertEquals(2, server.getGroupMembers("a").size());
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), server.getGroups(sid2));
+
+        server.sendToGroup("b", new Packet<>(Packet.MESSAGE, "Engine.IO"));
+        Mockito.verify(webSocket1, Mockito.never())
+                .write(Mockito.eq("4Engine.IO"));
+        Mockito.verify(webSocket2, Mockito.times(1))
+                .write(Mockito.eq("4Engine.IO"));
+
+        assertTrue(server.leaveGroup("a", sid1));
+        assertEquals(Collections.singleton(sockets.get(1)), server.getGroupMembers("a"));
+        assertTrue(server.getGroups(sid1).isEmpty());
+
+        webSocket2.emit("close");
+        assertTrue(server.getGroupMembers("a").isEmpty());
+        assertTrue(server.getGroupMembers("b").isEmpty());
+        assertTrue(server.getGroupNames().isEmpty());
+        assertFalse(server.joinGroup("a", sid2));
+    }
+
+    @Test
+    public void testGetHandshakeJson() {
+        final EngineIoServer server = new EngineIoServer(EngineIoServerOptions.newFromDefault()
+                .setPingInterval(1500)
+                .setPingTimeout(2500)
+                .setMaxHttpBufferSize(4096));
+        final String sid = ServerYeast.yeast();
+
+        assertEquals(
+                String.format("{\"sid\": \"%s\", \"upgrades\": [\"websocket\"], \"pingInterval\": 1500, \"pingTimeout\": 2500}", sid),
+                server.getHandshakeJson(sid, 3, true));
+        assertEquals(
+                String.format("{\"sid\": \"%s\", \"upgrades\": [], \"pingInterval\": 1500, \"pingTimeout\": 2500}", sid),
+                server.getHandshakeJson(sid, 3, false));
+        assertEquals(
+                String.format("{\"sid\": \"%s\", \"upgrades\": [\"websocket\"], \"pingInterval\": 1500, \"pingTimeout\": 2500, \"maxPayload\": 4096}", sid),
+                server.getHandshakeJson(sid, 4, true));
+
+        final JSONObject jsonObject = new JSONObject(server.getHandshakeJson("a\"b", 4, true));
+        assertEquals("a\"b", jsonObject.getString("sid"));
+    }
+
     @Test
     public void testCors_all() throws IOException {
         final String origin = "http://www.example.com";
@@ -279,6 +455,64 @@ public final class EngineIoServerTest {
     }
 
     @SuppressWarnings("SuspiciousMethodCalls")
+    @Test
+    public void testHandleRequest_handshakeRateLimit() throws IOException {
+        final SimpleEngineIoMetrics metrics = new SimpleEngineIoMetrics();
+        final EngineIoServer server = new EngineIoServer(EngineIoServerOptions.newFromDefault()
+                .setAllowSyncPolling(true)
+                .setMetrics(metrics)
+                .setHandshakeRateLimit(1));
+        final Map<String, String> query = new HashMap<String, String>() {{
+            put("transport", Polling.NAME);
+        }};
+
+        server.handleRequest(getConnectRequest(query), new HttpServletResponseImpl());
+        final HttpServletResponseImpl response = new HttpServletResponseImpl();
+        server.handleRequest(getConnectRequest(query), response);
+
+        assertEquals(1, server.getClients().size());
+        assertEquals(1, metrics.getRejectedHandshakes());
+        assertEquals(503, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        response.flushWriterIfNecessary();
+        final JSONObject responseObject = new JSONObject(new String(response.getByteOutputStream().toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(ServerErrors.TOO_MANY_HANDSHAKES.getCode(), (int) responseObject.get("code"));
+        assertEquals(ServerErrors.TOO_MANY_HANDSHAKES.getMessage(), responseObject.get("message"));
+    }
+
+    @Test
+    public void testHandleWebSocket_maxConnections() {
+        final EngineIoServer server = new EngineIoServer(EngineIoServerOptions.newFromDefault()
+                .setMaxConnections(1));
+
+        final EngineIoWebSocket webSocket1 = new WebSocketConnectionStub();
+        server.handleWebSocket(webSocket1);
+        server.handleWebSocket(new WebSocketConnectionStub());
+        assertEquals(1, server.getClients().size());
+
+        // Closing a client frees its slot
+        webSocket1.emit("close");
+        assertEquals(0, server.getClients().size());
+        server.handleWebSocket(new WebSocketConnectionStub());
+        assertEquals(1, server.getClients().size());
+    }
+
+    @Test
+    public void testHandleWebSocket_maxConnectionsPerAddress() {
+        final EngineIoServer server = new EngineIoServer(EngineIoServerOptions.newFromDefault()
+                .setMaxConnectionsPerAddress(1));
+
+        server.handleWebSocket(new WebSocketConnectionStub(new HashMap<>(), new HashMap<>(), "10.0.0.1"));
+        server.handleWebSocket(new WebSocketConnectionStub(new HashMap<>(), new HashMap<>(), "10.0.0.1"));
+        server.handleWebSocket(new WebSocketConnectionStub(new HashMap<>(), new HashMap<>(), "10.0.0.2"));
+
+        // Clients without a known address are not limited per address
+        server.handleWebSocket(new WebSocketConnectionStub());
+        server.handleWebSocket(new WebSocketConnectionStub());
+
+        assertEquals(4, server.getClients().size());
+    }
+
     private HttpServletRequest getConnectRequest(final Map<String, String> query) {
         final HashMap<String, Object> attributes = new HashMap<>();
         HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
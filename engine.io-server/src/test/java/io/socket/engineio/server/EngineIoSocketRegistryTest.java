@@ -0,0 +1,114 @@
+package io.socket.engineio.server;
+
+import io.socket.engineio.server.parser.ParserV4;
+import io.socket.engineio.server.utils.ServerYeast;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public final class EngineIoSocketRegistryTest {
+
+    private final EngineIoServer mServer = new EngineIoServer();
+    private final ScheduledExecutorService mPingTimeoutHandler = Executors.newSingleThreadScheduledExecutor();
+
+    @Test
+    public void testAddRemove() {
+        final EngineIoSocketRegistry registry = new EngineIoSocketRegistry(4);
+        final EngineIoSocket socket = createSocket();
+
+        assertTrue(registry.isEmpty());
+        assertNull(registry.get(socket.getId()));
+
+        registry.add(socket);
+        registry.add(socket);
+        assertEquals(1, registry.size());
+        assertSame(socket, registry.get(socket.getId()));
+
+        registry.remove(socket);
+        registry.remove(socket);
+        assertEquals(0, registry.size());
+        assertNull(registry.get(socket.getId()));
+    }
+
+    @Test
+    public void testShardCount() {
+        assertEquals(1, new EngineIoSocketRegistry(0).getShardCount());
+        assertEquals(8, new EngineIoSocketRegistry(5).getShardCount());
+        assertEquals(64, new EngineIoSocketRegistry(1000).getShardCount());
+    }
+
+    @Test
+    public void testIteration() {
+        final EngineIoSocketRegistry registry = new EngineIoSocketRegistry(8);
+        final Set<EngineIoSocket> sockets = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            final EngineIoSocket socket = createSocket();
+            sockets.add(socket);
+            registry.add(socket);
+        }
+
+        final Set<EngineIoSocket> iterated = new HashSet<>();
+        for (EngineIoSocket socket : registry) {
+            assertTrue(iterated.add(socket));
+        }
+        assertEquals(sockets, iterated);
+
+        final Set<EngineIoSocket> forEach = new HashSet<>();
+        registry.forEach(forEach::add);
+        assertEquals(sockets, forEach);
+
+        assertEquals(sockets, registry.stream(true).collect(Collectors.toSet()));
+
+        registry.clear();
+        assertEquals(0, registry.size());
+        assertFalse(registry.iterator().hasNext());
+    }
+
+    @Test
+    public void testSpliterator() {
+        final EngineIoSocketRegistry registry = new EngineIoSocketRegistry(8);
+        for (int i = 0; i < 100; i++) {
+            registry.add(createSocket());
+        }
+
+        final Spliterator<EngineIoSocket> spliterator = registry.spliterator();
+        assertEquals(100, spliterator.estimateSize());
+        assertTrue(spliterator.hasCharacteristics(Spliterator.CONCURRENT));
+
+        final List<Spliterator<EngineIoSocket>> parts = new ArrayList<>();
+        parts.add(spliterator);
+        for (int i = 0; i < 3; i++) {
+            final List<Spliterator<EngineIoSocket>> split = new ArrayList<>();
+            for (Spliterator<EngineIoSocket> part : parts) {
+                final Spliterator<EngineIoSocket> prefix = part.trySplit();
+                if (prefix != null) {
+                    split.add(prefix);
+                }
+                split.add(part);
+            }
+            parts.clear();
+            parts.addAll(split);
+        }
+        assertEquals(8, parts.size());
+
+        final Set<EngineIoSocket> sockets = new HashSet<>();
+        for (Spliterator<EngineIoSocket> part : parts) {
+            part.forEachRemaining(socket -> assertTrue(sockets.add(socket)));
+        }
+        assertEquals(100, sockets.size());
+    }
+
+    private EngineIoSocket createSocket() {
+        return new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, mServer, mPingTimeoutHandler);
+    }
+}
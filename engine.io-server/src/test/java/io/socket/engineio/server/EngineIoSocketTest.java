@@ -1,23 +1,37 @@
 package io.socket.engineio.server;
 
+import io.socket.engineio.server.metrics.EngineIoMetrics;
 import io.socket.engineio.server.parser.Packet;
 import io.socket.engineio.server.parser.Parser;
 import io.socket.engineio.server.parser.ParserV4;
 import io.socket.engineio.server.transport.Polling;
 import io.socket.engineio.server.transport.WebSocket;
+import io.socket.engineio.server.utils.HashedWheelTimer;
 import io.socket.engineio.server.utils.ServerYeast;
+import io.socket.engineio.server.utils.VirtualThreads;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.json.JSONObject;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 public final class EngineIoSocketTest {
 
@@ -61,12 +75,50 @@ public final class EngineIoSocketTest {
         }
     }
 
+    /**
+     * Hashed wheel timer on a manually advanced clock.
+     * Ticks and expired tasks run on the thread calling {@link #advance(long)}.
+     */
+    private static final class ManualPingTimer {
+
+        private final AtomicLong mNow = new AtomicLong(0);
+        private final long mTickDuration;
+        private final HashedWheelTimer mTimer;
+        private Runnable mTick;
+
+        ManualPingTimer(long tickDuration) {
+            final ScheduledExecutorService executor = Mockito.mock(ScheduledExecutorService.class);
+            Mockito.doAnswer(invocationOnMock -> {
+                mTick = invocationOnMock.getArgument(0);
+                return Mockito.mock(ScheduledFuture.class);
+            }).when(executor).scheduleAtFixedRate(Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.anyLong(), Mockito.any(TimeUnit.class));
+            Mockito.doAnswer(invocationOnMock -> {
+                invocationOnMock.<Runnable>getArgument(0).run();
+                return null;
+            }).when(executor).execute(Mockito.any(Runnable.class));
+
+            mTickDuration = tickDuration;
+            mTimer = new HashedWheelTimer(executor, tickDuration, TimeUnit.MILLISECONDS, 64, mNow::get);
+        }
+
+        HashedWheelTimer getTimer() {
+            return mTimer;
+        }
+
+        void advance(long millis) {
+            for (long elapsed = 0; elapsed < millis; elapsed += mTickDuration) {
+                mNow.addAndGet(TimeUnit.MILLISECONDS.toNanos(Math.min(mTickDuration, millis - elapsed)));
+                mTick.run();
+            }
+        }
+    }
+
     private final ScheduledExecutorService mPingTimeoutHandler = Executors.newSingleThreadScheduledExecutor();
 
     @Test
     public void testInit() {
         final Transport transport = Mockito.spy(new StubTransport());
-        final EngineIoSocket socket = Mockito.spy(new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler));
+        final EngineIoSocket socket = Mockito.spy(new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler));
 
         Mockito.doAnswer(invocationOnMock -> {
             final List<Packet<?>> packetList = invocationOnMock.getArgument(0);
@@ -100,7 +152,7 @@ public final class EngineIoSocketTest {
                 .setInitialPacket(initialPacket);
 
         final Transport transport = Mockito.spy(new StubTransport());
-        final EngineIoSocket socket = Mockito.spy(new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(options), mPingTimeoutHandler));
+        final EngineIoSocket socket = Mockito.spy(new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(options), mPingTimeoutHandler));
 
         Mockito.doAnswer(invocationOnMock -> {
             final List<Packet<?>> packetList = invocationOnMock.getArgument(0);
@@ -121,7 +173,7 @@ public final class EngineIoSocketTest {
     @Test
     public void testOnRequest() throws IOException {
         final Transport transport = Mockito.spy(new StubTransport());
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
         socket.init(transport);
 
         final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
@@ -137,7 +189,7 @@ public final class EngineIoSocketTest {
     @Test
     public void testSend() {
         final Transport transport = Mockito.spy(new StubTransport());
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
         socket.init(transport);
 
         final Packet<String> packet = new Packet<>(Packet.MESSAGE, "TestMessage");
@@ -163,7 +215,7 @@ public final class EngineIoSocketTest {
     @Test
     public void testSend_delayed() {
         final Transport transport = Mockito.spy(new StubTransport());
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
         socket.init(transport);
 
         Mockito.doAnswer(invocationOnMock -> false).when(transport).isWritable();
@@ -193,10 +245,151 @@ public final class EngineIoSocketTest {
                 .send(Mockito.anyList());
     }
 
+    @Test
+    public void testSend_concurrent() throws InterruptedException {
+        final int threadCount = 8;
+        final int packetCount = 1000;
+
+        final List<Object> sentData = Collections.synchronizedList(new ArrayList<>());
+        final Transport transport = createRecordingTransport(sentData);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
+        socket.init(transport);
+
+        final Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            final int threadIdx = i;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < packetCount; j++) {
+                    socket.send(new Packet<>(Packet.MESSAGE, threadIdx + ":" + j));
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(threadCount * packetCount, sentData.size());
+
+        // Packets from each sender must keep their order
+        final int[] nextIndex = new int[threadCount];
+        for (Object data : sentData) {
+            final String[] parts = ((String) data).split(":");
+            final int threadIdx = Integer.parseInt(parts[0]);
+            Assert.assertEquals(nextIndex[threadIdx]++, Integer.parseInt(parts[1]));
+        }
+    }
+
+    @Test
+    public void testSend_writeBuffer_dropNewest() {
+        final List<Object> sentData = new ArrayList<>();
+        final Transport transport = createRecordingTransport(sentData);
+        final EngineIoSocket socket = createWriteBufferSocket(WriteBufferOverflowPolicy.DROP_NEWEST, transport);
+
+        final Emitter.Listener fullListener = Mockito.mock(Emitter.Listener.class);
+        socket.on("writeBufferFull", fullListener);
+
+        socket.send(new Packet<>(Packet.MESSAGE, "1"));
+        socket.send(new Packet<>(Packet.MESSAGE, "2"));
+        socket.send(new Packet<>(Packet.MESSAGE, "3"));
+        socket.send(new Packet<>(Packet.MESSAGE, "4"));
+
+        Mockito.verify(fullListener, Mockito.times(1))
+                .call(Mockito.eq(2), Mockito.eq(2L));
+
+        Mockito.doAnswer(invocationOnMock -> true).when(transport).isWritable();
+        transport.emit("drain");
+
+        Assert.assertEquals(Arrays.asList("1", "2"), sentData);
+    }
+
+    @Test
+    public void testSend_writeBuffer_dropOldest() {
+        final List<Object> sentData = new ArrayList<>();
+        final Transport transport = createRecordingTransport(sentData);
+        final EngineIoSocket socket = createWriteBufferSocket(WriteBufferOverflowPolicy.DROP_OLDEST, transport);
+
+        socket.send(new Packet<>(Packet.MESSAGE, "1"));
+        socket.send(new Packet<>(Packet.PING));
+        socket.send(new Packet<>(Packet.MESSAGE, "3"));
+        socket.send(new Packet<>(Packet.MESSAGE, "4"));
+
+        Mockito.doAnswer(invocationOnMock -> true).when(transport).isWritable();
+        transport.emit("drain");
+
+        Assert.assertEquals(Arrays.asList(null, "4"), sentData);
+    }
+
+    @Test
+    public void testSend_writeBuffer_close() {
+        final List<Object> sentData = new ArrayList<>();
+        final Transport transport = createRecordingTransport(sentData);
+        final EngineIoSocket socket = createWriteBufferSocket(WriteBufferOverflowPolicy.CLOSE, transport);
+
+        final Emitter.Listener closeListener = Mockito.mock(Emitter.Listener.class);
+        socket.on("close", closeListener);
+
+        socket.send(new Packet<>(Packet.MESSAGE, "1"));
+        socket.send(new Packet<>(Packet.MESSAGE, "2"));
+        socket.send(new Packet<>(Packet.MESSAGE, "3"));
+
+        Assert.assertEquals(ReadyState.CLOSED, socket.getReadyState());
+        Mockito.verify(closeListener, Mockito.times(1))
+                .call(Mockito.eq("write buffer overflow"), Mockito.isNull());
+    }
+
+    @Test
+    public void testSend_writeBuffer_block() throws InterruptedException {
+        final List<Object> sentData = new ArrayList<>();
+        final Transport transport = createRecordingTransport(sentData);
+        final EngineIoSocket socket = createWriteBufferSocket(WriteBufferOverflowPolicy.BLOCK, transport);
+
+        socket.send(new Packet<>(Packet.MESSAGE, "1"));
+        socket.send(new Packet<>(Packet.MESSAGE, "2"));
+
+        final Thread sender = new Thread(() -> socket.send(new Packet<>(Packet.MESSAGE, "3")));
+        sender.start();
+        sender.join(500);
+        Assert.assertTrue(sender.isAlive());
+
+        Mockito.doAnswer(invocationOnMock -> true).when(transport).isWritable();
+        transport.emit("drain");
+
+        sender.join(5000);
+        Assert.assertFalse(sender.isAlive());
+        Assert.assertEquals(Arrays.asList("1", "2", "3"), sentData);
+    }
+
+    @Test(timeout = 30000)
+    public void testSend_writeBuffer_block_fromMessageListener() {
+        final List<Object> sentData = new ArrayList<>();
+        final Transport transport = createRecordingTransport(sentData);
+        final ReentrantLock lock = new ReentrantLock();
+        final EngineIoSocket socket = createWriteBufferSocket(WriteBufferOverflowPolicy.BLOCK, transport, lock);
+
+        socket.send(new Packet<>(Packet.MESSAGE, "1"));
+        socket.send(new Packet<>(Packet.MESSAGE, "2"));
+        socket.on("message", args -> socket.send(new Packet<>(Packet.MESSAGE, "3")));
+
+        // Polling holds the transport lock while it emits the packets of a request
+        lock.lock();
+        try {
+            transport.emit("packet", new Packet<>(Packet.MESSAGE, "Test Data"));
+        } finally {
+            lock.unlock();
+        }
+
+        Mockito.doAnswer(invocationOnMock -> true).when(transport).isWritable();
+        transport.emit("drain");
+
+        Assert.assertEquals(ReadyState.OPEN, socket.getReadyState());
+        Assert.assertEquals(Arrays.asList("1", "2", "3"), sentData);
+    }
+
     @Test
     public void testClose_withoutData() {
         final Transport transport = Mockito.spy(new StubTransport());
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
         socket.init(transport);
 
         socket.close();
@@ -212,7 +405,7 @@ public final class EngineIoSocketTest {
     @Test
     public void testClose_withData() {
         final Transport transport = Mockito.spy(new StubTransport());
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
         socket.init(transport);
 
         Mockito.doAnswer(invocationOnMock -> false).when(transport).isWritable();
@@ -245,7 +438,7 @@ public final class EngineIoSocketTest {
     public void testCanUpgrade() {
         final Transport transport = Mockito.spy(new StubTransport());
         final EngineIoServer server = new EngineIoServer();
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, server, mPingTimeoutHandler);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, server, mPingTimeoutHandler);
         socket.init(transport);
 
         Mockito.doAnswer(invocationOnMock -> Polling.NAME).when(transport).getName();
@@ -259,7 +452,7 @@ public final class EngineIoSocketTest {
         final EngineIoServer server = new EngineIoServer(EngineIoServerOptions.newFromDefault()
                 .setPingInterval(1500)
                 .setPingTimeout(3000));
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, server, mPingTimeoutHandler);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, server, mPingTimeoutHandler);
         socket.init(transport);
 
         final Emitter.Listener closeListener = Mockito.mock(Emitter.Listener.class);
@@ -273,10 +466,85 @@ public final class EngineIoSocketTest {
                 .call(Mockito.eq("ping timeout"), Mockito.isNull());
     }
 
+    @Test
+    public void testPingTimeout_hashedWheelTimer() {
+        final ManualPingTimer pingTimer = new ManualPingTimer(50);
+        final EngineIoServer server = Mockito.spy(new EngineIoServer(EngineIoServerOptions.newFromDefault()
+                .setPingInterval(1500)
+                .setPingTimeout(3000)));
+        Mockito.doReturn(pingTimer.getTimer()).when(server).getPingTimer();
+        final Transport transport = Mockito.spy(new StubTransport());
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, server, mPingTimeoutHandler);
+        socket.init(transport);
+
+        final Emitter.Listener closeListener = Mockito.mock(Emitter.Listener.class);
+        socket.on("close", closeListener);
+
+        final AtomicInteger pingCount = new AtomicInteger(0);
+        Mockito.doAnswer(invocationOnMock -> {
+            final List<Packet<?>> packets = invocationOnMock.getArgument(0);
+            if (packets.size() == 1 && packets.get(0).type.equals(Packet.PING)) {
+                pingCount.incrementAndGet();
+            }
+            return null;
+        }).when(transport).send(Mockito.anyList());
+
+        pingTimer.advance(1450);
+        Assert.assertEquals(0, pingCount.get());
+
+        pingTimer.advance(100);
+        Assert.assertEquals(1, pingCount.get());
+
+        // Ping timeout is due one ping timeout after the ping
+        pingTimer.advance(2900);
+        Mockito.verify(closeListener, Mockito.never())
+                .call(Mockito.any(), Mockito.any());
+
+        pingTimer.advance(100);
+        Assert.assertEquals(1, pingCount.get());
+        Mockito.verify(closeListener, Mockito.times(1))
+                .call(Mockito.eq("ping timeout"), Mockito.isNull());
+        server.shutdown();
+    }
+
+    @Test
+    public void testTransportPacket_ping_hashedWheelTimer() {
+        final ManualPingTimer pingTimer = new ManualPingTimer(20);
+        final EngineIoServer server = Mockito.spy(new EngineIoServer(EngineIoServerOptions.newFromDefault()
+                .setPingInterval(500)
+                .setPingTimeout(1000)));
+        Mockito.doReturn(pingTimer.getTimer()).when(server).getPingTimer();
+        final Transport transport = Mockito.spy(new StubTransport());
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, server, mPingTimeoutHandler);
+        socket.init(transport);
+
+        final Emitter.Listener heartbeatListener = Mockito.mock(Emitter.Listener.class);
+        final Emitter.Listener closeListener = Mockito.mock(Emitter.Listener.class);
+        socket.on("heartbeat", heartbeatListener);
+        socket.on("close", closeListener);
+
+        Mockito.doAnswer(invocationOnMock -> {
+            final List<Packet<?>> packets = invocationOnMock.getArgument(0);
+            if (packets.size() == 1 && packets.get(0).type.equals(Packet.PING)) {
+                transport.emit("packet", new Packet<>(Packet.PONG));
+            }
+            return null;
+        }).when(transport).send(Mockito.anyList());
+
+        pingTimer.advance(3000);
+
+        // One ping every ping interval, each answered right away
+        Mockito.verify(heartbeatListener, Mockito.times(6))
+                .call();
+        Mockito.verify(closeListener, Mockito.never())
+                .call(Mockito.any(), Mockito.any());
+        server.shutdown();
+    }
+
     @Test
     public void testTransportClose() {
         final Transport transport = Mockito.spy(new StubTransport());
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
         socket.init(transport);
 
         final Emitter.Listener closeListener = Mockito.mock(Emitter.Listener.class);
@@ -293,7 +561,7 @@ public final class EngineIoSocketTest {
     @Test
     public void testTransportError() {
         final Transport transport = Mockito.spy(new StubTransport());
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
         socket.init(transport);
 
         final Emitter.Listener closeListener = Mockito.mock(Emitter.Listener.class);
@@ -310,7 +578,7 @@ public final class EngineIoSocketTest {
     @Test
     public void testTransportPacket() {
         final Transport transport = Mockito.spy(new StubTransport());
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
         socket.init(transport);
 
         final Packet<String> packet = new Packet<>(Packet.NOOP);
@@ -326,7 +594,7 @@ public final class EngineIoSocketTest {
     @Test
     public void testTransportPacket_message() {
         final Transport transport = Mockito.spy(new StubTransport());
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
         socket.init(transport);
 
         final String packetData = "TestMessage";
@@ -349,13 +617,55 @@ public final class EngineIoSocketTest {
                 .call(Mockito.eq(packetData));
     }
 
+    @Test
+    public void testTransportPacket_message_afterOff() {
+        final Transport transport = Mockito.spy(new StubTransport());
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
+        socket.init(transport);
+
+        final Emitter.Listener removedListener = Mockito.mock(Emitter.Listener.class);
+        final Emitter.Listener messageListener = Mockito.mock(Emitter.Listener.class);
+        final EngineIoSocket.SocketedListener socketedListener = Mockito.mock(EngineIoSocket.SocketedListener.class);
+
+        socket.on("message", removedListener);
+        socket.off();
+        socket.on("message", messageListener);
+        socket.on("message", socketedListener);
+
+        transport.emit("packet", new Packet<>(Packet.MESSAGE, "TestMessage"));
+
+        Mockito.verify(removedListener, Mockito.never())
+                .call(Mockito.any());
+        Mockito.verify(messageListener, Mockito.times(1))
+                .call(Mockito.eq("TestMessage"));
+        Mockito.verify(socketedListener, Mockito.times(1))
+                .call(Mockito.eq(socket), Mockito.eq("TestMessage"));
+    }
+
+    @Test
+    public void testTransportPacket_message_socketedListener() {
+        final Transport transport = Mockito.spy(new StubTransport());
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
+        socket.init(transport);
+
+        final EngineIoSocket.SocketedListener listener = Mockito.mock(EngineIoSocket.SocketedListener.class);
+        socket.on("message", listener);
+
+        transport.emit("packet", new Packet<>(Packet.MESSAGE, "TestMessage"));
+        socket.off("message", listener);
+        transport.emit("packet", new Packet<>(Packet.MESSAGE, "TestMessage"));
+
+        Mockito.verify(listener, Mockito.times(1))
+                .call(Mockito.eq(socket), Mockito.eq("TestMessage"));
+    }
+
     @Test
     public void testTransportPacket_ping() {
         final Transport transport = Mockito.spy(new StubTransport());
         final EngineIoServerOptions options = EngineIoServerOptions.newFromDefault()
                 .setPingInterval(1000)
                 .setPingTimeout(1000);
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(options), mPingTimeoutHandler);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(options), mPingTimeoutHandler);
         socket.init(transport);
 
         final Emitter.Listener heartbeatListener = Mockito.mock(Emitter.Listener.class);
@@ -381,7 +691,7 @@ public final class EngineIoSocketTest {
     @Test
     public void testTransportPacket_error() {
         final Transport transport = Mockito.spy(new StubTransport());
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
         socket.init(transport);
 
         final Packet<String> packet = new Packet<>(Packet.ERROR);
@@ -402,7 +712,7 @@ public final class EngineIoSocketTest {
         final Transport transport1 = Mockito.spy(new StubTransport());
         Mockito.doAnswer(invocationOnMock -> Polling.NAME).when(transport1).getName();
 
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
         socket.init(transport1);
 
         final Transport transport2 = Mockito.spy(new StubTransport());
@@ -438,7 +748,7 @@ public final class EngineIoSocketTest {
         final Transport transport1 = Mockito.spy(new StubTransport());
         Mockito.doAnswer(invocationOnMock -> Polling.NAME).when(transport1).getName();
 
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
         socket.init(transport1);
 
         final Transport transport2 = Mockito.spy(new StubTransport());
@@ -472,7 +782,7 @@ public final class EngineIoSocketTest {
         final Transport transport1 = Mockito.spy(new StubTransport());
         Mockito.doAnswer(invocationOnMock -> Polling.NAME).when(transport1).getName();
 
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
         socket.init(transport1);
 
         final Transport transport2 = Mockito.spy(new StubTransport());
@@ -493,7 +803,7 @@ public final class EngineIoSocketTest {
         final Transport transport1 = Mockito.spy(new StubTransport());
         Mockito.doAnswer(invocationOnMock -> Polling.NAME).when(transport1).getName();
 
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
         socket.init(transport1);
 
         final Transport transport2 = Mockito.spy(new StubTransport());
@@ -513,7 +823,7 @@ public final class EngineIoSocketTest {
         final Transport transport1 = Mockito.spy(new StubTransport());
         Mockito.doAnswer(invocationOnMock -> Polling.NAME).when(transport1).getName();
 
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
         socket.init(transport1);
 
         final Transport transport2 = Mockito.spy(new StubTransport());
@@ -533,7 +843,7 @@ public final class EngineIoSocketTest {
         final Transport transport1 = Mockito.spy(new StubTransport());
         Mockito.doAnswer(invocationOnMock -> Polling.NAME).when(transport1).getName();
 
-        final EngineIoSocket socket = new EngineIoSocket(new Object(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, new EngineIoServer(), mPingTimeoutHandler);
         socket.init(transport1);
 
         final Transport transport2 = Mockito.spy(new StubTransport());
@@ -547,4 +857,123 @@ public final class EngineIoSocketTest {
         Mockito.verify(transport2, Mockito.times(1))
                 .close();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMetrics() {
+        final EngineIoMetrics metrics = Mockito.mock(EngineIoMetrics.class);
+        final EngineIoServer server = new EngineIoServer(EngineIoServerOptions.newFromDefault()
+                .setMetrics(metrics));
+
+        final Transport transport1 = Mockito.spy(new StubTransport());
+        Mockito.doAnswer(invocationOnMock -> Polling.NAME).when(transport1).getName();
+
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, server, mPingTimeoutHandler);
+        socket.init(transport1);
+        Mockito.verify(metrics, Mockito.times(1))
+                .onSocketOpen(Mockito.eq(Polling.NAME), Mockito.eq(ParserV4.PROTOCOL));
+        Mockito.verify(metrics, Mockito.times(1))
+                .onFlush(Mockito.eq(Polling.NAME), Mockito.eq(1));
+
+        transport1.emit("packet", new Packet<>(Packet.MESSAGE, "TestMessage"));
+        Mockito.verify(metrics, Mockito.times(1))
+                .onPacketReceived(Mockito.eq(Polling.NAME), Mockito.eq(Packet.MESSAGE));
+
+        final Transport transport2 = Mockito.spy(new StubTransport());
+        Mockito.doAnswer(invocationOnMock -> WebSocket.NAME).when(transport2).getName();
+        socket.upgrade(transport2);
+        transport2.emit("packet", new Packet<>(Packet.UPGRADE));
+        Mockito.verify(metrics, Mockito.times(1))
+                .onUpgrade(Mockito.eq(Polling.NAME), Mockito.eq(WebSocket.NAME), Mockito.eq(ParserV4.PROTOCOL));
+
+        transport2.emit("close");
+        Mockito.verify(metrics, Mockito.times(1))
+                .onSocketClose(Mockito.eq(WebSocket.NAME), Mockito.eq(ParserV4.PROTOCOL), Mockito.eq("transport close"));
+    }
+
+    @Test
+    public void testVirtualThreadEventDispatch() throws InterruptedException {
+        Assume.assumeTrue(VirtualThreads.isSupported());
+
+        final EngineIoServer server = new EngineIoServer(EngineIoServerOptions.newFromDefault()
+                .setVirtualThreadEventDispatchEnabled(true));
+        final Transport transport = Mockito.spy(new StubTransport());
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, server, mPingTimeoutHandler);
+        socket.init(transport);
+
+        final List<Object> messages = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch closeLatch = new CountDownLatch(1);
+        final Thread receiveThread = Thread.currentThread();
+        socket.on("message", args -> {
+            Assert.assertNotSame(receiveThread, Thread.currentThread());
+            messages.add(args[0]);
+        });
+        socket.on("close", args -> closeLatch.countDown());
+
+        for (int i = 0; i < 100; i++) {
+            transport.emit("packet", new Packet<>(Packet.MESSAGE, i));
+        }
+        transport.emit("close");
+
+        Assert.assertTrue(closeLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(100, messages.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(i, messages.get(i));
+        }
+        server.shutdown();
+    }
+
+    @Test
+    public void testDispatchedClose_leavesServerFirst() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final ExecutorService eventExecutor = Mockito.mock(ExecutorService.class);
+        Mockito.doAnswer(invocationOnMock -> tasks.add(invocationOnMock.getArgument(0)))
+                .when(eventExecutor).execute(Mockito.any(Runnable.class));
+
+        final EngineIoServer server = Mockito.spy(new EngineIoServer());
+        Mockito.doReturn(eventExecutor).when(server).getEventExecutor();
+        final Transport transport = Mockito.spy(new StubTransport());
+        final EngineIoSocket socket = new EngineIoSocket(new ReentrantLock(), ServerYeast.yeast(), ParserV4.PROTOCOL, server, mPingTimeoutHandler);
+        socket.init(transport);
+
+        final AtomicInteger closeCount = new AtomicInteger(0);
+        socket.on("close", args -> closeCount.incrementAndGet());
+
+        transport.emit("close");
+        Mockito.verify(server, Mockito.times(1)).onSocketClose(socket);
+        Assert.assertEquals(0, closeCount.get());
+
+        Assert.assertEquals(1, tasks.size());
+        tasks.get(0).run();
+        Assert.assertEquals(1, closeCount.get());
+        server.shutdown();
+    }
+
+    private Transport createRecordingTransport(List<Object> sentData) {
+        final Transport transport = Mockito.spy(new StubTransport());
+        Mockito.doAnswer(invocationOnMock -> {
+            final List<Packet<?>> packets = invocationOnMock.getArgument(0);
+            for (Packet<?> packet : packets) {
+                if (!packet.type.equals(Packet.OPEN)) {
+                    sentData.add(packet.data);
+                }
+            }
+            return null;
+        }).when(transport).send(Mockito.anyList());
+        return transport;
+    }
+
+    private EngineIoSocket createWriteBufferSocket(WriteBufferOverflowPolicy policy, Transport transport) {
+        return createWriteBufferSocket(policy, transport, new ReentrantLock());
+    }
+
+    private EngineIoSocket createWriteBufferSocket(WriteBufferOverflowPolicy policy, Transport transport, ReentrantLock lock) {
+        final EngineIoServer server = new EngineIoServer(EngineIoServerOptions.newFromDefault()
+                .setMaxWriteBufferPackets(2)
+                .setWriteBufferOverflowPolicy(policy));
+        final EngineIoSocket socket = new EngineIoSocket(lock, ServerYeast.yeast(), ParserV4.PROTOCOL, server, mPingTimeoutHandler);
+        socket.init(transport);
+
+        Mockito.doAnswer(invocationOnMock -> false).when(transport).isWritable();
+        return socket;
+    }
+}
@@ -10,7 +10,9 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 public final class HttpServletResponseImpl implements HttpServletResponse {
 
@@ -18,6 +20,7 @@ public final class HttpServletResponseImpl implements HttpServletResponse {
 
     private int mStatus = HttpServletResponse.SC_OK;
     private PrintWriter mPrintWriter = null;
+    private final Map<String, String> mHeaders = new HashMap<>();
 
     @Override
     public void addCookie(Cookie cookie) {
@@ -68,10 +71,12 @@ public final class HttpServletResponseImpl implements HttpServletResponse {
 
     @Override
     public void setHeader(String s, String s1) {
+        mHeaders.put(s, s1);
     }
 
     @Override
     public void addHeader(String s, String s1) {
+        mHeaders.merge(s, s1, (value, added) -> value + ", " + added);
     }
 
     @Override
@@ -94,7 +99,7 @@ public final class HttpServletResponseImpl implements HttpServletResponse {
 
     @Override
     public String getHeader(String s) {
-        return null;
+        return mHeaders.get(s);
     }
 
     @Override
@@ -9,6 +9,7 @@ import java.io.InputStream;
 public final class ServletInputStreamWrapper extends ServletInputStream {
 
     private InputStream mInputStream;
+    private ReadListener mReadListener;
 
     public ServletInputStreamWrapper(InputStream inputStream) {
         mInputStream = inputStream;
@@ -26,6 +27,11 @@ public final class ServletInputStreamWrapper extends ServletInputStream {
 
     @Override
     public void setReadListener(ReadListener readListener) {
+        mReadListener = readListener;
+    }
+
+    public ReadListener getReadListener() {
+        return mReadListener;
     }
 
     @Override
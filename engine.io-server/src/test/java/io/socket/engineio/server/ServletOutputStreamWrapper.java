@@ -9,6 +9,7 @@ import java.io.IOException;
 public final class ServletOutputStreamWrapper extends ServletOutputStream {
 
     private final ByteArrayOutputStream mByteOutputStream = new ByteArrayOutputStream();
+    private WriteListener mWriteListener;
 
     @Override
     public boolean isReady() {
@@ -17,6 +18,11 @@ public final class ServletOutputStreamWrapper extends ServletOutputStream {
 
     @Override
     public void setWriteListener(WriteListener writeListener) {
+        mWriteListener = writeListener;
+    }
+
+    public WriteListener getWriteListener() {
+        return mWriteListener;
     }
 
     @Override
@@ -0,0 +1,64 @@
+package io.socket.engineio.server.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public final class JfrEventsTest {
+
+    @Test
+    public void testNotRecording() {
+        assertNull(JfrEvents.beginUpgrade());
+        assertNull(JfrEvents.beginPollingRequest());
+        assertNull(JfrEvents.beginFlush());
+    }
+
+    @Test
+    public void testRecording() throws IOException {
+        final Path file = Files.createTempFile("engineio", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("io.socket.engineio.SocketOpen");
+            recording.enable("io.socket.engineio.Flush");
+            recording.disable("io.socket.engineio.PingTimeout");
+            recording.start();
+
+            JfrEvents.socketOpen("sid1", "polling", 4);
+            JfrEvents.endFlush(JfrEvents.beginFlush(), "sid1", "polling", 3, 42);
+            JfrEvents.pingTimeout("sid1");
+
+            recording.stop();
+            recording.dump(file);
+
+            final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            // Sockets of other tests may still be emitting events in the background
+            events.removeIf(event -> !event.getEventType().getName().startsWith("io.socket.engineio.") ||
+                    !event.hasField("sid") ||
+                    !"sid1".equals(event.getString("sid")));
+            assertEquals(2, events.size());
+
+            for (RecordedEvent event : events) {
+                assertEquals("sid1", event.getString("sid"));
+                assertEquals("polling", event.getString("transport"));
+                if (event.getEventType().getName().equals("io.socket.engineio.Flush")) {
+                    assertEquals(3, event.getInt("packetCount"));
+                    assertEquals(42, event.getLong("bytes"));
+                } else {
+                    assertEquals("io.socket.engineio.SocketOpen", event.getEventType().getName());
+                    assertEquals(4, event.getInt("protocolVersion"));
+                }
+            }
+        } finally {
+            assertTrue(Files.deleteIfExists(file));
+        }
+    }
+}
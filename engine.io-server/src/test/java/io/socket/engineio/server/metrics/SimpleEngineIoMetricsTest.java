@@ -0,0 +1,70 @@
+package io.socket.engineio.server.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public final class SimpleEngineIoMetricsTest {
+
+    @Test
+    public void testActiveSockets() {
+        final SimpleEngineIoMetrics metrics = new SimpleEngineIoMetrics();
+
+        metrics.onSocketOpen("polling", 3);
+        metrics.onSocketOpen("polling", 4);
+        metrics.onSocketOpen("websocket", 4);
+        assertEquals(3, metrics.getActiveSockets());
+        assertEquals(1, metrics.getActiveSockets("polling", 4));
+
+        metrics.onUpgrade("polling", "websocket", 4);
+        assertEquals(0, metrics.getActiveSockets("polling", 4));
+        assertEquals(2, metrics.getActiveSockets("websocket", 4));
+        assertEquals(1, metrics.getUpgrades());
+
+        metrics.onSocketClose("polling", 3, "transport close");
+        assertEquals(2, metrics.getActiveSockets());
+        assertEquals(0, metrics.getActiveSockets("websocket", 3));
+    }
+
+    @Test
+    public void testCounters() {
+        final SimpleEngineIoMetrics metrics = new SimpleEngineIoMetrics();
+
+        metrics.onHandshake("polling", 4);
+        metrics.onPacketReceived("polling", "message");
+        metrics.onPacketReceived("polling", "pong");
+        metrics.onFlush("polling", 3);
+        metrics.onFlush("polling", 5);
+        metrics.onBytesReceived("polling", 10);
+        metrics.onBytesSent("polling", 20);
+        metrics.onBytesSent("websocket", 22);
+        metrics.onWriteBufferFull();
+
+        assertEquals(1, metrics.getHandshakes());
+        assertEquals(2, metrics.getPacketsReceived());
+        assertEquals(8, metrics.getPacketsSent());
+        assertEquals(2, metrics.getFlushSizes().getCount());
+        assertEquals(10, metrics.getBytesReceived());
+        assertEquals(42, metrics.getBytesSent());
+        assertEquals(1, metrics.getWriteBufferOverflows());
+    }
+
+    @Test
+    public void testHistogram() {
+        final Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-1);
+
+        assertEquals(101, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.0, histogram.getMean(), 0.01);
+        assertEquals(63, histogram.getValueAtPercentile(50));
+        assertEquals(100, histogram.getValueAtPercentile(99));
+        assertEquals(0, histogram.getValueAtPercentile(0));
+    }
+}
@@ -0,0 +1,55 @@
+package io.socket.engineio.server.parser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public final class PacketTypeTest {
+
+    @Test
+    public void testMatchesPacketTables() {
+        for (PacketType type : PacketType.values()) {
+            assertEquals(Parser.PACKETS.get(type.getName()).intValue(), type.getCode());
+            assertEquals(Parser.PACKETS_REVERSE.get(type.getCode()), type.getName());
+            assertSame(type, PacketType.fromCode(type.getCode()));
+            assertSame(type, PacketType.fromCodeChar(type.getCodeString().charAt(0)));
+            assertSame(type, PacketType.fromName(type.getName()));
+            assertSame(type, PacketType.fromName(new String(type.getName())));
+        }
+        assertEquals(Parser.PACKETS.size(), PacketType.values().length);
+    }
+
+    @Test
+    public void testInvalid() {
+        assertNull(PacketType.fromCode(-1));
+        assertNull(PacketType.fromCode(7));
+        assertNull(PacketType.fromCodeChar('b'));
+        assertNull(PacketType.fromName(Packet.ERROR));
+        assertNull(PacketType.fromName(null));
+    }
+
+    @Test
+    public void testPacketTypeCache() {
+        final Packet<String> packet = new Packet<>(Packet.MESSAGE, "data");
+        assertSame(PacketType.MESSAGE, PacketType.of(packet));
+
+        packet.type = Packet.PING;
+        assertSame(PacketType.PING, PacketType.of(packet));
+
+        packet.type = new String(Packet.PONG);
+        assertSame(PacketType.PONG, PacketType.of(packet));
+
+        final Packet<String> decoded = new Packet<>(PacketType.CLOSE, null);
+        assertSame(Packet.CLOSE, decoded.type);
+        assertSame(PacketType.CLOSE, PacketType.of(decoded));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPacketTypeCache_invalid() {
+        final Packet<String> packet = new Packet<>(Packet.MESSAGE, "data");
+        packet.type = Packet.ERROR;
+        PacketType.of(packet);
+    }
+}
@@ -4,6 +4,11 @@ import io.socket.engineio.server.TestUtils;
 import org.json.JSONArray;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -159,6 +164,224 @@ public final class ParserV4Test {
         });
     }
 
+    @Test
+    public void testEncodePacket_stream() throws IOException {
+        assertEncodePacketStreamMatches(new Packet<>(Packet.MESSAGE, "Engine.IO \u2603 \uD83D\uDE00"), true);
+        assertEncodePacketStreamMatches(new Packet<>(Packet.PING), true);
+        assertEncodePacketStreamMatches(new Packet<>(Packet.MESSAGE, new byte[] { 1, 2, 3, 4, 5 }), true);
+        assertEncodePacketStreamMatches(new Packet<>(Packet.MESSAGE, new byte[] { 1, 2, 3, 4, 5 }), false);
+    }
+
+    @Test
+    public void testEncodePayload_stream() throws IOException {
+        final List<Packet<?>> packets = new ArrayList<>();
+        assertEncodePayloadStreamMatches(packets, true);
+
+        packets.add(new Packet<>(Packet.MESSAGE, "Engine.IO \u2603 \uD83D\uDE00"));
+        packets.add(new Packet<>(Packet.PING, "probe"));
+        assertEncodePayloadStreamMatches(packets, true);
+
+        packets.add(new Packet<>(Packet.MESSAGE, "Test.Data".getBytes(StandardCharsets.UTF_8)));
+        assertEncodePayloadStreamMatches(packets, true);
+        assertEncodePayloadStreamMatches(packets, false);
+    }
+
+    @Test
+    public void testEncodePacket_preEncoded() throws IOException {
+        final List<Packet<?>> packets = new ArrayList<>();
+        packets.add(new Packet<>(Packet.MESSAGE, "Engine.IO \u2603 \uD83D\uDE00"));
+        packets.add(new Packet<>(Packet.PING));
+        packets.add(new Packet<>(Packet.MESSAGE, new byte[] { 1, 2, 3, 4, 5 }));
+
+        for (Packet<?> packet : packets) {
+            final Packet<?> preEncoded = Parser.preEncode(packet);
+            assertSame(preEncoded, Parser.preEncode(preEncoded));
+
+            for (boolean supportsBinary : new boolean[] { true, false }) {
+                final Object[] expected = new Object[1];
+                Parser.PROTOCOL_V4.encodePacket(packet, supportsBinary, data -> expected[0] = data);
+
+                final Object[] first = new Object[1];
+                final Object[] second = new Object[1];
+                Parser.PROTOCOL_V4.encodePacket(preEncoded, supportsBinary, data -> first[0] = data);
+                Parser.PROTOCOL_V4.encodePacket(preEncoded, supportsBinary, data -> second[0] = data);
+                assertArrayEquals(toBytes(expected[0]), toBytes(first[0]));
+                assertSame(first[0], second[0]);
+
+                final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                final boolean isBinary = Parser.PROTOCOL_V4.encodePacket(preEncoded, supportsBinary, outputStream);
+                assertEquals(expected[0] instanceof byte[], isBinary);
+                assertArrayEquals(toBytes(expected[0]), outputStream.toByteArray());
+            }
+        }
+    }
+
+    @Test
+    public void testEncodePacket_preEncodedModified() throws IOException {
+        final byte[] binary = new byte[] { 1, 2, 3 };
+        final Packet<String> text = Parser.preEncode(new Packet<>(Packet.MESSAGE, "hello"));
+        final Packet<byte[]> binaryPacket = Parser.preEncode(new Packet<>(Packet.MESSAGE, binary));
+
+        text.type = Packet.PING;
+        text.data = "changed";
+        binary[0] = 9;
+        assertSame(PacketType.MESSAGE, PacketType.of(text));
+
+        final Object[] encoded = new Object[1];
+        Parser.PROTOCOL_V4.encodePacket(text, false, data -> encoded[0] = data);
+        assertEquals("4hello", encoded[0]);
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        assertTrue(Parser.PROTOCOL_V4.encodePacket(binaryPacket, true, outputStream));
+        assertArrayEquals(new byte[] { 1, 2, 3 }, outputStream.toByteArray());
+    }
+
+    @Test
+    public void testEncodePacket_controlPackets() {
+        final Packet<?>[] controlPackets = new Packet<?>[] {
+                Parser.PING_PACKET, Parser.PONG_PACKET, Parser.PROBE_PONG_PACKET, Parser.NOOP_PACKET, Parser.CLOSE_PACKET
+        };
+        final String[] expected = new String[] { "2", "3", "3probe", "6", "1" };
+
+        for (int i = 0; i < controlPackets.length; i++) {
+            assertSame(controlPackets[i], Parser.preEncode(controlPackets[i]));
+
+            final Object[] first = new Object[1];
+            final Object[] second = new Object[1];
+            Parser.PROTOCOL_V4.encodePacket(controlPackets[i], false, data -> first[0] = data);
+            Parser.PROTOCOL_V4.encodePacket(controlPackets[i], false, data -> second[0] = data);
+            assertEquals(expected[i], first[0]);
+            assertSame(first[0], second[0]);
+        }
+    }
+
+    @Test
+    public void testEncodePayload_preEncoded() throws IOException {
+        final List<Packet<?>> packets = new ArrayList<>();
+        packets.add(new Packet<>(Packet.MESSAGE, "Engine.IO \u2603 \uD83D\uDE00"));
+        packets.add(new Packet<>(Packet.PING, "probe"));
+        packets.add(new Packet<>(Packet.MESSAGE, "Test.Data".getBytes(StandardCharsets.UTF_8)));
+
+        final List<Packet<?>> preEncodedPackets = new ArrayList<>();
+        for (Packet<?> packet : packets) {
+            preEncodedPackets.add(Parser.preEncode(packet));
+        }
+
+        for (boolean supportsBinary : new boolean[] { true, false }) {
+            final Object[] expected = new Object[1];
+            Parser.PROTOCOL_V4.encodePayload(packets, supportsBinary, data -> expected[0] = data);
+
+            final Object[] actual = new Object[1];
+            Parser.PROTOCOL_V4.encodePayload(preEncodedPackets, supportsBinary, data -> actual[0] = data);
+            assertArrayEquals(toBytes(expected[0]), toBytes(actual[0]));
+
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            Parser.PROTOCOL_V4.encodePayload(preEncodedPackets, supportsBinary, outputStream);
+            assertArrayEquals(toBytes(expected[0]), outputStream.toByteArray());
+        }
+    }
+
+    @Test
+    public void testDecodePayload_stream() throws IOException {
+        final List<Packet<?>> packets = new ArrayList<>();
+        packets.add(new Packet<>(Packet.MESSAGE, "Engine.IO \u2603 \uD83D\uDE00"));
+        packets.add(new Packet<>(Packet.PING, "probe"));
+        packets.add(new Packet<>(Packet.MESSAGE, "Test.Data".getBytes(StandardCharsets.UTF_8)));
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Parser.PROTOCOL_V4.encodePayload(packets, false, outputStream);
+
+        final List<Packet<?>> decodedPackets = new ArrayList<>();
+        Parser.PROTOCOL_V4.decodePayload(new TrickleInputStream(outputStream.toByteArray()), (packet, index, total) -> {
+            assertEquals(decodedPackets.size(), index);
+            assertEquals(-1, total);
+            decodedPackets.add(packet);
+            return true;
+        });
+
+        assertEquals(packets.size(), decodedPackets.size());
+        for (int i = 0; i < packets.size(); i++) {
+            assertEquals(packets.get(i).type, decodedPackets.get(i).type);
+            if (packets.get(i).data instanceof byte[]) {
+                assertArrayEquals((byte[]) packets.get(i).data, (byte[]) decodedPackets.get(i).data);
+            } else {
+                assertEquals(packets.get(i).data, decodedPackets.get(i).data);
+            }
+        }
+    }
+
+    @Test
+    public void testDecodePayload_stream_incremental() {
+        final byte[] data = "4Engine.IO\u001E4Test".getBytes(StandardCharsets.UTF_8);
+        final InputStream inputStream = new SequenceInputStream(new ByteArrayInputStream(data), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        });
+
+        final List<Packet<?>> decodedPackets = new ArrayList<>();
+        try {
+            Parser.PROTOCOL_V4.decodePayload(inputStream, (packet, index, total) -> {
+                decodedPackets.add(packet);
+                return true;
+            });
+            fail("Expected IOException");
+        } catch (IOException ignore) {
+        }
+
+        assertEquals(1, decodedPackets.size());
+        assertEquals("Engine.IO", decodedPackets.get(0).data);
+    }
+
+    @Test
+    public void testNewPayloadDecoder() throws IOException {
+        final List<Packet<?>> packets = new ArrayList<>();
+        packets.add(new Packet<>(Packet.MESSAGE, "Engine.IO \u2603 \uD83D\uDE00"));
+        packets.add(new Packet<>(Packet.PING, "probe"));
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Parser.PROTOCOL_V4.encodePayload(packets, false, outputStream);
+        final byte[] data = outputStream.toByteArray();
+
+        final List<Packet<?>> decodedPackets = new ArrayList<>();
+        final Parser.PayloadDecoder decoder = Parser.PROTOCOL_V4.newPayloadDecoder((packet, index, total) -> {
+            assertEquals(decodedPackets.size(), index);
+            assertEquals(-1, total);
+            decodedPackets.add(packet);
+            return true;
+        });
+
+        // Multi-byte characters are split across chunks
+        for (int i = 0; i < data.length; i++) {
+            assertTrue(decoder.write(data, i, 1));
+        }
+        decoder.end();
+
+        assertEquals(packets.size(), decodedPackets.size());
+        for (int i = 0; i < packets.size(); i++) {
+            assertEquals(packets.get(i).type, decodedPackets.get(i).type);
+            assertEquals(packets.get(i).data, decodedPackets.get(i).data);
+        }
+    }
+
+    @Test
+    public void testDecodePayload_stream_exit() throws IOException {
+        final List<Packet<?>> packets = new ArrayList<>();
+        packets.add(new Packet<>(Packet.MESSAGE, "Engine.IO"));
+        packets.add(new Packet<>(Packet.MESSAGE, "Test.Data"));
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Parser.PROTOCOL_V4.encodePayload(packets, false, outputStream);
+
+        final int[] count = new int[1];
+        Parser.PROTOCOL_V4.decodePayload(new ByteArrayInputStream(outputStream.toByteArray()), (packet, index, total) -> {
+            count[0]++;
+            return false;
+        });
+        assertEquals(1, count[0]);
+    }
+
     @Test
     public void testDecodePacket_null() {
         Packet<?> packet = Parser.PROTOCOL_V4.decodePacket(null);
@@ -173,6 +396,16 @@ public final class ParserV4Test {
         Parser.PROTOCOL_V4.decodePacket(0);
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodePacket_invalidType() {
+        Parser.PROTOCOL_V4.decodePacket("9");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEncodePacket_invalidType() {
+        Parser.PROTOCOL_V4.encodePacket(new Packet<>(Packet.ERROR), false, data -> {});
+    }
+
     @Test
     public void testDecodePacket_string() {
         final Packet<String> packetOriginal = new Packet<>(Packet.MESSAGE, "Engine.IO");
@@ -301,4 +534,43 @@ public final class ParserV4Test {
             });
         });
     }
-}
\ No newline at end of file
+
+    private static void assertEncodePacketStreamMatches(Packet<?> packet, boolean supportsBinary) throws IOException {
+        final Object[] expected = new Object[1];
+        Parser.PROTOCOL_V4.encodePacket(packet, supportsBinary, data -> expected[0] = data);
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final boolean isBinary = Parser.PROTOCOL_V4.encodePacket(packet, supportsBinary, outputStream);
+        assertEquals(expected[0] instanceof byte[], isBinary);
+        assertArrayEquals(toBytes(expected[0]), outputStream.toByteArray());
+    }
+
+    private static void assertEncodePayloadStreamMatches(List<Packet<?>> packets, boolean supportsBinary) throws IOException {
+        final Object[] expected = new Object[1];
+        Parser.PROTOCOL_V4.encodePayload(packets, supportsBinary, data -> expected[0] = data);
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final boolean isBinary = Parser.PROTOCOL_V4.encodePayload(packets, supportsBinary, outputStream);
+        assertEquals(expected[0] instanceof byte[], isBinary);
+        assertArrayEquals(toBytes(expected[0]), outputStream.toByteArray());
+    }
+
+    private static byte[] toBytes(Object data) {
+        return (data instanceof String)? ((String) data).getBytes(StandardCharsets.UTF_8) : (byte[]) data;
+    }
+
+    /**
+     * Input stream that returns at most one byte per read to exercise chunk boundaries.
+     */
+    private static final class TrickleInputStream extends ByteArrayInputStream {
+
+        TrickleInputStream(byte[] data) {
+            super(data);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 1));
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package io.socket.engineio.server.transport;
 
 import io.socket.engineio.server.Emitter;
+import io.socket.engineio.server.EngineIoServerOptions;
 import io.socket.engineio.server.HttpServletResponseImpl;
 import io.socket.engineio.server.ServletInputStreamWrapper;
+import io.socket.engineio.server.ServletOutputStreamWrapper;
 import io.socket.engineio.server.parser.Packet;
 import io.socket.engineio.server.parser.Parser;
 import jakarta.servlet.AsyncContext;
@@ -12,10 +14,20 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 import static org.junit.Assert.*;
 
@@ -24,21 +36,30 @@ public final class PollingTest {
 
     @Test
     public void testName() {
+        final Polling polling = new Polling(new ReentrantLock(), Parser.PROTOCOL_V4);
+
+        assertEquals(Polling.NAME, polling.getName());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testName_lockObject() {
         final Polling polling = new Polling(new Object(), Parser.PROTOCOL_V4);
 
         assertEquals(Polling.NAME, polling.getName());
+        assertFalse(polling.isWritable());
     }
 
     @Test
     public void testWritable_normal() {
-        final Polling polling = new Polling(new Object(), Parser.PROTOCOL_V4);
+        final Polling polling = new Polling(new ReentrantLock(), Parser.PROTOCOL_V4);
 
         assertFalse(polling.isWritable());
     }
 
     @Test
     public void testOnRequest_error() throws IOException {
-        final Polling polling = Mockito.spy(new Polling(new Object(), Parser.PROTOCOL_V4));
+        final Polling polling = Mockito.spy(new Polling(new ReentrantLock(), Parser.PROTOCOL_V4));
 
         final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
         Mockito.doAnswer(invocationOnMock -> "DELETE").when(request).getMethod();
@@ -57,7 +78,7 @@ public final class PollingTest {
 
     @Test
     public void testOnRequest_poll() throws IOException {
-        final Polling polling = Mockito.spy(new Polling(new Object(), Parser.PROTOCOL_V4));
+        final Polling polling = Mockito.spy(new Polling(new ReentrantLock(), Parser.PROTOCOL_V4));
 
         final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
         Mockito.doAnswer(invocationOnMock -> "GET").when(request).getMethod();
@@ -91,9 +112,49 @@ public final class PollingTest {
         });
     }
 
+    @Test
+    public void testOnRequest_poll_encodeFailure() throws IOException {
+        final Parser parser = Mockito.mock(Parser.class);
+        Mockito.doThrow(new IOException("write failed")).when(parser)
+                .encodePayload(Mockito.anyList(), Mockito.anyBoolean(), Mockito.any(OutputStream.class));
+        final Polling polling = Mockito.spy(new Polling(new ReentrantLock(), parser));
+
+        final AsyncContext asyncContext = Mockito.mock(AsyncContext.class);
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.doAnswer(invocationOnMock -> "GET").when(request).getMethod();
+        Mockito.doAnswer(invocationOnMock -> {
+            final HashMap<String, String> queryMap = new HashMap<>();
+            queryMap.put("transport", Polling.NAME);
+            return queryMap;
+        }).when(request).getAttribute("query");
+        Mockito.doReturn(true).when(request).isAsyncStarted();
+        Mockito.doReturn(asyncContext).when(request).getAsyncContext();
+        Mockito.doReturn(asyncContext).when(request).startAsync();
+
+        final HttpServletResponseImpl response = new HttpServletResponseImpl();
+
+        final Emitter.Listener errorListener = Mockito.mock(Emitter.Listener.class);
+        polling.on("error", errorListener);
+        polling.on("drain", args -> polling.send(new ArrayList<Packet<?>>(){{
+            add(new Packet<>(Packet.MESSAGE, "Test Data"));
+        }}));
+
+        polling.onRequest(request, response);
+
+        Mockito.verify(errorListener, Mockito.times(1)).call("encode failure", "write failed");
+        Mockito.verify(asyncContext, Mockito.times(1)).complete();
+        assertEquals(500, response.getStatus());
+        assertEquals(0, response.getByteOutputStream().size());
+        assertNull(response.getContentType());
+
+        // The failed poll is released, so the next one is not an overlap
+        polling.onRequest(request, new HttpServletResponseImpl());
+        Mockito.verify(errorListener, Mockito.never()).call(Mockito.eq("overlap from client"), Mockito.any());
+    }
+
     @Test
     public void testOnRequest_poll_jsonp() throws IOException {
-        final Polling polling = Mockito.spy(new Polling(new Object(), Parser.PROTOCOL_V4));
+        final Polling polling = Mockito.spy(new Polling(new ReentrantLock(), Parser.PROTOCOL_V4));
 
         final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
         Mockito.doAnswer(invocationOnMock -> "GET").when(request).getMethod();
@@ -131,11 +192,123 @@ public final class PollingTest {
         });
     }
 
+    @Test
+    public void testOnRequest_poll_compressed() throws IOException {
+        final EngineIoServerOptions options = EngineIoServerOptions.newFromDefault()
+                .setHttpCompressionEnabled(true)
+                .setHttpCompressionThreshold(64);
+        final String messageData = String.join("", Collections.nCopies(32, "Test Data "));
+
+        for (String encoding : new String[] { "gzip", "deflate" }) {
+            final Polling polling = new Polling(new ReentrantLock(), Parser.PROTOCOL_V4, options);
+
+            final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+            Mockito.doAnswer(invocationOnMock -> "GET").when(request).getMethod();
+            Mockito.doAnswer(invocationOnMock -> encoding).when(request).getHeader("Accept-Encoding");
+            Mockito.doAnswer(invocationOnMock -> {
+                final HashMap<String, String> queryMap = new HashMap<>();
+                queryMap.put("transport", Polling.NAME);
+                return queryMap;
+            }).when(request).getAttribute("query");
+
+            final HttpServletResponseImpl response = new HttpServletResponseImpl();
+
+            polling.on("drain", args -> polling.send(new ArrayList<Packet<?>>() {{
+                add(new Packet<>(Packet.MESSAGE, messageData));
+            }}));
+
+            polling.onRequest(request, response);
+
+            assertEquals(encoding, response.getHeader("Content-Encoding"));
+            assertEquals("Accept-Encoding", response.getHeader("Vary"));
+
+            final ByteArrayInputStream compressed = new ByteArrayInputStream(response.getByteOutputStream().toByteArray());
+            final InputStream inputStream = encoding.equals("gzip")?
+                    new GZIPInputStream(compressed) :
+                    new InflaterInputStream(compressed);
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[1024];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+
+            assertEquals("4" + messageData, new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testOnRequest_poll_compressionDisabled() throws IOException {
+        final Polling polling = new Polling(new ReentrantLock(), Parser.PROTOCOL_V4, EngineIoServerOptions.newFromDefault()
+                .setHttpCompressionThreshold(0));
+
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.doAnswer(invocationOnMock -> "GET").when(request).getMethod();
+        Mockito.doAnswer(invocationOnMock -> "gzip, deflate").when(request).getHeader("Accept-Encoding");
+        Mockito.doAnswer(invocationOnMock -> {
+            final HashMap<String, String> queryMap = new HashMap<>();
+            queryMap.put("transport", Polling.NAME);
+            return queryMap;
+        }).when(request).getAttribute("query");
+
+        final HttpServletResponseImpl response = new HttpServletResponseImpl();
+
+        polling.on("drain", args -> polling.send(new ArrayList<Packet<?>>() {{
+            add(new Packet<>(Packet.MESSAGE, "Test Data"));
+        }}));
+
+        polling.onRequest(request, response);
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertNull(response.getHeader("Vary"));
+        assertEquals("4Test Data", new String(response.getByteOutputStream().toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testOnRequest_poll_belowCompressionThreshold() throws IOException {
+        final Polling polling = new Polling(new ReentrantLock(), Parser.PROTOCOL_V4, EngineIoServerOptions.newFromDefault()
+                .setHttpCompressionEnabled(true));
+
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.doAnswer(invocationOnMock -> "GET").when(request).getMethod();
+        Mockito.doAnswer(invocationOnMock -> "gzip, deflate").when(request).getHeader("Accept-Encoding");
+        Mockito.doAnswer(invocationOnMock -> {
+            final HashMap<String, String> queryMap = new HashMap<>();
+            queryMap.put("transport", Polling.NAME);
+            return queryMap;
+        }).when(request).getAttribute("query");
+
+        final HttpServletResponseImpl response = new HttpServletResponseImpl();
+
+        polling.on("drain", args -> polling.send(new ArrayList<Packet<?>>() {{
+            add(new Packet<>(Packet.MESSAGE, "Test Data"));
+        }}));
+
+        polling.onRequest(request, response);
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("4Test Data", new String(response.getByteOutputStream().toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testNegotiateContentEncoding() {
+        assertNull(Polling.negotiateContentEncoding(null));
+        assertNull(Polling.negotiateContentEncoding("identity"));
+        assertNull(Polling.negotiateContentEncoding("br"));
+        assertEquals("gzip", Polling.negotiateContentEncoding("gzip, deflate, br"));
+        assertEquals("gzip", Polling.negotiateContentEncoding("deflate, GZIP"));
+        assertEquals("deflate", Polling.negotiateContentEncoding("deflate"));
+        assertEquals("deflate", Polling.negotiateContentEncoding("gzip;q=0, deflate;q=0.5"));
+        assertEquals("gzip", Polling.negotiateContentEncoding("*"));
+        assertEquals("deflate", Polling.negotiateContentEncoding("gzip;q=0, *"));
+        assertNull(Polling.negotiateContentEncoding("gzip;q=0, deflate;q=0"));
+    }
+
     @Test
     public void testOnRequest_data() {
         final String messageData = "Test Data";
 
-        final Polling polling = Mockito.spy(new Polling(new Object(), Parser.PROTOCOL_V4));
+        final Polling polling = Mockito.spy(new Polling(new ReentrantLock(), Parser.PROTOCOL_V4));
         polling.on("packet", args -> {
             final Packet<?> packet = (Packet<Object>) args[0];
             assertEquals(Packet.MESSAGE, packet.type);
@@ -172,12 +345,125 @@ public final class PollingTest {
         });
     }
 
+    @Test
+    public void testOnRequest_data_tooLarge() throws IOException {
+        final EngineIoServerOptions options = EngineIoServerOptions.newFromDefault()
+                .setMaxHttpBufferSize(16);
+        final Polling polling = Mockito.spy(new Polling(new ReentrantLock(), Parser.PROTOCOL_V4, options));
+
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.doAnswer(invocationOnMock -> "POST").when(request).getMethod();
+        Mockito.doAnswer(invocationOnMock -> {
+            final HashMap<String, String> queryMap = new HashMap<>();
+            queryMap.put("transport", Polling.NAME);
+            return queryMap;
+        }).when(request).getAttribute("query");
+        Mockito.doAnswer(invocationOnMock -> (long) Integer.MAX_VALUE).when(request).getContentLengthLong();
+
+        final HttpServletResponseImpl response = new HttpServletResponseImpl();
+
+        polling.onRequest(request, response);
+
+        assertEquals(413, response.getStatus());
+        Mockito.verify(request, Mockito.never()).getInputStream();
+        Mockito.verify(polling, Mockito.never())
+                .emit(Mockito.eq("packet"), Mockito.any(Packet.class));
+    }
+
+    @Test
+    public void testOnRequest_data_chunkedTooLarge() throws IOException {
+        final EngineIoServerOptions options = EngineIoServerOptions.newFromDefault()
+                .setMaxHttpBufferSize(16);
+        final Polling polling = Mockito.spy(new Polling(new ReentrantLock(), Parser.PROTOCOL_V4, options));
+
+        final byte[] data = "4Test Data\u001e4Test Data".getBytes(StandardCharsets.UTF_8);
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.doAnswer(invocationOnMock -> "POST").when(request).getMethod();
+        Mockito.doAnswer(invocationOnMock -> {
+            final HashMap<String, String> queryMap = new HashMap<>();
+            queryMap.put("transport", Polling.NAME);
+            return queryMap;
+        }).when(request).getAttribute("query");
+        Mockito.doAnswer(invocationOnMock -> -1L).when(request).getContentLengthLong();
+        Mockito.doAnswer(invocationOnMock -> new ServletInputStreamWrapper(new ByteArrayInputStream(data))).when(request).getInputStream();
+
+        final HttpServletResponseImpl response = new HttpServletResponseImpl();
+
+        polling.onRequest(request, response);
+
+        assertEquals(413, response.getStatus());
+        Mockito.verify(polling, Mockito.never())
+                .emit(Mockito.eq("packet"), Mockito.any(Packet.class));
+    }
+
+    @Test
+    public void testOnRequest_data_chunkedTooLarge_streamed() throws IOException {
+        final EngineIoServerOptions options = EngineIoServerOptions.newFromDefault()
+                .setMaxHttpBufferSize(16);
+        final Polling polling = Mockito.spy(new Polling(new ReentrantLock(), Parser.PROTOCOL_V4, options));
+
+        // Body arriving one byte at a time is decoded as it is read
+        final byte[] data = "4Test Data\u001e4Test Data".getBytes(StandardCharsets.UTF_8);
+        final InputStream trickleInputStream = new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+
+            @Override
+            public synchronized int available() {
+                return 0;
+            }
+        };
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.doAnswer(invocationOnMock -> "POST").when(request).getMethod();
+        Mockito.doAnswer(invocationOnMock -> {
+            final HashMap<String, String> queryMap = new HashMap<>();
+            queryMap.put("transport", Polling.NAME);
+            return queryMap;
+        }).when(request).getAttribute("query");
+        Mockito.doAnswer(invocationOnMock -> -1L).when(request).getContentLengthLong();
+        Mockito.doAnswer(invocationOnMock -> new ServletInputStreamWrapper(trickleInputStream)).when(request).getInputStream();
+
+        final HttpServletResponseImpl response = new HttpServletResponseImpl();
+
+        polling.onRequest(request, response);
+
+        assertEquals(413, response.getStatus());
+        Mockito.verify(polling, Mockito.times(1))
+                .emit(Mockito.eq("packet"), Mockito.any(Packet.class));
+    }
+
+    @Test
+    public void testOnRequest_data_chunked() throws IOException {
+        final Polling polling = Mockito.spy(new Polling(new ReentrantLock(), Parser.PROTOCOL_V4));
+
+        final byte[] data = "4Test Data\u001e4Test Data".getBytes(StandardCharsets.UTF_8);
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.doAnswer(invocationOnMock -> "POST").when(request).getMethod();
+        Mockito.doAnswer(invocationOnMock -> {
+            final HashMap<String, String> queryMap = new HashMap<>();
+            queryMap.put("transport", Polling.NAME);
+            return queryMap;
+        }).when(request).getAttribute("query");
+        Mockito.doAnswer(invocationOnMock -> -1L).when(request).getContentLengthLong();
+        Mockito.doAnswer(invocationOnMock -> new ServletInputStreamWrapper(new ByteArrayInputStream(data))).when(request).getInputStream();
+
+        final HttpServletResponseImpl response = new HttpServletResponseImpl();
+
+        polling.onRequest(request, response);
+
+        assertEquals(200, response.getStatus());
+        Mockito.verify(polling, Mockito.times(2))
+                .emit(Mockito.eq("packet"), Mockito.any(Packet.class));
+    }
+
     @Test
     @Ignore
     public void testOnRequest_data_jsonp() {
         final String messageData = "Test Data";
 
-        final Polling polling = Mockito.spy(new Polling(new Object(), Parser.PROTOCOL_V4));
+        final Polling polling = Mockito.spy(new Polling(new ReentrantLock(), Parser.PROTOCOL_V4));
         polling.on("packet", args -> {
             final Packet<?> packet = (Packet<Object>) args[0];
             assertEquals(Packet.MESSAGE, packet.type);
@@ -214,7 +500,7 @@ public final class PollingTest {
 
     @Test
     public void testOnRequest_async() throws IOException {
-        final Polling polling = Mockito.spy(new Polling(new Object(), Parser.PROTOCOL_V4));
+        final Polling polling = Mockito.spy(new Polling(new ReentrantLock(), Parser.PROTOCOL_V4));
 
         final AsyncContext asyncContext = Mockito.mock(AsyncContext.class);
 
@@ -265,9 +551,157 @@ public final class PollingTest {
                 .call(Mockito.any(), Mockito.anyInt(), Mockito.anyInt());
     }
 
+    @Test
+    public void testOnRequest_data_nonBlocking() throws IOException {
+        final String messageData = "Test Data";
+        final EngineIoServerOptions options = EngineIoServerOptions.newFromDefault()
+                .setNonBlockingPollingIoEnabled(true);
+
+        final Polling polling = Mockito.spy(new Polling(new ReentrantLock(), Parser.PROTOCOL_V4, options));
+        polling.on("packet", args -> {
+            final Packet<?> packet = (Packet<Object>) args[0];
+            assertEquals(Packet.MESSAGE, packet.type);
+            assertEquals(messageData, packet.data);
+        });
+
+        final byte[] data = ("4" + messageData).getBytes(StandardCharsets.UTF_8);
+        final ServletInputStreamWrapper inputStream = new ServletInputStreamWrapper(new ByteArrayInputStream(data));
+        final AsyncContext asyncContext = Mockito.mock(AsyncContext.class);
+
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.doAnswer(invocationOnMock -> "POST").when(request).getMethod();
+        Mockito.doAnswer(invocationOnMock -> {
+            final HashMap<String, String> queryMap = new HashMap<>();
+            queryMap.put("transport", Polling.NAME);
+            return queryMap;
+        }).when(request).getAttribute("query");
+        Mockito.doAnswer(invocationOnMock -> inputStream).when(request).getInputStream();
+        Mockito.doAnswer(invocation -> true).when(request).isAsyncSupported();
+        Mockito.doAnswer(invocation -> asyncContext).when(request).startAsync();
+
+        final HttpServletResponseImpl response = new HttpServletResponseImpl();
+
+        polling.onRequest(request, response);
+
+        assertNotNull(inputStream.getReadListener());
+        Mockito.verify(polling, Mockito.times(0))
+                .emit(Mockito.eq("packet"), Mockito.any(Packet.class));
+
+        inputStream.getReadListener().onDataAvailable();
+        inputStream.getReadListener().onAllDataRead();
+
+        Mockito.verify(polling, Mockito.times(1))
+                .emit(Mockito.eq("packet"), Mockito.any(Packet.class));
+        Mockito.verify(asyncContext, Mockito.times(1)).complete();
+        response.getWriter().flush();
+        assertEquals("ok", new String(response.getByteOutputStream().toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testOnRequest_data_nonBlocking_chunks() throws IOException {
+        final EngineIoServerOptions options = EngineIoServerOptions.newFromDefault()
+                .setNonBlockingPollingIoEnabled(true);
+
+        final Polling polling = new Polling(new ReentrantLock(), Parser.PROTOCOL_V4, options);
+        final List<Object> messages = new ArrayList<>();
+        polling.on("packet", args -> messages.add(((Packet<?>) args[0]).data));
+
+        final byte[] data = "4first\u001E4second\u001E4\u20AC".getBytes(StandardCharsets.UTF_8);
+        final ArrayDeque<byte[]> chunks = new ArrayDeque<>();
+        final ServletInputStreamWrapper inputStream = new ServletInputStreamWrapper(new InputStream() {
+            @Override
+            public int read() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                final byte[] chunk = chunks.poll();
+                if (chunk == null) {
+                    return -1;
+                }
+                System.arraycopy(chunk, 0, b, off, chunk.length);
+                return chunk.length;
+            }
+        });
+        final AsyncContext asyncContext = Mockito.mock(AsyncContext.class);
+
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.doAnswer(invocationOnMock -> "POST").when(request).getMethod();
+        Mockito.doAnswer(invocationOnMock -> {
+            final HashMap<String, String> queryMap = new HashMap<>();
+            queryMap.put("transport", Polling.NAME);
+            return queryMap;
+        }).when(request).getAttribute("query");
+        Mockito.doAnswer(invocationOnMock -> inputStream).when(request).getInputStream();
+        Mockito.doAnswer(invocation -> true).when(request).isAsyncSupported();
+        Mockito.doAnswer(invocation -> asyncContext).when(request).startAsync();
+
+        polling.onRequest(request, new HttpServletResponseImpl());
+
+        // Each packet is delivered as soon as its chunk arrives, the euro sign is split in two
+        chunks.add(Arrays.copyOfRange(data, 0, 9));
+        inputStream.getReadListener().onDataAvailable();
+        assertEquals(Collections.singletonList("first"), messages);
+
+        chunks.add(Arrays.copyOfRange(data, 9, data.length - 1));
+        inputStream.getReadListener().onDataAvailable();
+        assertEquals(Arrays.asList("first", "second"), messages);
+
+        chunks.add(Arrays.copyOfRange(data, data.length - 1, data.length));
+        inputStream.getReadListener().onDataAvailable();
+        inputStream.getReadListener().onAllDataRead();
+        assertEquals(Arrays.asList("first", "second", "\u20AC"), messages);
+        Mockito.verify(asyncContext, Mockito.times(1)).complete();
+    }
+
+    @Test
+    public void testOnRequest_poll_nonBlocking() throws IOException {
+        final EngineIoServerOptions options = EngineIoServerOptions.newFromDefault()
+                .setNonBlockingPollingIoEnabled(true);
+        final Polling polling = Mockito.spy(new Polling(new ReentrantLock(), Parser.PROTOCOL_V4, options));
+
+        final AsyncContext asyncContext = Mockito.mock(AsyncContext.class);
+
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.doAnswer(invocationOnMock -> "GET").when(request).getMethod();
+        Mockito.doAnswer(invocationOnMock -> {
+            final HashMap<String, String> queryMap = new HashMap<>();
+            queryMap.put("transport", Polling.NAME);
+            return queryMap;
+        }).when(request).getAttribute("query");
+        Mockito.doAnswer(invocation -> true).when(request).isAsyncSupported();
+        Mockito.doAnswer(invocation -> true).when(request).isAsyncStarted();
+        Mockito.doAnswer(invocation -> asyncContext).when(request).startAsync();
+        Mockito.doAnswer(invocation -> asyncContext).when(request).getAsyncContext();
+
+        final HttpServletResponseImpl response = new HttpServletResponseImpl();
+
+        polling.onRequest(request, response);
+        polling.send(new ArrayList<Packet<?>>(){{
+            add(new Packet<>(Packet.MESSAGE, "Test Data"));
+        }});
+
+        final ServletOutputStreamWrapper outputStream = (ServletOutputStreamWrapper) response.getOutputStream();
+        assertNotNull(outputStream.getWriteListener());
+        assertEquals(0, response.getByteOutputStream().size());
+        Mockito.verify(asyncContext, Mockito.times(0)).complete();
+
+        outputStream.getWriteListener().onWritePossible();
+
+        Mockito.verify(asyncContext, Mockito.times(1)).complete();
+        final String responseString = new String(response.getByteOutputStream().toByteArray(), StandardCharsets.UTF_8);
+        Parser.PROTOCOL_V4.decodePayload(responseString, (packet, index, total) -> {
+            assertEquals(1, total);
+            assertEquals(Packet.MESSAGE, packet.type);
+            assertEquals("Test Data", packet.data);
+            return true;
+        });
+    }
+
     @Test
     public void testClose_client() {
-        final Polling polling = Mockito.spy(new Polling(new Object(), Parser.PROTOCOL_V4));
+        final Polling polling = Mockito.spy(new Polling(new ReentrantLock(), Parser.PROTOCOL_V4));
 
         final Packet<String> requestPacket = new Packet<>(Packet.CLOSE);
         Parser.PROTOCOL_V4.encodePayload(new ArrayList<Packet<?>>() {{ add(requestPacket); }}, true, dataString -> {
@@ -301,7 +735,7 @@ public final class PollingTest {
 
     @Test
     public void testClose_server1() throws IOException {
-        final Polling polling = Mockito.spy(new Polling(new Object(), Parser.PROTOCOL_V4));
+        final Polling polling = Mockito.spy(new Polling(new ReentrantLock(), Parser.PROTOCOL_V4));
 
         final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
         Mockito.doAnswer(invocationOnMock -> "GET").when(request).getMethod();
@@ -335,7 +769,7 @@ public final class PollingTest {
 
     @Test
     public void testClose_server2() {
-        final Polling polling = Mockito.spy(new Polling(new Object(), Parser.PROTOCOL_V4));
+        final Polling polling = Mockito.spy(new Polling(new ReentrantLock(), Parser.PROTOCOL_V4));
 
         polling.on("drain", args -> polling.close());
 
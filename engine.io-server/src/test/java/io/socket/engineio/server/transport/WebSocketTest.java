@@ -1,6 +1,7 @@
 package io.socket.engineio.server.transport;
 
 import io.socket.engineio.server.Emitter;
+import io.socket.engineio.server.EngineIoServerOptions;
 import io.socket.engineio.server.EngineIoWebSocket;
 import io.socket.engineio.server.parser.Packet;
 import io.socket.engineio.server.parser.Parser;
@@ -12,16 +13,21 @@ import org.mockito.Mockito;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public final class WebSocketTest {
 
-    private static final class EngineIoWebSocketStub extends EngineIoWebSocket {
+    private static class EngineIoWebSocketStub extends EngineIoWebSocket {
 
         @Override
         public Map<String, String> getQuery() {
@@ -80,8 +86,64 @@ public final class WebSocketTest {
     }
 
     @Test
-    public void testSend_string() {
+    public void testInitialHeaders_retained() {
+        final Map<String, List<String>> headers = new HashMap<>();
+        headers.put("cookie", Collections.singletonList("a=b"));
+        headers.put("User-Agent", Collections.singletonList("test"));
         final EngineIoWebSocket webSocketConnection = Mockito.mock(EngineIoWebSocket.class);
+        Mockito.doReturn(headers).when(webSocketConnection).getConnectionHeaders();
+
+        assertSame(headers, new WebSocket(webSocketConnection, Parser.PROTOCOL_V4).getInitialHeaders());
+
+        final WebSocket webSocket = new WebSocket(webSocketConnection, Parser.PROTOCOL_V4,
+                EngineIoServerOptions.newFromDefault().setRetainedHeaders(new String[] { "Cookie" }));
+        assertEquals(Collections.singletonMap("Cookie", Collections.singletonList("a=b")), webSocket.getInitialHeaders());
+
+        final WebSocket noHeadersWebSocket = new WebSocket(webSocketConnection, Parser.PROTOCOL_V4,
+                EngineIoServerOptions.newFromDefault().setRetainedHeaders(EngineIoServerOptions.RETAINED_HEADERS_NONE));
+        assertTrue(noHeadersWebSocket.getInitialHeaders().isEmpty());
+    }
+
+    @Test
+    public void testMessage_tooLarge() {
+        final EngineIoWebSocket webSocketConnection = Mockito.spy(EngineIoWebSocket.class);
+        final WebSocket webSocket = new WebSocket(webSocketConnection, Parser.PROTOCOL_V4,
+                EngineIoServerOptions.newFromDefault().setMaxHttpBufferSize(8));
+
+        final Emitter.Listener packetListener = Mockito.mock(Emitter.Listener.class);
+        final Emitter.Listener errorListener = Mockito.mock(Emitter.Listener.class);
+        webSocket.on("packet", packetListener);
+        webSocket.on("error", errorListener);
+
+        webSocketConnection.emit("message", (Object) "4Test");
+        Mockito.verify(packetListener, Mockito.times(1)).call(Mockito.any(Packet.class));
+        Mockito.verify(errorListener, Mockito.never()).call(Mockito.any());
+
+        webSocketConnection.emit("message", (Object) new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+        Mockito.verify(packetListener, Mockito.times(1)).call(Mockito.any(Packet.class));
+        Mockito.verify(errorListener, Mockito.times(1)).call(Mockito.eq("payload too large"), Mockito.any());
+    }
+
+    @Test
+    public void testMessage_tooLarge_utf8() {
+        final EngineIoWebSocket webSocketConnection = Mockito.spy(EngineIoWebSocket.class);
+        final WebSocket webSocket = new WebSocket(webSocketConnection, Parser.PROTOCOL_V4,
+                EngineIoServerOptions.newFromDefault().setMaxHttpBufferSize(8));
+
+        final Emitter.Listener packetListener = Mockito.mock(Emitter.Listener.class);
+        final Emitter.Listener errorListener = Mockito.mock(Emitter.Listener.class);
+        webSocket.on("packet", packetListener);
+        webSocket.on("error", errorListener);
+
+        // 5 characters taking 9 bytes in UTF-8
+        webSocketConnection.emit("message", (Object) "4\u00e9\u00e9\u00e9\u00e9");
+        Mockito.verify(packetListener, Mockito.never()).call(Mockito.any(Packet.class));
+        Mockito.verify(errorListener, Mockito.times(1)).call(Mockito.eq("payload too large"), Mockito.any());
+    }
+
+    @Test
+    public void testSend_string() {
+        final EngineIoWebSocket webSocketConnection = Mockito.spy(EngineIoWebSocket.class);
         final WebSocket webSocket = Mockito.spy(new WebSocket(webSocketConnection, Parser.PROTOCOL_V4));
 
         final String stringData = "Test string";
@@ -103,7 +165,7 @@ public final class WebSocketTest {
 
     @Test
     public void testSend_binary() {
-        final EngineIoWebSocket webSocketConnection = Mockito.mock(EngineIoWebSocket.class);
+        final EngineIoWebSocket webSocketConnection = Mockito.spy(EngineIoWebSocket.class);
         final WebSocket webSocket = Mockito.spy(new WebSocket(webSocketConnection, Parser.PROTOCOL_V4));
 
         final byte[] binaryData = "Test string".getBytes(StandardCharsets.UTF_8);
@@ -125,7 +187,7 @@ public final class WebSocketTest {
 
     @Test
     public void testSend_error() throws IOException {
-        final EngineIoWebSocket webSocketConnection = Mockito.mock(EngineIoWebSocket.class);
+        final EngineIoWebSocket webSocketConnection = Mockito.spy(EngineIoWebSocket.class);
         final WebSocket webSocket = Mockito.spy(new WebSocket(webSocketConnection, Parser.PROTOCOL_V4));
 
         Mockito.doThrow(new IOException()).when(webSocketConnection).write(Mockito.anyString());
@@ -143,6 +205,78 @@ public final class WebSocketTest {
                 .emit(Mockito.eq("error"), Mockito.eq("write error"), Mockito.isNull());
     }
 
+    @Test
+    public void testSend_async() {
+        final List<CompletableFuture<Void>> pendingWrites = new ArrayList<>();
+        final List<String> writtenData = new ArrayList<>();
+        final EngineIoWebSocket webSocketConnection = new EngineIoWebSocketStub() {
+            @Override
+            public CompletionStage<Void> writeAsync(String message) {
+                final CompletableFuture<Void> future = new CompletableFuture<>();
+                writtenData.add(message);
+                pendingWrites.add(future);
+                return future;
+            }
+        };
+        final WebSocket webSocket = new WebSocket(webSocketConnection, Parser.PROTOCOL_V4);
+
+        final Emitter.Listener drainListener = Mockito.mock(Emitter.Listener.class);
+        webSocket.on("drain", drainListener);
+
+        webSocket.send(new ArrayList<Packet<?>>() {{
+            add(new Packet<>(Packet.MESSAGE, "1"));
+            add(new Packet<>(Packet.MESSAGE, "2"));
+        }});
+
+        // Second write must wait for the first one to complete
+        assertFalse(webSocket.isWritable());
+        assertEquals(1, writtenData.size());
+
+        pendingWrites.get(0).complete(null);
+        assertFalse(webSocket.isWritable());
+        assertEquals(2, writtenData.size());
+        Mockito.verify(drainListener, Mockito.never())
+                .call();
+
+        pendingWrites.get(1).complete(null);
+        assertTrue(webSocket.isWritable());
+        assertEquals("41", writtenData.get(0));
+        assertEquals("42", writtenData.get(1));
+        Mockito.verify(drainListener, Mockito.times(1))
+                .call();
+    }
+
+    @Test
+    public void testSend_batch() throws IOException {
+        final List<List<Object>> batches = new ArrayList<>();
+        final EngineIoWebSocket webSocketConnection = Mockito.spy(new EngineIoWebSocketStub() {
+            @Override
+            public CompletionStage<Void> writeBatch(List<Object> messages) {
+                batches.add(messages);
+                return CompletableFuture.completedFuture(null);
+            }
+        });
+        final WebSocket webSocket = new WebSocket(webSocketConnection, Parser.PROTOCOL_V4);
+
+        final byte[] binaryData = new byte[] { 1, 2, 3 };
+        webSocket.send(new ArrayList<Packet<?>>() {{
+            add(new Packet<>(Packet.MESSAGE, "1"));
+            add(new Packet<>(Packet.MESSAGE, binaryData));
+            add(new Packet<>(Packet.PING));
+        }});
+
+        assertTrue(webSocket.isWritable());
+        assertEquals(1, batches.size());
+        assertEquals(3, batches.get(0).size());
+        assertEquals("41", batches.get(0).get(0));
+        assertSame(binaryData, batches.get(0).get(1));
+        assertEquals("2", batches.get(0).get(2));
+        Mockito.verify(webSocketConnection, Mockito.never())
+                .write(Mockito.anyString());
+        Mockito.verify(webSocketConnection, Mockito.never())
+                .writeAsync(Mockito.anyString());
+    }
+
     @Test
     public void testConnection_close() {
         final EngineIoWebSocket webSocketConnection = new EngineIoWebSocketStub();
@@ -0,0 +1,242 @@
+package io.socket.engineio.server.utils;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class HashedWheelTimerTest {
+
+    private static final long TICK_DURATION = 10;
+    private static final int WHEEL_SIZE = 8;
+
+    /**
+     * Timer driven by a manual clock. Ticks only run when the test advances the clock.
+     */
+    private static final class ManualTimer {
+
+        private final AtomicLong mNow = new AtomicLong(0);
+        private final HashedWheelTimer mTimer;
+        private Runnable mTick;
+
+        ManualTimer() {
+            final ScheduledExecutorService executor = Mockito.mock(ScheduledExecutorService.class);
+            Mockito.doAnswer(invocationOnMock -> {
+                mTick = invocationOnMock.getArgument(0);
+                return Mockito.mock(ScheduledFuture.class);
+            }).when(executor).scheduleAtFixedRate(Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.anyLong(), Mockito.any(TimeUnit.class));
+            Mockito.doAnswer(invocationOnMock -> {
+                invocationOnMock.<Runnable>getArgument(0).run();
+                return null;
+            }).when(executor).execute(Mockito.any(Runnable.class));
+
+            mTimer = new HashedWheelTimer(executor, TICK_DURATION, TimeUnit.MILLISECONDS, WHEEL_SIZE, mNow::get);
+        }
+
+        HashedWheelTimer getTimer() {
+            return mTimer;
+        }
+
+        /**
+         * Advance the clock tick by tick, running each tick.
+         */
+        void advance(long millis) {
+            for (long elapsed = 0; elapsed < millis; elapsed += TICK_DURATION) {
+                mNow.addAndGet(TimeUnit.MILLISECONDS.toNanos(Math.min(TICK_DURATION, millis - elapsed)));
+                mTick.run();
+            }
+        }
+
+        /**
+         * Advance the clock at once and run a single late tick.
+         */
+        void stall(long millis) {
+            mNow.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+            mTick.run();
+        }
+    }
+
+    @Test
+    public void testExpire() {
+        final ManualTimer timer = new ManualTimer();
+        final AtomicInteger count = new AtomicInteger(0);
+        final HashedWheelTimer.Timeout timeout = timer.getTimer().newTimeout(count::incrementAndGet);
+
+        timeout.reset(50, TimeUnit.MILLISECONDS);
+        timer.advance(40);
+        assertEquals(0, count.get());
+        timer.advance(10);
+        assertEquals(1, count.get());
+
+        timer.advance(100);
+        assertEquals(1, count.get());
+    }
+
+    @Test
+    public void testExpire_afterStall() {
+        final ManualTimer timer = new ManualTimer();
+        final AtomicInteger short1 = new AtomicInteger(0);
+        final AtomicInteger short2 = new AtomicInteger(0);
+        final AtomicInteger late = new AtomicInteger(0);
+        final AtomicInteger pending = new AtomicInteger(0);
+
+        timer.getTimer().newTimeout(short1::incrementAndGet).reset(30, TimeUnit.MILLISECONDS);
+        timer.getTimer().newTimeout(short2::incrementAndGet).reset(70, TimeUnit.MILLISECONDS);
+        timer.getTimer().newTimeout(late::incrementAndGet).reset(500, TimeUnit.MILLISECONDS);
+        timer.getTimer().newTimeout(pending::incrementAndGet).reset(2000, TimeUnit.MILLISECONDS);
+        timer.advance(10);
+
+        // One late tick covers many rotations of the wheel
+        timer.stall(1000);
+        assertEquals(1, short1.get());
+        assertEquals(1, short2.get());
+        assertEquals(1, late.get());
+        assertEquals(0, pending.get());
+
+        timer.advance(980);
+        assertEquals(0, pending.get());
+        timer.advance(10);
+        assertEquals(1, pending.get());
+    }
+
+    @Test
+    public void testReset_earlier() {
+        final ManualTimer timer = new ManualTimer();
+        final AtomicInteger count = new AtomicInteger(0);
+        final HashedWheelTimer.Timeout timeout = timer.getTimer().newTimeout(count::incrementAndGet);
+
+        timeout.reset(500, TimeUnit.MILLISECONDS);
+        timer.advance(10);
+
+        timeout.reset(50, TimeUnit.MILLISECONDS);
+        timer.advance(40);
+        assertEquals(0, count.get());
+        timer.advance(10);
+        assertEquals(1, count.get());
+
+        // The slot of the superseded deadline must not run the task again
+        timer.advance(1000);
+        assertEquals(1, count.get());
+    }
+
+    @Test
+    public void testReset_later() {
+        final ManualTimer timer = new ManualTimer();
+        final AtomicInteger count = new AtomicInteger(0);
+        final HashedWheelTimer.Timeout timeout = timer.getTimer().newTimeout(count::incrementAndGet);
+
+        timeout.reset(50, TimeUnit.MILLISECONDS);
+        timer.advance(40);
+        timeout.reset(50, TimeUnit.MILLISECONDS);
+        timer.advance(40);
+        assertEquals(0, count.get());
+        timer.advance(10);
+        assertEquals(1, count.get());
+    }
+
+    @Test
+    public void testReset_longerThanRotation() {
+        final ManualTimer timer = new ManualTimer();
+        final AtomicInteger count = new AtomicInteger(0);
+        final HashedWheelTimer.Timeout timeout = timer.getTimer().newTimeout(count::incrementAndGet);
+
+        // The wheel covers 80ms, the timeout passes its bucket twelve times before expiring
+        timeout.reset(1000, TimeUnit.MILLISECONDS);
+        timer.advance(990);
+        assertEquals(0, count.get());
+        timer.advance(10);
+        assertEquals(1, count.get());
+    }
+
+    @Test
+    public void testCancel() {
+        final ManualTimer timer = new ManualTimer();
+        final AtomicInteger count = new AtomicInteger(0);
+        final HashedWheelTimer.Timeout timeout = timer.getTimer().newTimeout(count::incrementAndGet);
+
+        timeout.reset(50, TimeUnit.MILLISECONDS);
+        timer.advance(40);
+        timeout.cancel();
+        timer.advance(100);
+        assertEquals(0, count.get());
+
+        timeout.reset(50, TimeUnit.MILLISECONDS);
+        timer.advance(50);
+        assertEquals(1, count.get());
+    }
+
+    @Test
+    public void testCancel_afterDeadline() {
+        final ManualTimer timer = new ManualTimer();
+        final AtomicInteger count = new AtomicInteger(0);
+        final HashedWheelTimer.Timeout timeout = timer.getTimer().newTimeout(count::incrementAndGet);
+
+        // The deadline has passed but no tick has seen it yet
+        timeout.reset(50, TimeUnit.MILLISECONDS);
+        timer.advance(40);
+        timer.mNow.addAndGet(TimeUnit.MILLISECONDS.toNanos(20));
+        timeout.cancel();
+        timer.mTick.run();
+        assertEquals(0, count.get());
+    }
+
+    @Test(timeout = 30000)
+    public void testCancel_racingWithExpiry() throws InterruptedException {
+        final ManualTimer timer = new ManualTimer();
+        final AtomicInteger count = new AtomicInteger(0);
+        final HashedWheelTimer.Timeout timeout = timer.getTimer().newTimeout(count::incrementAndGet);
+
+        final int iterations = 100000;
+        final AtomicBoolean done = new AtomicBoolean(false);
+        final Thread ticker = new Thread(() -> {
+            while (!done.get()) {
+                timer.advance(TICK_DURATION);
+            }
+        });
+        ticker.start();
+
+        for (int i = 0; i < iterations; i++) {
+            timeout.reset(0, TimeUnit.MILLISECONDS);
+            timeout.cancel();
+        }
+        done.set(true);
+        ticker.join();
+
+        // Each reset runs the task at most once
+        assertTrue(count.get() <= iterations);
+        timer.advance(100);
+        final int expired = count.get();
+        assertTrue(expired <= iterations);
+
+        // The timeout is still usable once the race is over
+        timeout.reset(50, TimeUnit.MILLISECONDS);
+        timer.advance(50);
+        assertEquals(expired + 1, count.get());
+    }
+
+    @Test
+    public void testStop() throws InterruptedException {
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            final HashedWheelTimer timer = new HashedWheelTimer(executor, TICK_DURATION, TimeUnit.MILLISECONDS, WHEEL_SIZE);
+            final AtomicInteger count = new AtomicInteger(0);
+
+            timer.newTimeout(count::incrementAndGet).reset(50, TimeUnit.MILLISECONDS);
+            timer.stop();
+
+            Thread.sleep(200);
+            assertEquals(0, count.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
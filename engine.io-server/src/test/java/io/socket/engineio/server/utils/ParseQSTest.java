@@ -0,0 +1,108 @@
+package io.socket.engineio.server.utils;
+
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public final class ParseQSTest {
+
+    @Test
+    public void testDecode() {
+        final Map<String, String> query = ParseQS.decode("EIO=4&transport=polling&t=NxYz1&sid=abc-_12&b64");
+
+        final Map<String, String> expected = new HashMap<>();
+        expected.put("EIO", "4");
+        expected.put("transport", "polling");
+        expected.put("t", "NxYz1");
+        expected.put("sid", "abc-_12");
+        expected.put("b64", "");
+        assertEquals(expected, query);
+        assertTrue(query.containsKey("b64"));
+        assertFalse(query.containsKey("j"));
+    }
+
+    @Test
+    public void testDecode_empty() {
+        assertTrue(ParseQS.decode(null).isEmpty());
+        assertTrue(ParseQS.decode("").isEmpty());
+        assertEquals(1, ParseQS.decode("&&a=1&").size());
+    }
+
+    @Test
+    public void testDecode_escaped() throws UnsupportedEncodingException {
+        final String[] values = new String[] {
+                "a+b", "a%20b", "%E2%98%83", "x%3Dy%26z", "Engine.IO+%E2%98%83+%F0%9F%98%80", "%41b%43", "a=b"
+        };
+
+        for (String value : values) {
+            final Map<String, String> query = ParseQS.decode("k%31=" + value);
+            assertEquals(URLDecoder.decode(value, StandardCharsets.UTF_8.name()), query.get("k1"));
+        }
+    }
+
+    @Test
+    public void testDecode_repeated() {
+        assertEquals("2", ParseQS.decode("a=1&a=2").get("a"));
+    }
+
+    @Test
+    public void testDecode_manyKeys() {
+        final StringBuilder qs = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            qs.append("k").append(i).append('=').append(i).append('&');
+        }
+        qs.append("k0=last");
+
+        final Map<String, String> query = ParseQS.decode(qs.toString());
+        assertEquals(1000, query.size());
+        assertEquals("last", query.get("k0"));
+        assertEquals("999", query.get("k999"));
+
+        final Iterator<String> keys = query.keySet().iterator();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("k" + i, keys.next());
+        }
+
+        query.put("a", "1");
+        assertEquals("1", query.remove("a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecode_incompleteEscape() {
+        ParseQS.decode("a=%4");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecode_illegalEscape() {
+        ParseQS.decode("a=%zz");
+    }
+
+    @Test
+    public void testDecode_mutable() {
+        final Map<String, String> query = ParseQS.decode("a=1&b=2&c=3");
+
+        query.put("d", "4");
+        query.put("a", "0");
+        assertEquals("2", query.remove("b"));
+
+        final Iterator<Map.Entry<String, String>> iterator = query.entrySet().iterator();
+        assertEquals("a", iterator.next().getKey());
+        iterator.next().setValue("5");
+        iterator.remove();
+        assertEquals("d", iterator.next().getKey());
+        assertFalse(iterator.hasNext());
+
+        final Map<String, String> expected = new HashMap<>();
+        expected.put("a", "0");
+        expected.put("d", "4");
+        assertEquals(expected, query);
+        assertEquals(expected.hashCode(), query.hashCode());
+    }
+}
@@ -0,0 +1,58 @@
+package io.socket.engineio.server.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public final class SerialExecutorTest {
+
+    @Test
+    public void testOrder() {
+        final List<Runnable> drainTasks = new ArrayList<>();
+        final SerialExecutor executor = new SerialExecutor(drainTasks::add);
+
+        final List<Integer> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final int value = i;
+            executor.execute(() -> results.add(value));
+        }
+
+        assertEquals(1, drainTasks.size());
+        drainTasks.get(0).run();
+        assertEquals(Arrays.asList(0, 1, 2), results);
+    }
+
+    @Test
+    public void testException_reportedToUncaughtExceptionHandler() throws InterruptedException {
+        final List<Throwable> uncaught = new ArrayList<>();
+        final ExecutorService threadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable);
+            thread.setUncaughtExceptionHandler((t, ex) -> uncaught.add(ex));
+            return thread;
+        });
+        final SerialExecutor executor = new SerialExecutor(threadExecutor);
+
+        final RuntimeException exception = new IllegalStateException("listener failure");
+        final List<Integer> results = new ArrayList<>();
+        executor.execute(() -> results.add(0));
+        executor.execute(() -> {
+            throw exception;
+        });
+        executor.execute(() -> results.add(1));
+
+        threadExecutor.shutdown();
+        assertTrue(threadExecutor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 1), results);
+        assertEquals(1, uncaught.size());
+        assertSame(exception, uncaught.get(0));
+    }
+}
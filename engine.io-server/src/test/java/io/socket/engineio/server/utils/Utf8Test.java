@@ -0,0 +1,51 @@
+package io.socket.engineio.server.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public final class Utf8Test {
+
+    private static final String[] STRINGS = {
+            "",
+            "Engine.IO",
+            "été",
+            "€100",
+            "😀 smile",
+            "unpaired \ud83d high",
+            "unpaired \ude00 low",
+            "trailing \ud83d",
+    };
+
+    @Test
+    public void testWrite() throws IOException {
+        for (String string : STRINGS) {
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            Utf8.write(string, outputStream);
+
+            assertArrayEquals(string, string.getBytes(StandardCharsets.UTF_8), outputStream.toByteArray());
+        }
+    }
+
+    @Test
+    public void testEncodedLength() {
+        for (String string : STRINGS) {
+            assertEquals(string, string.getBytes(StandardCharsets.UTF_8).length, Utf8.encodedLength(string));
+        }
+    }
+
+    @Test
+    public void testWriteDecimal() throws IOException {
+        for (int value : new int[] { 0, 7, 10, 99, 1000, Integer.MAX_VALUE }) {
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            Utf8.writeDecimal(value, outputStream);
+
+            assertEquals(String.valueOf(value), new String(outputStream.toByteArray(), StandardCharsets.US_ASCII));
+        }
+    }
+}